@@ -0,0 +1,65 @@
+package frc.robot;
+
+import com.revrobotics.CANPIDController;
+import com.revrobotics.ControlType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for setting the direction and speed of a single {@link DriveModule}. The target directions
+ * step around the circle in uneven increments so the benchmark exercises the wrap-around and the
+ * forward-backward reversal logic rather than repeating a single setting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkDriveModule {
+
+    private static final int SAMPLES = 1024;
+
+    private DriveModule m_driveModule;
+    private CANPIDController m_pid;
+    private final double[] m_radians = new double[SAMPLES];
+    private final double[] m_speeds = new double[SAMPLES];
+    private int m_next = 0;
+
+    @Setup
+    public void setup() {
+        m_driveModule = MockedHardware.driveModule();
+        m_pid = MockedHardware.pidController();
+        for (int i = 0; i < SAMPLES; i++) {
+            m_radians[i] = Math.IEEEremainder(i * 0.37, 2.0 * Math.PI);
+            m_speeds[i] = (i % 17) / 16.0;
+        }
+    }
+
+    private int next() {
+        m_next = (m_next + 1) & (SAMPLES - 1);
+        return m_next;
+    }
+
+    @Benchmark
+    public double setRadians() {
+        m_driveModule.setRadians(m_radians[next()]);
+        return m_driveModule.getLastRadians();
+    }
+
+    @Benchmark
+    public double setRadiansAndSpeed() {
+        int i = next();
+        m_driveModule.setRadiansAndSpeed(m_radians[i], m_speeds[i]);
+        return m_driveModule.getLastNormalizedSpeed();
+    }
+
+    /**
+     * The cost of a single call to a mocked PID controller. {@link #setRadiansAndSpeed()} makes two of these.
+     */
+    @Benchmark
+    public void mockOverhead() {
+        m_pid.setReference(m_speeds[next()], ControlType.kVelocity);
+    }
+}
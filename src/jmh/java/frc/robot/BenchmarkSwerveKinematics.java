@@ -0,0 +1,45 @@
+package frc.robot;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the swerve inverse kinematics alone, without the drive modules. This should report no
+ * allocation ({@code gc.alloc.rate.norm} of 0 B/op).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkSwerveKinematics {
+
+    private static final int SAMPLES = 1024;
+
+    private final SwerveKinematics m_kinematics =
+            new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+    private final double[] m_forward = new double[SAMPLES];
+    private final double[] m_strafe = new double[SAMPLES];
+    private final double[] m_rotation = new double[SAMPLES];
+    private int m_next = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SAMPLES; i++) {
+            double direction = i * 0.37;
+            double speed = (i % 11) / 10.0;
+            m_forward[i] = Math.cos(direction) * speed;
+            m_strafe[i] = Math.sin(direction) * speed;
+            m_rotation[i] = ((i % 7) - 3) / 3.0;
+        }
+    }
+
+    @Benchmark
+    public double compute() {
+        m_next = (m_next + 1) & (SAMPLES - 1);
+        m_kinematics.compute(m_forward[m_next], m_strafe[m_next], m_rotation[m_next]);
+        return m_kinematics.getSpeed(SwerveKinematics.RF);
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot;
+
+import com.revrobotics.CANEncoder;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANSparkMax;
+import edu.wpi.first.wpilibj.AnalogPotentiometer;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Builds the mocked hardware the benchmarks run against, the same way {@code TestDriveModule} builds an
+ * initialized drive module. The mocks are created {@code stubOnly()} so they do not record every invocation -
+ * a recording mock grows without bound over a benchmark run and would swamp the allocation numbers.
+ * <p>
+ * NOTE: every call into a mock still costs something and allocates a little. That cost is the same before
+ * and after any change to the control path, so comparisons against the baseline are still valid; the
+ * {@code mockOverhead} benchmark in {@link BenchmarkDriveModule} measures it so it can be subtracted out.
+ */
+public final class MockedHardware {
+
+    private MockedHardware() {
+    }
+
+    /**
+     * Create a drive module with mocked motor controllers, motor encoders, motor PID and analog encoder.
+     *
+     * @return (not null) The initialized drive module.
+     */
+    public static DriveModule driveModule() {
+        CANSparkMax driveMotor = mock(CANSparkMax.class, withSettings().stubOnly());
+        CANSparkMax spinMotor = mock(CANSparkMax.class, withSettings().stubOnly());
+        AnalogPotentiometer analogEncoder = mock(AnalogPotentiometer.class, withSettings().stubOnly());
+        CANEncoder driveEncoder = mock(CANEncoder.class, withSettings().stubOnly());
+        CANPIDController drivePID = mock(CANPIDController.class, withSettings().stubOnly());
+        CANEncoder spinEncoder = mock(CANEncoder.class, withSettings().stubOnly());
+        CANPIDController spinPID = mock(CANPIDController.class, withSettings().stubOnly());
+        when(analogEncoder.get()).thenReturn(0.375);
+        when(driveEncoder.getPosition()).thenReturn(0.0);
+        when(driveEncoder.getVelocity()).thenReturn(0.0);
+        when(spinEncoder.getPosition()).thenReturn(0.0);
+        return new DriveModule(driveMotor, driveEncoder, drivePID,
+                spinMotor, spinEncoder, spinPID,
+                analogEncoder, 0.125);
+    }
+
+    /**
+     * Create a mocked NavX. The NavX is never constructed, so there is no attempt to connect to the board.
+     *
+     * @return (not null) The mocked NavX.
+     */
+    public static NavX navx() {
+        return mock(NavX.class, withSettings().stubOnly());
+    }
+
+    /**
+     * Create a mocked PID controller.
+     *
+     * @return (not null) The mocked PID controller.
+     */
+    public static CANPIDController pidController() {
+        return mock(CANPIDController.class, withSettings().stubOnly());
+    }
+}
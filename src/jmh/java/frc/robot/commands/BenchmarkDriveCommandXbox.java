@@ -0,0 +1,55 @@
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.XboxController;
+import frc.robot.Constants;
+import frc.robot.MockedHardware;
+import frc.robot.subsystems.DriveSubsystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Benchmarks {@link DriveCommandXbox#execute()} - reading the sticks, deadband, sensitivity and gain
+ * input shaping, heading hold, and the field relative drive call - for both controller schemes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkDriveCommandXbox {
+
+    @Param({"XBOX", "JOYSTICK"})
+    public String controller;
+
+    private DriveCommandXbox m_driveCommand;
+
+    @Setup
+    public void setup() {
+        Constants.USE_CONTROLLER = controller;
+        XboxController xbox = mock(XboxController.class, withSettings().stubOnly());
+        Joystick stick = mock(Joystick.class, withSettings().stubOnly());
+        // the sticks are pushed forward and right, with a twist that is outside the deadband
+        when(xbox.getY(GenericHID.Hand.kLeft)).thenReturn(-0.6);
+        when(xbox.getX(GenericHID.Hand.kLeft)).thenReturn(0.3);
+        when(xbox.getX(GenericHID.Hand.kRight)).thenReturn(0.4);
+        when(stick.getY()).thenReturn(-0.6);
+        when(stick.getX()).thenReturn(0.3);
+        when(stick.getTwist()).thenReturn(0.4);
+        DriveSubsystem driveSubsystem = new DriveSubsystem(MockedHardware.driveModule(),
+                MockedHardware.driveModule(), MockedHardware.driveModule(), MockedHardware.driveModule(),
+                MockedHardware.navx());
+        m_driveCommand = new DriveCommandXbox(xbox, stick, driveSubsystem);
+        m_driveCommand.initialize();
+    }
+
+    @Benchmark
+    public void execute() {
+        m_driveCommand.execute();
+    }
+}
@@ -0,0 +1,77 @@
+package frc.robot.subsystems;
+
+import frc.robot.MockedHardware;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link DriveSubsystem} work done every command cycle - the swerve kinematics that
+ * convert chassis forward, strafe, and rotation into module directions and speeds, and the odometry
+ * integration in {@link DriveSubsystem#periodic()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkDriveSubsystem {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"ENCODERS", "COMMANDED"})
+    public DriveSubsystem.OdometryMode odometryMode;
+
+    private DriveSubsystem m_driveSubsystem;
+    private final double[] m_forward = new double[SAMPLES];
+    private final double[] m_strafe = new double[SAMPLES];
+    private final double[] m_rotation = new double[SAMPLES];
+    private int m_next = 0;
+
+    @Setup
+    public void setup() {
+        m_driveSubsystem = new DriveSubsystem(MockedHardware.driveModule(), MockedHardware.driveModule(),
+                MockedHardware.driveModule(), MockedHardware.driveModule(), MockedHardware.navx());
+        m_driveSubsystem.setOdometryMode(odometryMode);
+        for (int i = 0; i < SAMPLES; i++) {
+            double direction = i * 0.37;
+            double speed = (i % 11) / 10.0;
+            m_forward[i] = Math.cos(direction) * speed;
+            m_strafe[i] = Math.sin(direction) * speed;
+            m_rotation[i] = ((i % 7) - 3) / 3.0;
+        }
+    }
+
+    private int next() {
+        m_next = (m_next + 1) & (SAMPLES - 1);
+        return m_next;
+    }
+
+    /**
+     * {@link DriveSubsystem#swerveDriveComponents(double, double, double)} is the public entry to the
+     * swerve kinematics in {@code setModulesForChassisMotion}.
+     */
+    @Benchmark
+    public void setModulesForChassisMotion() {
+        int i = next();
+        m_driveSubsystem.swerveDriveComponents(m_forward[i], m_strafe[i], m_rotation[i]);
+    }
+
+    @Benchmark
+    public double periodic() {
+        m_driveSubsystem.periodic();
+        return m_driveSubsystem.getFieldX();
+    }
+
+    /**
+     * One full drive cycle - set the chassis motion, then run the subsystem periodic.
+     */
+    @Benchmark
+    public double driveCycle() {
+        int i = next();
+        m_driveSubsystem.swerveDriveComponents(m_forward[i], m_strafe[i], m_rotation[i]);
+        m_driveSubsystem.periodic();
+        return m_driveSubsystem.getFieldX();
+    }
+}
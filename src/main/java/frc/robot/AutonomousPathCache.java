@@ -0,0 +1,57 @@
+package frc.robot;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the compiled path tables for all of the {@link Constants.AutonomousPath} paths, keyed by the path
+ * switchboard id. The paths are loaded on a background thread when the robot starts, so the robot starts quickly,
+ * and the autonomous command for whatever path is selected at the start of autonomous is available immediately,
+ * without reading or parsing anything at match start.
+ * <p>
+ * If a path is requested before the background thread has loaded it, it is loaded on the requesting thread (or,
+ * if the background thread is loading it right then, the request waits for that load to finish). A path is never
+ * loaded twice.
+ */
+public class AutonomousPathCache {
+
+    private final ConcurrentHashMap<Integer, PathTable> m_tables = new ConcurrentHashMap<>();
+    private Thread m_thread = null;
+
+    /**
+     * Start loading all of the autonomous paths on a background thread. This does nothing if the paths are
+     * already being loaded.
+     */
+    public synchronized void startPreload() {
+        if (null != m_thread) {
+            return;
+        }
+        m_thread = new Thread(this::preload, "path-preload");
+        m_thread.setDaemon(true);
+        m_thread.setPriority(Thread.MIN_PRIORITY);
+        m_thread.start();
+    }
+
+    private void preload() {
+        for (Constants.AutonomousPath path : Constants.AutonomousPath.values()) {
+            get(path);
+        }
+    }
+
+    /**
+     * @return {@code true} if the background thread has finished loading the paths, {@code false} otherwise.
+     */
+    public synchronized boolean isPreloaded() {
+        return (null != m_thread) && !m_thread.isAlive();
+    }
+
+    /**
+     * Get the path table for an autonomous path, loading it now if it has not been loaded.
+     *
+     * @param path (Constants.AutonomousPath, not null) The autonomous path.
+     * @return The path table, {@code null} if the path could not be loaded.
+     */
+    public PathTable get(Constants.AutonomousPath path) {
+        // A path that fails to load is not cached, so it is tried again on the next request.
+        return m_tables.computeIfAbsent(path.getId(), id -> path.loadTable());
+    }
+}
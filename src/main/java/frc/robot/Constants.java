@@ -12,6 +12,7 @@ import org.json.simple.parser.ParseException;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 import static org.a05annex.util.JsonSupport.*;
 import static org.a05annex.util.Utl.TWO_PI;
@@ -75,9 +76,117 @@ public final class Constants {
     public static final double MAX_METERS_PER_SEC = 3.2;
     public static final double MAX_RADIANS_PER_SEC = MAX_METERS_PER_SEC / DRIVE_RADIUS;
 
+    // The distance the robot travels for one drive encoder tic (one drive motor revolution), in m. This is derived
+    // from the maximum encoder velocity and maximum linear speed above; it should be replaced by a value measured
+    // by driving a known distance if encoder odometry is not accurate enough.
+    public static final double DRIVE_METERS_PER_TIC = MAX_METERS_PER_SEC * 60.0 / MAX_DRIVE_VELOCITY;
+
+    // Encoder odometry runs on its own thread at this rate (cycles per second) rather than once per 20ms command
+    // cycle. The NavX is asked to update at the same rate (200 is the maximum over SPI).
+    public static final boolean USE_ODOMETRY_THREAD = true;
+    public static final double ODOMETRY_RATE_HZ = 200.0;
+    public static final byte NAVX_UPDATE_RATE_HZ = (byte) 200;
+
+    // The NavX calibrates on a background thread at startup. If it has not finished calibrating in
+    // NAVX_INIT_TIMEOUT seconds, or it stops reporting updates for NAVX_STALL_TIMEOUT seconds (e.g. a brownout
+    // or a loose cable), the heading comes from the drive module encoders until the NavX is reporting again. The
+    // NavX is checked and sampled on its own thread at NAVX_SAMPLE_RATE_HZ, which should be at least the NavX
+    // update rate.
+    public static final double NAVX_INIT_TIMEOUT = 15.0;
+    public static final double NAVX_STALL_TIMEOUT = 0.25;
+    public static final double NAVX_SAMPLE_RATE_HZ = 200.0;
+    // The NavX yaw rate is low pass filtered, each update moves the yaw rate this fraction of the way to the
+    // measured rate.
+    public static final double NAVX_YAW_RATE_FILTER = 0.25;
+    // The heading is not predicted further than this many seconds past the latest NavX sample - an older sample
+    // means the NavX is not updating.
+    public static final double NAVX_MAX_SAMPLE_AGE = 0.05;
+
+    // Gyro drift estimation. The robot is stationary when all the drive motor velocities are less than
+    // STATIONARY_DRIVE_VELOCITY (drive encoder RPM). After it has been stationary for STATIONARY_SETTLE_TIME
+    // seconds, any heading change over each DRIFT_WINDOW seconds is gyro drift: the heading is corrected and the
+    // drift rate estimate is moved DRIFT_GAIN of the way towards the measured drift. A heading change faster than
+    // MAX_DRIFT_RATE (radians/sec) is not drift (someone moved the robot), and is ignored.
+    public static final double STATIONARY_DRIVE_VELOCITY = 5.0;
+    public static final double STATIONARY_SETTLE_TIME = 0.5;
+    public static final double DRIFT_WINDOW = 1.0;
+    public static final double DRIFT_GAIN = 0.5;
+    public static final double MAX_DRIFT_RATE = Math.toRadians(1.0);
+
+    // Telemetry (see TelemetryPublisher) is read and published every TELEMETRY_PERIOD seconds. A number is only
+    // published when it has moved more than its deadband: heading in radians, position in meters, and drift in
+    // degrees/min.
+    public static final double TELEMETRY_PERIOD = 0.1;
+    public static final double TELEMETRY_HEADING_DEADBAND = 0.001;
+    public static final double TELEMETRY_POSITION_DEADBAND = 0.005;
+    public static final double TELEMETRY_DRIFT_DEADBAND = 0.01;
+
+    // The flight recorder (see FlightRecorder) records the drive every robot loop to a log file in
+    // FLIGHT_RECORDER_DIRECTORY on the robot (or FLIGHT_RECORDER_SIM_DIRECTORY in simulation). Each of its two
+    // buffers is FLIGHT_RECORDER_BUFFER_BYTES, about 20 seconds of records, so the log is written about every 20
+    // seconds. A new log is started every time the robot code starts, and only the newest FLIGHT_RECORDER_MAX_LOGS
+    // logs are kept. A log holds at most FLIGHT_RECORDER_MAX_LOG_BYTES, about 12 minutes of enabled time, so the
+    // logs can use at most 80MB of the roboRIO flash.
+    public static final boolean USE_FLIGHT_RECORDER = true;
+    public static final String FLIGHT_RECORDER_DIRECTORY = "/home/lvuser/logs";
+    public static final String FLIGHT_RECORDER_SIM_DIRECTORY = "build/logs";
+    public static final int FLIGHT_RECORDER_BUFFER_BYTES = 256 * 1024;
+    public static final int FLIGHT_RECORDER_MAX_LOGS = 10;
+    public static final long FLIGHT_RECORDER_MAX_LOG_BYTES = 8L * 1024L * 1024L;
+
+    // Time the stages of the robot loop (see LoopTiming), and publish the stage timing to the SmartDashboard every
+    // LOOP_TIMING_REPORT_PERIOD seconds.
+    public static final boolean USE_LOOP_TIMING = true;
+    public static final double LOOP_TIMING_REPORT_PERIOD = 5.0;
+
+    // Send the drive module commands on a dedicated dispatch thread rather than the command scheduler thread.
+    public static final boolean USE_DISPATCH_THREAD = false;
+
+    // The number of poses kept in the drive pose history, one per command cycle - 128 is about 2.5 seconds.
+    public static final int POSE_HISTORY_CAPACITY = 128;
+
+    // The time between samples in a compiled autonomous path table, in seconds. This is finer than the 20ms command
+    // cycle so the interpolation between samples is close to the spline. Changing this recompiles the tables.
+    public static final double PATH_TABLE_DT = 0.01;
+
+    // The drive simulation (see SwerveSimulation), used when the robot code is run in simulation. The NEO free speed
+    // in RPM, and the time constants (seconds to reach 63% of a step change in output) of the drive and spin motors.
+    public static double SIM_MOTOR_FREE_RPM = 5700.0;
+    public static double SIM_DRIVE_TIME_CONSTANT = 0.10;
+    public static double SIM_SPIN_TIME_CONSTANT = 0.03;
+    // When true the simulated robot runs on virtual time (see RobotClock) advanced by each simulation step, so the
+    // drive code sees exactly one robot period per loop regardless of how the desktop schedules the robot loop.
+    public static final boolean SIM_USE_VIRTUAL_TIME = true;
+
+    // CAN frame suppression for the drive module motor controllers (see CachingMotorController). A setpoint that
+    // changes by less than the epsilon is not sent, unless it has not been sent for the refresh period (seconds).
+    // The position epsilon is in motor revolutions (0.001 is 0.02 degree of spin), the velocity epsilon in RPM, and
+    // the arbitrary feed-forward epsilon in volts.
+    public static final double CAN_POSITION_EPSILON = 0.001;
+    public static final double CAN_VELOCITY_EPSILON = 1.0;
+    public static final double CAN_FEEDFORWARD_EPSILON = 0.01;
+    public static final double CAN_SETPOINT_REFRESH = 0.1;
+
+    // Spark MAX periodic status frame periods, in ms. Status 1 carries velocity and status 2 carries position; the
+    // drive uses drive velocity and drive and spin position, so spin velocity is sent much less often. Frames are
+    // only configured if CONFIGURE_STATUS_FRAMES is true, otherwise the Spark MAX defaults (20ms) are used.
+    public static final boolean CONFIGURE_STATUS_FRAMES = true;
+    public static final int DRIVE_VELOCITY_FRAME_MS = 20;
+    public static final int SPIN_VELOCITY_FRAME_MS = 200;
+    public static final int POSITION_FRAME_MS = 10;
+
     // PID values for the spin spark motor controller PID loop
     public static double SPIN_kP = 0.25;
     public static double SPIN_kI = 0.0;
+    // Module direction feed-forward. When USE_AZIMUTH_FEEDFORWARD is true the drive subsystem computes the rate each
+    // module direction is changing and sends SPIN_kV (volts per radian/sec of module spin) times that rate to the
+    // spin motor as a feed-forward, and scales the module speed by the cosine of the module direction error. SPIN_kV
+    // is the voltage to spin the NEO (5700 RPM free speed at 12 volts) at that rate. The feed-forward is limited to
+    // MAX_SPIN_FEEDFORWARD volts, the most the motor can be given. The feed-forward stays off until it is verified
+    // on the robot.
+    public static boolean USE_AZIMUTH_FEEDFORWARD = false;
+    public static double SPIN_kV = 12.0 * RADIANS_TO_SPIN_ENCODER * 60.0 / 5700.0;
+    public static final double MAX_SPIN_FEEDFORWARD = 12.0;
 
     // PID values for the drive spark motor controller speed PID loop
     public static double DRIVE_kP = 0.00003;
@@ -107,6 +216,9 @@ public final class Constants {
         private static final String TWIST_DEADBAND = "TWIST_DEADBAND";
         private static final String TWIST_SENSITIVITY = "TWIST_SENSITIVITY";
         private static final String TWIST_GAIN = "TWIST_GAIN";
+        private static final String DRIVE_AXIS_SLEW = "DRIVE_AXIS_SLEW";
+        private static final String DRIVE_VECTOR_SLEW = "DRIVE_VECTOR_SLEW";
+        private static final String TWIST_SLEW = "TWIST_SLEW";
 
         String m_driverName;
         String m_driverFile;
@@ -128,6 +240,9 @@ public final class Constants {
                     frc.robot.Constants.TWIST_DEADBAND = parseDouble(dict, TWIST_DEADBAND, frc.robot.Constants.TWIST_DEADBAND);
                     frc.robot.Constants.TWIST_SENSITIVITY = parseDouble(dict, TWIST_SENSITIVITY, frc.robot.Constants.TWIST_SENSITIVITY);
                     frc.robot.Constants.TWIST_GAIN = parseDouble(dict, TWIST_GAIN, frc.robot.Constants.TWIST_GAIN);
+                    frc.robot.Constants.DRIVE_AXIS_SLEW = parseDouble(dict, DRIVE_AXIS_SLEW, frc.robot.Constants.DRIVE_AXIS_SLEW);
+                    frc.robot.Constants.DRIVE_VECTOR_SLEW = parseDouble(dict, DRIVE_VECTOR_SLEW, frc.robot.Constants.DRIVE_VECTOR_SLEW);
+                    frc.robot.Constants.TWIST_SLEW = parseDouble(dict, TWIST_SLEW, frc.robot.Constants.TWIST_SLEW);
                 }
 
             } catch (IOException | ParseException | ClassCastException | NullPointerException e) {
@@ -144,6 +259,9 @@ public final class Constants {
             dict.put(TWIST_DEADBAND, frc.robot.Constants.TWIST_DEADBAND);
             dict.put(TWIST_SENSITIVITY, frc.robot.Constants.TWIST_SENSITIVITY);
             dict.put(TWIST_GAIN, frc.robot.Constants.TWIST_GAIN);
+            dict.put(DRIVE_AXIS_SLEW, frc.robot.Constants.DRIVE_AXIS_SLEW);
+            dict.put(DRIVE_VECTOR_SLEW, frc.robot.Constants.DRIVE_VECTOR_SLEW);
+            dict.put(TWIST_SLEW, frc.robot.Constants.TWIST_SLEW);
             try (FileWriter file = new FileWriter(frc.robot.Constants.currentDriver.m_driverFile)) {
                 file.write(dict.toJSONString());
                 file.flush();
@@ -189,6 +307,12 @@ public final class Constants {
     public static double TWIST_SENSITIVITY = 2.0;
     public static double TWIST_GAIN = 1.0;
 
+    // Driver command slew limits (see DriveSlewLimiter), the maximum change per second of the normalized forward
+    // and strafe components, of the translation vector, and of the rotation. 0.0 is no limit.
+    public static double DRIVE_AXIS_SLEW = 0.0;
+    public static double DRIVE_VECTOR_SLEW = 3.0;
+    public static double TWIST_SLEW = 6.0;
+
     // small number for zero check
     public static final double SMALL = 0.000001;
 
@@ -201,6 +325,26 @@ public final class Constants {
 
     public static double DRIVE_ORIENTATION_kP = 0.2;
 
+    // Latency compensated field-relative driving. When the robot is spinning, the field direction is converted to
+    // a chassis direction using the heading predicted for when the modules are actually moving in that direction:
+    // DRIVE_ACTUATION_LATENCY seconds (the time for the modules to respond to a command) plus half the measured
+    // command period (the command is held for the whole period) after the command. Latency compensation stays off
+    // until DRIVE_ACTUATION_LATENCY is measured on the robot.
+    public static boolean USE_LATENCY_COMPENSATION = false;
+    public static double DRIVE_ACTUATION_LATENCY = 0.02;
+
+    // Closed loop path tracking. The path speeds are the feed-forward, these are the PID gains on the error between
+    // the path position and heading and the odometry pose (see PathTrackingController). When path tracking is off,
+    // paths are followed open loop from the path speeds alone. Path tracking stays off until the gains are tuned on
+    // the robot.
+    public static boolean USE_PATH_TRACKING = false;
+    public static double TRACKING_kP = 2.0;
+    public static double TRACKING_kI = 0.0;
+    public static double TRACKING_kD = 0.0;
+    public static double TRACKING_HEADING_kP = 2.0;
+    public static double TRACKING_HEADING_kI = 0.0;
+    public static double TRACKING_HEADING_kD = 0.0;
+
     public enum AutonomousPath {
         BARREL_RACING("Barrel Racing", 0, "2021_barrel_racing.json"),
         SLALOM("Slalom", 1, "2021_slalom.json"),
@@ -242,6 +386,32 @@ public final class Constants {
             }
         }
 
+        /**
+         * @return The switchboard id of this autonomous path.
+         */
+        public int getId() {
+            return m_id;
+        }
+
+        /**
+         * @return The selected autonomous path.
+         */
+        public static AutonomousPath getSelected() {
+            return AUTONOMOUS_PATH;
+        }
+
+        /**
+         * Load the compiled path table for this autonomous path, compiling it from the path if there is no current
+         * table (see {@link PathTable}). This may be slow, use {@link AutonomousPathCache} rather than calling this
+         * from the robot loop.
+         *
+         * @return The path table, {@code null} if the path could not be loaded.
+         */
+        public PathTable loadTable() {
+            return PathTable.load(Paths.get(Filesystem.getDeployDirectory().toString(), "paths", m_filename),
+                    PATH_TABLE_DT);
+        }
+
         public static void setAutonomousToId(int id) {
             AUTONOMOUS_PATH = AutonomousPath.CAL_STRAIGHT;
             for (AutonomousPath path : values()) {
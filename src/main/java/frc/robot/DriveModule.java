@@ -11,9 +11,14 @@ import com.revrobotics.CANEncoder;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.ControlType;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 import com.revrobotics.CANPIDController;
 
 import edu.wpi.first.wpilibj.AnalogPotentiometer;
+import frc.robot.hardware.CachingMotorController;
+import frc.robot.hardware.IAnalogEncoder;
+import frc.robot.hardware.IMotorController;
+import frc.robot.hardware.SparkMaxMotorController;
 
 import javax.annotation.Nonnull;
 
@@ -21,20 +26,17 @@ import static org.a05annex.util.Utl.*;
 
 
 /**
- * Class that contains and controls the motors and encoders for a single swerve drive module.
+ * Class that contains and controls the motors and encoders for a single swerve drive module. The module talks to
+ * the hardware through the {@link IMotorController} and {@link IAnalogEncoder} interfaces, so the same module
+ * code runs on the robot and in simulation (see {@link frc.robot.sim.SwerveSimulation}).
  */
 public class DriveModule {
 
-    // This is the physical hardware wired to the roborio
-    private final CANSparkMax m_driveMotor;
-    private final CANSparkMax m_spinMotor;
-    private final AnalogPotentiometer m_analogEncoder;
-
-    // The are components of the physical hardware
-    private final CANEncoder m_driveEncoder;
-    private final CANPIDController m_drivePID;
-    private final CANEncoder m_spinEncoder;
-    private final CANPIDController m_spinPID;
+    // This is the physical hardware wired to the roborio (or its simulation). Each motor controller includes the
+    // motor encoder and PID controller.
+    private final IMotorController m_driveMotor;
+    private final IMotorController m_spinMotor;
+    private final IAnalogEncoder m_analogEncoder;
 
     // This is the initial 0.0 degree position calibration
     private final double m_calibrationOffset;
@@ -59,7 +61,64 @@ public class DriveModule {
      * The last speed value that was set for this module, in the range 0.0 to 1.0.
      */
     private double m_lastSpeed = 0.0;
+    /**
+     * {@code true} if the drive motor PID is currently configured for speed, {@code false} if it is configured for
+     * position. This is the state of the motor controller, so it is only changed when a command is applied.
+     */
     private boolean m_driveBySpeed = true;
+    /**
+     * The command computed by the last {@code compute...} call, which is sent to the motor controllers by
+     * {@link #flush()}, or by a {@link frc.robot.subsystems.ModuleDispatcher}.
+     */
+    private final Command m_pending = new Command();
+
+    // The sensor snapshot, read from the motor controllers once per control cycle by {@link #sampleSensors()} so
+    // everything in that cycle sees the same instant without reading the hardware again. The snapshot should be
+    // sampled by one thread - the values are individually safe to read from any thread, but are only guaranteed
+    // to be from the same sample on the sampling thread.
+    private volatile double m_sampledDrivePosition = 0.0;
+    private volatile double m_sampledDriveVelocity = 0.0;
+    private volatile double m_sampledSpinPosition = 0.0;
+    private volatile long m_sampleTimeNanos = 0L;
+
+    /**
+     * The motor controller setpoints for a module. Commands are computed from a direction and speed (or
+     * distance) by the {@code compute...} methods, and sent to the motor controllers by {@link #apply(Command)}.
+     * Separating the two lets the targets for all of the modules be computed first, and then sent to all of the
+     * modules together.
+     */
+    public static class Command {
+        /**
+         * The spin motor encoder position.
+         */
+        public double spinEncoder = 0.0;
+        /**
+         * The arbitrary feed-forward for the spin motor, in volts, to turn the module at the rate the target
+         * direction is changing.
+         */
+        public double spinFeedforward = 0.0;
+        /**
+         * The drive motor velocity (RPM) if {@link #driveBySpeed} is {@code true}, otherwise the drive motor
+         * encoder position.
+         */
+        public double driveReference = 0.0;
+        /**
+         * {@code true} to drive by speed, {@code false} to drive to a position.
+         */
+        public boolean driveBySpeed = true;
+
+        /**
+         * Copy another command into this command.
+         *
+         * @param command (Command, not null) The command to copy.
+         */
+        public void copy(Command command) {
+            spinEncoder = command.spinEncoder;
+            spinFeedforward = command.spinFeedforward;
+            driveReference = command.driveReference;
+            driveBySpeed = command.driveBySpeed;
+        }
+    }
 
     /**
      * * The factory that creates the DriveModule given the
@@ -81,9 +140,23 @@ public class DriveModule {
         CANPIDController drivePID = driveMotor.getPIDController();
         CANEncoder spinEncoder = spinMotor.getEncoder();
         CANPIDController spinPID = spinMotor.getPIDController();
-        return new DriveModule(driveMotor, driveEncoder, drivePID,
-                spinMotor, spinEncoder, spinPID,
-                analogEncoder, calibrationOffset);
+        if (Constants.CONFIGURE_STATUS_FRAMES) {
+            // we read drive velocity (status 1) and drive and spin position (status 2); we never read spin velocity
+            driveMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, Constants.DRIVE_VELOCITY_FRAME_MS);
+            driveMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, Constants.POSITION_FRAME_MS);
+            spinMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, Constants.SPIN_VELOCITY_FRAME_MS);
+            spinMotor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, Constants.POSITION_FRAME_MS);
+        }
+        // the caches in front of the motor controllers suppress redundant CAN frames
+        return new DriveModule(
+                new CachingMotorController(new SparkMaxMotorController(driveMotor, driveEncoder, drivePID),
+                        Constants.CAN_POSITION_EPSILON, Constants.CAN_VELOCITY_EPSILON,
+                        Constants.CAN_SETPOINT_REFRESH),
+                new CachingMotorController(new SparkMaxMotorController(spinMotor, spinEncoder, spinPID),
+                        Constants.CAN_POSITION_EPSILON, Constants.CAN_VELOCITY_EPSILON,
+                        Constants.CAN_FEEDFORWARD_EPSILON,
+                        Constants.CAN_SETPOINT_REFRESH),
+                analogEncoder::get, calibrationOffset);
     }
 
     /**
@@ -103,13 +176,26 @@ public class DriveModule {
     public DriveModule(@Nonnull CANSparkMax driveMotor, CANEncoder driveEncoder, CANPIDController drivePID,
                        CANSparkMax spinMotor, CANEncoder spinEncoder, CANPIDController spinPID,
                        AnalogPotentiometer analogEncoder, double calibrationOffset) {
+        this(new SparkMaxMotorController(driveMotor, driveEncoder, drivePID),
+                new SparkMaxMotorController(spinMotor, spinEncoder, spinPID),
+                analogEncoder::get, calibrationOffset);
+    }
+
+    /**
+     * Instantiate a DriveModule for any motor controller and analog encoder implementation, specifically, for
+     * simulated hardware.
+     *
+     * @param driveMotor (IMotorController, not null) The drive motor controller.
+     * @param spinMotor (IMotorController, not null) The spin motor controller.
+     * @param analogEncoder (IAnalogEncoder, not null) The spin analog position encoder which provides
+     *                      the absolute spin position of the module.
+     * @param calibrationOffset The value of the analog potentiometer that will point the module forward.
+     */
+    public DriveModule(@Nonnull IMotorController driveMotor, @Nonnull IMotorController spinMotor,
+                       @Nonnull IAnalogEncoder analogEncoder, double calibrationOffset) {
 
         m_driveMotor = driveMotor;
-        m_driveEncoder = driveEncoder;
-        m_drivePID = drivePID;
         m_spinMotor = spinMotor;
-        m_spinEncoder = spinEncoder;
-        m_spinPID = spinPID;
         m_analogEncoder = analogEncoder;
 
         // reset motor controllers to factory default
@@ -120,24 +206,38 @@ public class DriveModule {
         m_spinMotor.setInverted(true);
 
         // update PID controllers for spin and drive motors and initialize them
-        initPID(m_drivePID, Constants.DRIVE_kFF, Constants.DRIVE_kP, Constants.DRIVE_kI, Constants.DRIVE_IZONE);
-        initPID(m_spinPID, 0.0, Constants.SPIN_kP, Constants.SPIN_kI, 0.0);
+        initPID(m_driveMotor, Constants.DRIVE_kFF, Constants.DRIVE_kP, Constants.DRIVE_kI, Constants.DRIVE_IZONE);
+        initPID(m_spinMotor, 0.0, Constants.SPIN_kP, Constants.SPIN_kI, 0.0);
 
         // calibrate
         m_calibrationOffset = calibrationOffset;
         calibrate(); // reset spin encoder to forward
-        m_spinPID.setReference(0.0, ControlType.kPosition);
+        m_spinMotor.setReference(0.0, ControlType.kPosition);
         m_lastRadians = 0.0;
         m_lastEncoder = 0.0;
     }
 
+    /**
+     * @return (not null) The drive motor controller.
+     */
+    public IMotorController getDriveMotor() {
+        return m_driveMotor;
+    }
+
+    /**
+     * @return (not null) The spin motor controller.
+     */
+    public IMotorController getSpinMotor() {
+        return m_spinMotor;
+    }
+
     /**
      * Updates the spin CANPIDController object using values in constants file. Used only when tuning the PID
      * constants for best control.
      */
     public void setSpinPID() {
-        m_spinPID.setP(Constants.SPIN_kP);
-        m_spinPID.setI(Constants.SPIN_kI);
+        m_spinMotor.setP(Constants.SPIN_kP);
+        m_spinMotor.setI(Constants.SPIN_kI);
     }
 
     /**
@@ -145,20 +245,20 @@ public class DriveModule {
      * * constants for best control.
      */
     public void setDrivePID() {
-        m_drivePID.setP(Constants.DRIVE_kP);
-        m_drivePID.setI(Constants.DRIVE_kI);
-        m_drivePID.setFF(Constants.DRIVE_kFF);
-        m_drivePID.setIZone(Constants.DRIVE_IZONE);
+        m_driveMotor.setP(Constants.DRIVE_kP);
+        m_driveMotor.setI(Constants.DRIVE_kI);
+        m_driveMotor.setFF(Constants.DRIVE_kFF);
+        m_driveMotor.setIZone(Constants.DRIVE_IZONE);
     }
 
     public void setDrivePosPID() {
-        m_drivePID.setP(Constants.DRIVE_POS_kP);
-        m_drivePID.setI(Constants.DRIVE_POS_kI);
-        m_drivePID.setFF(0.0);
-        m_drivePID.setIZone(0.0);
+        m_driveMotor.setP(Constants.DRIVE_POS_kP);
+        m_driveMotor.setI(Constants.DRIVE_POS_kI);
+        m_driveMotor.setFF(0.0);
+        m_driveMotor.setIZone(0.0);
     }
 
-    private void initPID(CANPIDController pid, double kFF, double kP, double kI, double kIZone) {
+    private void initPID(IMotorController pid, double kFF, double kP, double kI, double kIZone) {
         pid.setFF(kFF);
         pid.setP(kP);
         pid.setI(kI);
@@ -167,13 +267,52 @@ public class DriveModule {
         pid.setOutputRange(-1.0, 1.0);
     }
 
+    /**
+     * Read the drive and spin encoders into the sensor snapshot, and record the time they were read. This should
+     * be called once per control cycle, before anything in that cycle reads the snapshot.
+     */
+    public void sampleSensors() {
+        m_sampledDrivePosition = m_driveMotor.getPosition();
+        m_sampledDriveVelocity = m_driveMotor.getVelocity();
+        m_sampledSpinPosition = m_spinMotor.getPosition();
+        m_sampleTimeNanos = RobotClock.nanoTime();
+    }
+
+    /**
+     * @return The drive motor position from the last {@link #sampleSensors()}.
+     */
+    public double getSampledDrivePosition() {
+        return m_sampledDrivePosition;
+    }
+
+    /**
+     * @return The drive motor velocity (RPM) from the last {@link #sampleSensors()}.
+     */
+    public double getSampledDriveVelocity() {
+        return m_sampledDriveVelocity;
+    }
+
+    /**
+     * @return The spin motor position from the last {@link #sampleSensors()}.
+     */
+    public double getSampledSpinPosition() {
+        return m_sampledSpinPosition;
+    }
+
+    /**
+     * @return The {@link RobotClock#nanoTime()} time of the last {@link #sampleSensors()}.
+     */
+    public long getSampleTimeNanos() {
+        return m_sampleTimeNanos;
+    }
+
     /**
      * Returns the drive motor velocity (RPM) as read from the encoder
      *
      * @return The drive motor velocity (RPM)
      */
     public double getDriveEncoderVelocity() {
-        return m_driveEncoder.getVelocity();
+        return m_driveMotor.getVelocity();
     }
 
     /**
@@ -182,7 +321,7 @@ public class DriveModule {
      * @return The drive motor position as read from the encoder.
      */
     public double getDriveEncoderPosition() {
-        return m_driveEncoder.getPosition();
+        return m_driveMotor.getPosition();
     }
 
     /**
@@ -191,7 +330,7 @@ public class DriveModule {
      * @return The spin motor position as read from the encoder.
      */
     public double getSpinEncoderPosition() {
-        return m_spinEncoder.getPosition();
+        return m_spinMotor.getPosition();
     }
 
     /**
@@ -238,7 +377,7 @@ public class DriveModule {
      */
     public void calibrate() {
         // (actual - offset) * 360 / 20
-        m_spinEncoder.setPosition((m_analogEncoder.get() - m_calibrationOffset) * 18.0);
+        m_spinMotor.setPosition((m_analogEncoder.get() - m_calibrationOffset) * 18.0);
     }
 
     /**
@@ -261,6 +400,15 @@ public class DriveModule {
      *      *                      front of the robot, and positive is clockwise.
      */
     public void setRadians(double targetRadians) {
+        computeRadians(targetRadians);
+        m_spinMotor.setReference(m_pending.spinEncoder, ControlType.kPosition);
+    }
+
+    /**
+     * Compute the spin encoder setting for a module direction, the speed multiplier, and the pending spin
+     * command, without sending anything to the motor controllers.
+     */
+    private void computeRadians(double targetRadians) {
         // The real angle of the front of the wheel is 180 degrees away from the current angle if the wheel
         // is going backwards (i.e. the m_lastAngle was the last target angle
         double realLastForward = (m_speedMultiplier > 0.0) ? m_lastRadians :
@@ -293,8 +441,8 @@ public class DriveModule {
         // Compute and set the spin value
         m_lastRadians = targetRadians;
         m_lastEncoder += (deltaRadians * Constants.RADIANS_TO_SPIN_ENCODER);
-
-        m_spinPID.setReference(m_lastEncoder, ControlType.kPosition);
+        m_pending.spinEncoder = m_lastEncoder;
+        m_pending.spinFeedforward = 0.0;
     }
 
     /**
@@ -306,18 +454,86 @@ public class DriveModule {
      *                      forward velocity.
      */
     public void setRadiansAndSpeed(double targetRadians, double speed) {
+        computeRadiansAndSpeed(targetRadians, speed);
+        flush();
+    }
 
-        setRadians(targetRadians);
+    /**
+     * Compute the command for a direction and speed of the drive wheel in this module, without sending it to
+     * the motor controllers. Send it with {@link #flush()}.
+     *
+     * @param targetRadians (double) The direction from -pi to pi radians where 0.0 is towards the
+     *                      front of the robot, and positive is clockwise.
+     * @param speed         (double) The normalized speed of the wheel from 0.0 to 1.0 where 1.0 is the maximum
+     *                      forward velocity.
+     */
+    public void computeRadiansAndSpeed(double targetRadians, double speed) {
+        computeRadians(targetRadians);
 
-        // Compute and set the speed value
+        // Compute the speed value
         m_lastSpeed = speed;
-        speed *= Constants.MAX_DRIVE_VELOCITY * m_speedMultiplier;
+        m_pending.driveReference = speed * Constants.MAX_DRIVE_VELOCITY * m_speedMultiplier;
+        m_pending.driveBySpeed = true;
+    }
 
-        if (!m_driveBySpeed) {
-            setDrivePID();
-            m_driveBySpeed = true;
-        }
-        m_drivePID.setReference(speed, ControlType.kVelocity);
+    /**
+     * Compute the command for a direction and speed of the drive wheel in this module when the direction is
+     * changing, without sending it to the motor controllers. Send it with {@link #flush()}. The rate the direction
+     * is changing is sent to the spin motor as a feed-forward so the module direction does not lag behind the
+     * target direction. The speed is scaled by the cosine of the error between the target direction and the
+     * module direction in the sensor snapshot (see {@link #sampleSensors()}), so the module does not drive hard
+     * in the wrong direction while it is turning, and does not drive at all if it is more than 90 degrees off.
+     *
+     * @param targetRadians   (double) The direction from -pi to pi radians where 0.0 is towards the
+     *                        front of the robot, and positive is clockwise.
+     * @param speed           (double) The normalized speed of the wheel from 0.0 to 1.0 where 1.0 is the maximum
+     *                        forward velocity.
+     * @param radiansPerSec   (double) The rate the target direction is changing, in radians/sec, positive is
+     *                        clockwise.
+     */
+    public void computeRadiansAndSpeed(double targetRadians, double speed, double radiansPerSec) {
+        computeRadians(targetRadians);
+        computeTurningSpeed(speed, radiansPerSec);
+    }
+
+    /**
+     * Compute the command for a direction and speed of the drive wheel in this module when the direction is
+     * changing, as {@link #computeRadiansAndSpeed(double, double, double)}, with the rate the direction is
+     * changing measured from the change in the spin setpoint since the last command. The spin setpoint is where
+     * the module actually turns to - when the module reverses rather than turning more than 90 degrees, the
+     * target direction jumps by about pi, but the setpoint, and so the feed-forward, barely changes.
+     *
+     * @param targetRadians (double) The direction from -pi to pi radians where 0.0 is towards the
+     *                      front of the robot, and positive is clockwise.
+     * @param speed         (double) The normalized speed of the wheel from 0.0 to 1.0 where 1.0 is the maximum
+     *                      forward velocity.
+     * @param dt            (double) The time since the last command, in seconds. If this is not positive (the
+     *                      module was not moving, or this is the first command after a gap) there is no
+     *                      feed-forward.
+     */
+    public void computeTrackingRadiansAndSpeed(double targetRadians, double speed, double dt) {
+        double lastEncoder = m_lastEncoder;
+        computeRadians(targetRadians);
+        computeTurningSpeed(speed,
+                (dt > 0.0) ? (m_lastEncoder - lastEncoder) / Constants.RADIANS_TO_SPIN_ENCODER / dt : 0.0);
+    }
+
+    /**
+     * Compute the spin feed-forward, limited to the motor voltage, and the cosine scaled speed for the direction
+     * that was just computed.
+     */
+    private void computeTurningSpeed(double speed, double radiansPerSec) {
+        m_pending.spinFeedforward = Math.max(-Constants.MAX_SPIN_FEEDFORWARD,
+                Math.min(radiansPerSec * Constants.SPIN_kV, Constants.MAX_SPIN_FEEDFORWARD));
+
+        // scale the speed by the cosine of the direction error
+        double errorRadians = (m_pending.spinEncoder - m_sampledSpinPosition) / Constants.RADIANS_TO_SPIN_ENCODER;
+        speed *= Math.max(Math.cos(errorRadians), 0.0);
+
+        // Compute the speed value
+        m_lastSpeed = speed;
+        m_pending.driveReference = speed * Constants.MAX_DRIVE_VELOCITY * m_speedMultiplier;
+        m_pending.driveBySpeed = true;
     }
 
     /**
@@ -330,14 +546,72 @@ public class DriveModule {
      * @param deltaTics (double) The number of tics the drive motor should mov e.
      */
     public void setRadiansAndDistance(double targetRadians, double deltaTics) {
-        setRadians(targetRadians);
-        double targetTics = getDriveEncoderPosition() + deltaTics * m_speedMultiplier;
+        // the distance is from where the drive motor is now, not from the last sensor snapshot
+        computeRadiansAndDistance(targetRadians, deltaTics, getDriveEncoderPosition());
+        flush();
+    }
+
+    /**
+     * Compute the command for a direction and distance in encoder tics that the module should move, without
+     * sending it to the motor controllers. Send it with {@link #flush()}. The distance is relative to the drive
+     * position in the sensor snapshot (see {@link #sampleSensors()}).
+     *
+     * @param targetRadians (double) The direction from -pi to pi radians where 0.0 is towards the
+     *                      front of the robot, and positive is clockwise.
+     * @param deltaTics (double) The number of tics the drive motor should move.
+     */
+    public void computeRadiansAndDistance(double targetRadians, double deltaTics) {
+        computeRadiansAndDistance(targetRadians, deltaTics, m_sampledDrivePosition);
+    }
+
+    private void computeRadiansAndDistance(double targetRadians, double deltaTics, double drivePosition) {
+        computeRadians(targetRadians);
+        m_pending.driveReference = drivePosition + deltaTics * m_speedMultiplier;
+        m_pending.driveBySpeed = false;
+    }
 
-        if (m_driveBySpeed) {
-            m_drivePID.setReference(0, ControlType.kVelocity);
-            setDrivePosPID();
-            m_driveBySpeed = false;
+    /**
+     * Get the command computed by the last {@code compute...} call. This is the module's working command; it
+     * should be copied if it is to be sent later or from another thread.
+     *
+     * @return (not null) The pending command.
+     */
+    public Command getPendingCommand() {
+        return m_pending;
+    }
+
+    /**
+     * Send the command computed by the last {@code compute...} call to the motor controllers.
+     */
+    public void flush() {
+        apply(m_pending);
+    }
+
+    /**
+     * Send a command to the motor controllers, switching the drive PID between speed and position if required.
+     * Commands for a module must only be applied from one thread.
+     *
+     * @param command (Command, not null) The command.
+     */
+    public void apply(Command command) {
+        if (0.0 == command.spinFeedforward) {
+            m_spinMotor.setReference(command.spinEncoder, ControlType.kPosition);
+        } else {
+            m_spinMotor.setReference(command.spinEncoder, ControlType.kPosition, command.spinFeedforward);
+        }
+        if (command.driveBySpeed) {
+            if (!m_driveBySpeed) {
+                setDrivePID();
+                m_driveBySpeed = true;
+            }
+            m_driveMotor.setReference(command.driveReference, ControlType.kVelocity);
+        } else {
+            if (m_driveBySpeed) {
+                m_driveMotor.setReference(0, ControlType.kVelocity);
+                setDrivePosPID();
+                m_driveBySpeed = false;
+            }
+            m_driveMotor.setReference(command.driveReference, ControlType.kPosition);
         }
-        m_drivePID.setReference(targetTics, ControlType.kPosition);
     }
 }
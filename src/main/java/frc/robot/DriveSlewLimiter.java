@@ -0,0 +1,135 @@
+package frc.robot;
+
+/**
+ * Limits how fast the driver's drive command can change, between the input shaping and the kinematics. A full
+ * stick slam asks the drive motors for full speed instantly, which saturates the drive PID, spikes the current,
+ * slips the wheels (which costs odometry accuracy), and can brown out the robot.
+ * <p>
+ * The translation is limited in field coordinates, so rotating the robot does not change it. There are three
+ * limits, each of which may be turned off by setting it to 0.0:
+ * <ul>
+ *     <li>axis - the forward and strafe components are each limited to change by this rate;</li>
+ *     <li>vector - the change in the translation (the acceleration vector) is limited to this magnitude, so
+ *         the limit is the same in every direction;</li>
+ *     <li>rotation - the rotation is limited to change by this rate.</li>
+ * </ul>
+ * The limits are in normalized command units (0.0 to 1.0 is no speed to full speed) per second. Everything is
+ * a primitive field, so the limiter does not allocate anything.
+ */
+public class DriveSlewLimiter {
+
+    // the longest time between commands that is treated as continuous driving, in seconds. A longer gap is not
+    // an excuse for a bigger change.
+    private static final double MAX_DT = 0.1;
+
+    private double m_axisRate;
+    private double m_vectorRate;
+    private double m_rotationRate;
+
+    // the limited command
+    private double m_forward = 0.0;
+    private double m_strafe = 0.0;
+    private double m_rotation = 0.0;
+    private long m_lastNanos = 0L;
+    private boolean m_started = false;
+
+    /**
+     * Instantiate a limiter.
+     *
+     * @param axisRate     (double) The maximum change of the forward or strafe component, per second, 0.0 for no
+     *                     limit.
+     * @param vectorRate   (double) The maximum magnitude of the change in translation, per second, 0.0 for no
+     *                     limit.
+     * @param rotationRate (double) The maximum change of the rotation, per second, 0.0 for no limit.
+     */
+    public DriveSlewLimiter(double axisRate, double vectorRate, double rotationRate) {
+        setRates(axisRate, vectorRate, rotationRate);
+    }
+
+    /**
+     * Change the limits, normally when the driver changes.
+     *
+     * @param axisRate     (double) The maximum change of the forward or strafe component, per second, 0.0 for no
+     *                     limit.
+     * @param vectorRate   (double) The maximum magnitude of the change in translation, per second, 0.0 for no
+     *                     limit.
+     * @param rotationRate (double) The maximum change of the rotation, per second, 0.0 for no limit.
+     */
+    public void setRates(double axisRate, double vectorRate, double rotationRate) {
+        m_axisRate = axisRate;
+        m_vectorRate = vectorRate;
+        m_rotationRate = rotationRate;
+    }
+
+    /**
+     * Reset the limited command, normally to stopped when driving starts.
+     *
+     * @param forward  (double) The field forward component.
+     * @param strafe   (double) The field strafe component.
+     * @param rotation (double) The rotation.
+     */
+    public void reset(double forward, double strafe, double rotation) {
+        m_forward = forward;
+        m_strafe = strafe;
+        m_rotation = rotation;
+        m_started = false;
+    }
+
+    /**
+     * Limit the change from the last limited command to this command. Get the limited command with
+     * {@link #getForward()}, {@link #getStrafe()}, and {@link #getRotation()}.
+     *
+     * @param forward  (double) The field forward component of the command.
+     * @param strafe   (double) The field strafe component of the command.
+     * @param rotation (double) The rotation of the command.
+     * @param nowNanos (long) The {@link RobotClock#nanoTime()} time of the command.
+     */
+    public void calculate(double forward, double strafe, double rotation, long nowNanos) {
+        double dt = m_started ? Math.min((nowNanos - m_lastNanos) * 1.0e-9, MAX_DT) : 0.0;
+        m_started = true;
+        m_lastNanos = nowNanos;
+
+        double deltaForward = limit(forward - m_forward, m_axisRate * dt, m_axisRate);
+        double deltaStrafe = limit(strafe - m_strafe, m_axisRate * dt, m_axisRate);
+        if (m_vectorRate > 0.0) {
+            double maxChange = m_vectorRate * dt;
+            double change = Math.sqrt((deltaForward * deltaForward) + (deltaStrafe * deltaStrafe));
+            if (change > maxChange) {
+                double scale = maxChange / change;
+                deltaForward *= scale;
+                deltaStrafe *= scale;
+            }
+        }
+        m_forward += deltaForward;
+        m_strafe += deltaStrafe;
+        m_rotation += limit(rotation - m_rotation, m_rotationRate * dt, m_rotationRate);
+    }
+
+    private static double limit(double change, double maxChange, double rate) {
+        if (rate <= 0.0) {
+            return change;
+        }
+        return Math.max(-maxChange, Math.min(change, maxChange));
+    }
+
+    /**
+     * @return The limited field forward component.
+     */
+    public double getForward() {
+        return m_forward;
+    }
+
+    /**
+     * @return The limited field strafe component.
+     */
+    public double getStrafe() {
+        return m_strafe;
+    }
+
+    /**
+     * @return The limited rotation.
+     */
+    public double getRotation() {
+        return m_rotation;
+    }
+}
@@ -0,0 +1,227 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a log file written by the {@link FlightRecorder}. The log file is memory mapped, and records are read
+ * into a reusable {@link Record}, so a whole match can be stepped through without allocating anything per
+ * record. The {@link #main(String...)} method decodes a log file to CSV (run by the {@code decodeFlightLog}
+ * gradle task).
+ */
+public class FlightLog {
+
+    /**
+     * A decoded record, see {@link FlightRecorder} for the fields.
+     */
+    public static class Record {
+        public long timeNanos;
+        public int flags;
+        public double stickY;
+        public double stickX;
+        public double stickTwist;
+        public double navxRawYaw;
+        public double navxHeading;
+        public double fieldX;
+        public double fieldY;
+        public double fieldHeading;
+        public double pathX;
+        public double pathY;
+        public double pathHeading;
+        public final double[] drivePosition;
+        public final double[] driveVelocity;
+        public final double[] spinPosition;
+        public final double[] spinEncoder;
+        public final double[] spinFeedforward;
+        public final double[] driveReference;
+
+        /**
+         * Instantiate a record for a log with this many modules.
+         *
+         * @param moduleCount (int) The number of drive modules.
+         */
+        public Record(int moduleCount) {
+            drivePosition = new double[moduleCount];
+            driveVelocity = new double[moduleCount];
+            spinPosition = new double[moduleCount];
+            spinEncoder = new double[moduleCount];
+            spinFeedforward = new double[moduleCount];
+            driveReference = new double[moduleCount];
+        }
+
+        /**
+         * @return {@code true} if the driver input was set in this loop.
+         */
+        public boolean hasDriverInput() {
+            return 0 != (flags & FlightRecorder.FLAG_DRIVER_INPUT);
+        }
+
+        /**
+         * @return {@code true} if a path point was set in this loop.
+         */
+        public boolean hasPathPoint() {
+            return 0 != (flags & FlightRecorder.FLAG_PATH_POINT);
+        }
+
+        /**
+         * @param module (int) The module index.
+         * @return {@code true} if the module was driving by speed, {@code false} if it was driving to a position.
+         */
+        public boolean isDriveBySpeed(int module) {
+            return 0 != (flags & (FlightRecorder.FLAG_DRIVE_BY_SPEED << module));
+        }
+    }
+
+    private final ByteBuffer m_buffer;
+    private final int m_moduleCount;
+    private final int m_recordBytes;
+    private final int m_count;
+
+    private FlightLog(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < FlightRecorder.HEADER_BYTES || buffer.getInt(0) != FlightRecorder.MAGIC ||
+                buffer.getInt(4) != FlightRecorder.VERSION) {
+            throw new IOException("Not a version " + FlightRecorder.VERSION + " flight log.");
+        }
+        m_moduleCount = buffer.getInt(8);
+        m_recordBytes = buffer.getInt(12);
+        if (m_moduleCount < 0 || m_recordBytes != FlightRecorder.recordBytes(m_moduleCount)) {
+            throw new IOException("The flight log header is corrupt.");
+        }
+        // a partial record at the end is a log that was not closed, ignore it
+        m_count = (buffer.limit() - FlightRecorder.HEADER_BYTES) / m_recordBytes;
+        m_buffer = buffer;
+    }
+
+    /**
+     * Memory map a flight log file.
+     *
+     * @param logFile (Path, not null) The log file.
+     * @return (not null) The flight log.
+     * @throws IOException if the file could not be read, or is not a flight log.
+     */
+    public static FlightLog map(Path logFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            return new FlightLog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return The number of drive modules recorded.
+     */
+    public int getModuleCount() {
+        return m_moduleCount;
+    }
+
+    /**
+     * @return The number of records in the log.
+     */
+    public int getCount() {
+        return m_count;
+    }
+
+    /**
+     * Read a record.
+     *
+     * @param index  (int) The record index, 0 to {@link #getCount()} - 1.
+     * @param record (Record, not null) The record to read into, created for this log's module count.
+     * @throws IndexOutOfBoundsException if the index is not a record in the log.
+     */
+    public void read(int index, Record record) {
+        if (index < 0 || index >= m_count) {
+            throw new IndexOutOfBoundsException("No record " + index + " in the flight log.");
+        }
+        int at = FlightRecorder.HEADER_BYTES + (index * m_recordBytes);
+        record.timeNanos = m_buffer.getLong(at);
+        record.flags = m_buffer.getInt(at + 8);
+        at += 12;
+        record.stickY = m_buffer.getDouble(at);
+        record.stickX = m_buffer.getDouble(at + 8);
+        record.stickTwist = m_buffer.getDouble(at + 16);
+        record.navxRawYaw = m_buffer.getDouble(at + 24);
+        at += 32;
+        record.navxHeading = m_buffer.getFloat(at);
+        record.fieldX = m_buffer.getFloat(at + 4);
+        record.fieldY = m_buffer.getFloat(at + 8);
+        record.fieldHeading = m_buffer.getFloat(at + 12);
+        record.pathX = m_buffer.getFloat(at + 16);
+        record.pathY = m_buffer.getFloat(at + 20);
+        record.pathHeading = m_buffer.getFloat(at + 24);
+        at += 28;
+        for (int i = 0; i < m_moduleCount; i++) {
+            record.drivePosition[i] = m_buffer.getDouble(at);
+            record.driveVelocity[i] = m_buffer.getDouble(at + 8);
+            record.spinPosition[i] = m_buffer.getDouble(at + 16);
+            record.spinEncoder[i] = m_buffer.getFloat(at + 24);
+            record.spinFeedforward[i] = m_buffer.getFloat(at + 28);
+            record.driveReference[i] = m_buffer.getFloat(at + 32);
+            at += FlightRecorder.MODULE_RECORD_BYTES;
+        }
+    }
+
+    /**
+     * Write the log as CSV, one line per record, with the time in seconds from the first record.
+     *
+     * @param out (PrintStream, not null) The stream to write to.
+     */
+    public void writeCsv(PrintStream out) {
+        StringBuilder line = new StringBuilder("time,flags,stickY,stickX,stickTwist,navxRawYaw,navxHeading," +
+                "fieldX,fieldY,fieldHeading,pathX,pathY,pathHeading");
+        for (int i = 0; i < m_moduleCount; i++) {
+            line.append(String.format(",drivePosition%d,driveVelocity%d,spinPosition%d,spinEncoder%d," +
+                    "spinFeedforward%d,driveReference%d,driveBySpeed%d", i, i, i, i, i, i, i));
+        }
+        out.println(line);
+        Record record = new Record(m_moduleCount);
+        long startNanos = 0L;
+        for (int n = 0; n < m_count; n++) {
+            read(n, record);
+            if (0 == n) {
+                startNanos = record.timeNanos;
+            }
+            line.setLength(0);
+            line.append((record.timeNanos - startNanos) * 1.0e-9).append(',').append(record.flags)
+                    .append(',').append(record.stickY).append(',').append(record.stickX)
+                    .append(',').append(record.stickTwist).append(',').append(record.navxRawYaw)
+                    .append(',').append(record.navxHeading).append(',').append(record.fieldX)
+                    .append(',').append(record.fieldY).append(',').append(record.fieldHeading)
+                    .append(',').append(record.pathX).append(',').append(record.pathY)
+                    .append(',').append(record.pathHeading);
+            for (int i = 0; i < m_moduleCount; i++) {
+                line.append(',').append(record.drivePosition[i]).append(',').append(record.driveVelocity[i])
+                        .append(',').append(record.spinPosition[i]).append(',').append(record.spinEncoder[i])
+                        .append(',').append(record.spinFeedforward[i]).append(',').append(record.driveReference[i])
+                        .append(',').append(record.isDriveBySpeed(i) ? 1 : 0);
+            }
+            out.println(line);
+        }
+    }
+
+    /**
+     * Decode a flight log to CSV, written to standard out, or to a file if one is given.
+     *
+     * @param args The log file, and optionally the CSV file.
+     * @throws IOException if the log could not be read or the CSV could not be written.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: FlightLog <log file> [<csv file>]");
+            return;
+        }
+        FlightLog log = map(Paths.get(args[0]));
+        if (args.length > 1) {
+            try (PrintStream out = new PrintStream(args[1])) {
+                log.writeCsv(out);
+            }
+            System.out.println(String.format("%d records  %s", log.getCount(), args[1]));
+        } else {
+            log.writeCsv(System.out);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+
+/**
+ * Records what the drive did, once per robot loop, into a log file we can decode after the match (see
+ * {@link FlightLog}). Each loop is one fixed layout binary record, appended to a preallocated direct buffer. When
+ * the buffer is full it is handed to a background thread that writes it to the file with a {@link FileChannel},
+ * and recording continues into a second buffer. Recording never waits for the file: if the background thread is
+ * still writing the other buffer when the recording buffer fills, records are dropped (and counted) until it is
+ * done. The buffers are large, so the flash is written in a few large writes rather than a small write every
+ * loop.
+ * <p>
+ * The log file is little endian: a header of a magic number, a format version, the module count, and the record
+ * size (all ints), followed by the records. A record is:
+ * <ul>
+ *     <li>the {@link RobotClock#nanoTime()} time (long);</li>
+ *     <li>flags (int) - {@link #FLAG_DRIVER_INPUT} if the driver input was set this loop,
+ *         {@link #FLAG_PATH_POINT} if a path point was set this loop, and {@link #FLAG_DRIVE_BY_SPEED} shifted
+ *         left by the module index for each module driving by speed;</li>
+ *     <li>the driver stick Y, stick X, and twist (doubles);</li>
+ *     <li>the NavX raw yaw in degrees (double) and the NavX heading in radians (float);</li>
+ *     <li>the odometry field X, field Y, and heading (floats);</li>
+ *     <li>the path field X, field Y, and heading (floats);</li>
+ *     <li>for each module, in kinematics module order: the sampled drive position, drive velocity, and spin
+ *         position (doubles), then the spin encoder setpoint, spin feed-forward, and drive reference
+ *         (floats).</li>
+ * </ul>
+ * The inputs (sticks, NavX yaw, and encoders) are doubles, so they can be replayed exactly; the computed values
+ * are floats to keep the records small.
+ * <p>
+ * The driver input and path point are set by the commands during the loop, and {@link #record(long, double,
+ * double, double)} is called once after the command scheduler has run, on the robot loop thread.
+ * <p>
+ * A log file is never overwritten. On the robot the log files are numbered in sequence (see
+ * {@link #nextLogFile(Path, int)}) rather than named by date, because the roboRIO clock is not set until the driver
+ * station connects, and the oldest logs are deleted so the logs cannot fill the flash.
+ */
+public class FlightRecorder {
+
+    static final int MAGIC = 0x41303546; // "A05F"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    // the bytes in a record before the modules, and for each module
+    static final int FIXED_RECORD_BYTES = Long.BYTES + Integer.BYTES + (4 * Double.BYTES) + (7 * Float.BYTES);
+    static final int MODULE_RECORD_BYTES = (3 * Double.BYTES) + (3 * Float.BYTES);
+
+    /**
+     * The log file name prefix, followed by the log sequence number.
+     */
+    public static final String LOG_PREFIX = "drive-";
+    /**
+     * The log file extension.
+     */
+    public static final String LOG_EXTENSION = ".log";
+
+    /**
+     * The record flag set if the driver input was set in the loop.
+     */
+    public static final int FLAG_DRIVER_INPUT = 0x01;
+    /**
+     * The record flag set if a path point was set in the loop.
+     */
+    public static final int FLAG_PATH_POINT = 0x02;
+    /**
+     * The record flag for module 0 driving by speed, shifted left by the module index for the other modules.
+     */
+    public static final int FLAG_DRIVE_BY_SPEED = 0x100;
+
+    private final DriveModule[] m_modules;
+    private final NavX m_navx;
+    private final NavX.Sample m_navxSample = new NavX.Sample();
+    private final int m_recordBytes;
+
+    // the buffer being recorded into, owned by the robot loop thread, and the buffer being written to the file,
+    // owned by the writer thread while m_writeRequested is set. m_writeRequested is guarded by m_lock.
+    private ByteBuffer m_recording;
+    private ByteBuffer m_writing;
+    private boolean m_writeRequested = false;
+    private final Object m_lock = new Object();
+
+    private FileChannel m_channel = null;
+    private Thread m_thread = null;
+    private volatile boolean m_running = false;
+    // the bytes recorded to the log file so far, and the most it may hold, owned by the robot loop thread
+    private long m_logBytes = 0L;
+    private long m_maxLogBytes = Long.MAX_VALUE;
+
+    // this loop's driver input and path point
+    private int m_flags = 0;
+    private double m_stickY = 0.0;
+    private double m_stickX = 0.0;
+    private double m_stickTwist = 0.0;
+    private double m_pathX = 0.0;
+    private double m_pathY = 0.0;
+    private double m_pathHeading = 0.0;
+
+    // statistics
+    private volatile long m_records = 0;
+    private volatile long m_dropped = 0;
+    private volatile long m_bytesWritten = 0;
+
+    /**
+     * Instantiate a flight recorder. Nothing is recorded until the recorder is started (see {@link #start(Path)}).
+     *
+     * @param modules     (DriveModule[], not null) The drive modules, in kinematics module order.
+     * @param navx        (NavX, not null) The NavX.
+     * @param bufferBytes (int) The size of each of the two record buffers, in bytes.
+     * @throws IllegalArgumentException if the buffers cannot hold a record, or there are too many modules to
+     *                                  flag.
+     */
+    public FlightRecorder(DriveModule[] modules, NavX navx, int bufferBytes) {
+        if (modules.length > 24) {
+            throw new IllegalArgumentException("The flight recorder can record at most 24 modules.");
+        }
+        m_modules = modules;
+        m_navx = navx;
+        m_recordBytes = recordBytes(modules.length);
+        if (bufferBytes < m_recordBytes) {
+            throw new IllegalArgumentException("The flight recorder buffer must hold at least one record.");
+        }
+        m_recording = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+        m_writing = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get the size of a record.
+     *
+     * @param moduleCount (int) The number of drive modules.
+     * @return The record size, in bytes.
+     */
+    static int recordBytes(int moduleCount) {
+        return FIXED_RECORD_BYTES + (moduleCount * MODULE_RECORD_BYTES);
+    }
+
+    /**
+     * Get the next log file in a log directory, and delete the oldest logs so there are fewer than
+     * {@code maxLogs} logs in the directory. Log files are named {@link #LOG_PREFIX}, the sequence number, then
+     * {@link #LOG_EXTENSION}; the next log is numbered one more than the newest log in the directory. Other files
+     * in the directory are left alone. The directory is created if it does not exist.
+     *
+     * @param directory (Path, not null) The log directory.
+     * @param maxLogs   (int) The most logs to keep in the directory, including the next log.
+     * @return (not null) The next log file, which does not exist yet.
+     * @throws IOException if the directory could not be read, or an old log could not be deleted.
+     * @throws IllegalArgumentException if {@code maxLogs} is less than 1.
+     */
+    public static Path nextLogFile(Path directory, int maxLogs) throws IOException {
+        if (maxLogs < 1) {
+            throw new IllegalArgumentException("At least one log must be kept.");
+        }
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> logs = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                LOG_PREFIX + "*" + LOG_EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    logs.put(Integer.parseInt(name.substring(LOG_PREFIX.length(),
+                            name.length() - LOG_EXTENSION.length())), file);
+                } catch (NumberFormatException e) {
+                    // not a numbered log, leave it alone
+                }
+            }
+        }
+        int sequence = logs.isEmpty() ? 1 : logs.lastKey() + 1;
+        while (logs.size() >= maxLogs) {
+            Files.deleteIfExists(logs.pollFirstEntry().getValue());
+        }
+        return directory.resolve(String.format("%s%05d%s", LOG_PREFIX, sequence, LOG_EXTENSION));
+    }
+
+    /**
+     * Start recording to a new log file, with no limit on the size of the log file. See
+     * {@link #start(Path, long)}.
+     *
+     * @param logFile (Path, not null) The log file, which must not already exist.
+     * @throws IOException if the log file could not be created, or already exists.
+     */
+    public void start(Path logFile) throws IOException {
+        start(logFile, Long.MAX_VALUE);
+    }
+
+    /**
+     * Start recording to a new log file. The directory is created if it does not exist. The log file is never
+     * overwritten - it must not already exist. This does nothing if the recorder is already recording.
+     *
+     * @param logFile     (Path, not null) The log file, which must not already exist.
+     * @param maxLogBytes (long) The most bytes the log file may hold. Once it is full, records are dropped (see
+     *                    {@link #getDroppedCount()}).
+     * @throws IOException if the log file could not be created, or already exists.
+     */
+    public synchronized void start(Path logFile, long maxLogBytes) throws IOException {
+        if (null != m_thread) {
+            return;
+        }
+        Path directory = logFile.toAbsolutePath().getParent();
+        if (null != directory) {
+            Files.createDirectories(directory);
+        }
+        m_channel = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        m_recording.clear();
+        m_recording.putInt(MAGIC).putInt(VERSION).putInt(m_modules.length).putInt(m_recordBytes);
+        m_logBytes = HEADER_BYTES;
+        m_maxLogBytes = maxLogBytes;
+        m_writeRequested = false;
+        m_running = true;
+        m_thread = new Thread(this::run, "flight-recorder");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stop recording, write everything recorded to the log file, and close it. This waits for the file to be
+     * written, so it should not be called during a match. Like recording, this must be called on the robot loop
+     * thread.
+     */
+    public synchronized void stop() {
+        if (null == m_thread) {
+            return;
+        }
+        synchronized (m_lock) {
+            while (m_writeRequested && m_running) {
+                try {
+                    m_lock.wait();
+                } catch (InterruptedException e) {
+                    //  If this is interrupted it is because the robot is being shut down - that is OK
+                    break;
+                }
+            }
+            handOff();
+            m_running = false;
+            m_lock.notify();
+        }
+        try {
+            m_thread.join();
+        } catch (InterruptedException e) {
+            //  If this is interrupted it is because the robot is being shut down - that is OK
+        }
+        m_thread = null;
+    }
+
+    /**
+     * Hand what has been recorded to the writer thread now, rather than when the buffer is full, so it is in the
+     * log file if the robot is turned off. This does not wait for the file, and does nothing if the writer thread
+     * is still writing the last buffer - then the flush must be tried again later. This is normally called when
+     * the robot is disabled, and must be called on the robot loop thread.
+     *
+     * @return {@code false} if the writer thread is still writing the last buffer, so nothing was handed off;
+     *     {@code true} if the recorded records were handed to the writer thread, or there is nothing to hand off.
+     */
+    public boolean flush() {
+        if (!m_running) {
+            return true;
+        }
+        synchronized (m_lock) {
+            return (0 == m_recording.position()) || handOff();
+        }
+    }
+
+    /**
+     * Swap the buffers and wake the writer thread, if the writer thread is not writing. Called holding m_lock.
+     */
+    private boolean handOff() {
+        if (m_writeRequested || (0 == m_recording.position())) {
+            return false;
+        }
+        ByteBuffer swap = m_writing;
+        m_writing = m_recording;
+        m_recording = swap;
+        m_writing.flip();
+        m_recording.clear();
+        m_writeRequested = true;
+        m_lock.notify();
+        return true;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                synchronized (m_lock) {
+                    while (!m_writeRequested && m_running) {
+                        m_lock.wait();
+                    }
+                    if (!m_writeRequested) {
+                        return;
+                    }
+                }
+                // the buffer is only written outside the lock, so recording is never waiting on the file
+                int bytes = m_writing.remaining();
+                while (m_writing.hasRemaining()) {
+                    m_channel.write(m_writing);
+                }
+                m_bytesWritten += bytes;
+                synchronized (m_lock) {
+                    m_writeRequested = false;
+                    m_lock.notifyAll();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            m_running = false;
+            synchronized (m_lock) {
+                m_lock.notifyAll();
+            }
+        } finally {
+            try {
+                m_channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Set the driver input for this loop.
+     *
+     * @param stickY     (double) The stick Y, positive is forward.
+     * @param stickX     (double) The stick X, positive is right.
+     * @param stickTwist (double) The stick twist, positive is clockwise.
+     */
+    public void setDriverInput(double stickY, double stickX, double stickTwist) {
+        m_stickY = stickY;
+        m_stickX = stickX;
+        m_stickTwist = stickTwist;
+        m_flags |= FLAG_DRIVER_INPUT;
+    }
+
+    /**
+     * Set the path point being followed in this loop.
+     *
+     * @param fieldX       (double) The path field X, in meters.
+     * @param fieldY       (double) The path field Y, in meters.
+     * @param fieldHeading (double) The path field heading, in radians.
+     */
+    public void setPathPoint(double fieldX, double fieldY, double fieldHeading) {
+        m_pathX = fieldX;
+        m_pathY = fieldY;
+        m_pathHeading = fieldHeading;
+        m_flags |= FLAG_PATH_POINT;
+    }
+
+    /**
+     * Record this loop. This never waits - if there is no room for the record, in the buffer or the log file, it
+     * is dropped (see {@link #getDroppedCount()}).
+     *
+     * @param timeNanos    (long) The {@link RobotClock#nanoTime()} time of the record.
+     * @param fieldX       (double) The odometry field X, in meters.
+     * @param fieldY       (double) The odometry field Y, in meters.
+     * @param fieldHeading (double) The odometry field heading, in radians.
+     */
+    public void record(long timeNanos, double fieldX, double fieldY, double fieldHeading) {
+        int flags = m_flags;
+        m_flags = 0;
+        if (!m_running) {
+            return;
+        }
+        if (m_logBytes + m_recordBytes > m_maxLogBytes) {
+            m_dropped++;
+            return;
+        }
+        if (m_recording.remaining() < m_recordBytes) {
+            boolean handedOff;
+            synchronized (m_lock) {
+                handedOff = handOff();
+            }
+            if (!handedOff) {
+                m_dropped++;
+                return;
+            }
+        }
+        for (int i = 0; i < m_modules.length; i++) {
+            if (m_modules[i].getPendingCommand().driveBySpeed) {
+                flags |= FLAG_DRIVE_BY_SPEED << i;
+            }
+        }
+        NavX.Sample sample = m_navxSample;
+        m_navx.getSample(sample);
+        ByteBuffer buffer = m_recording;
+        buffer.putLong(timeNanos).putInt(flags);
+        buffer.putDouble(m_stickY).putDouble(m_stickX).putDouble(m_stickTwist);
+        buffer.putDouble(sample.rawYaw).putFloat((float) sample.heading);
+        buffer.putFloat((float) fieldX).putFloat((float) fieldY).putFloat((float) fieldHeading);
+        buffer.putFloat((float) m_pathX).putFloat((float) m_pathY).putFloat((float) m_pathHeading);
+        for (DriveModule module : m_modules) {
+            DriveModule.Command command = module.getPendingCommand();
+            buffer.putDouble(module.getSampledDrivePosition()).putDouble(module.getSampledDriveVelocity())
+                    .putDouble(module.getSampledSpinPosition());
+            buffer.putFloat((float) command.spinEncoder).putFloat((float) command.spinFeedforward)
+                    .putFloat((float) command.driveReference);
+        }
+        m_logBytes += m_recordBytes;
+        m_records++;
+    }
+
+    /**
+     * @return {@code true} if the recorder is recording, {@code false} if it has not been started, has been
+     *     stopped, or could not write the log file.
+     */
+    public boolean isRecording() {
+        return m_running;
+    }
+
+    /**
+     * @return The number of records recorded.
+     */
+    public long getRecordCount() {
+        return m_records;
+    }
+
+    /**
+     * @return The number of records dropped because the writer thread had not finished writing, or the log file
+     *     was full.
+     */
+    public long getDroppedCount() {
+        return m_dropped;
+    }
+
+    /**
+     * @return The number of bytes written to the log file.
+     */
+    public long getBytesWritten() {
+        return m_bytesWritten;
+    }
+}
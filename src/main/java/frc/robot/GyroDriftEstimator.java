@@ -0,0 +1,141 @@
+package frc.robot;
+
+/**
+ * Estimates and removes the NavX yaw drift. The NavX yaw is referenced once, when the heading is initialized,
+ * and the gyro drifts slowly after that, so over a long practice session the heading error accumulates.
+ * <p>
+ * Whenever the drive modules report they are not moving, the robot is not turning, so any change in heading is
+ * drift. After the robot has settled, the heading change over each drift window is removed from the heading,
+ * and the drift rate estimate is moved towards the drift rate measured in the window. The drift rate estimate is
+ * applied to the heading continuously, moving or not, so the heading stays accurate between stationary periods.
+ * <p>
+ * This class is not thread safe - it should be updated once per command cycle on the command scheduler thread.
+ */
+public class GyroDriftEstimator {
+
+    private final DriveModule[] m_modules;
+    private final NavX m_navx;
+
+    // the drift estimate and the correction applied to the NavX heading
+    private double m_driftRate = 0.0;
+    private double m_correction = 0.0;
+    private double m_appliedCorrection = 0.0;
+    private long m_lastNanos = 0L;
+    private boolean m_started = false;
+    private long m_windows = 0;
+
+    // stationary state
+    private boolean m_stationary = false;
+    private long m_stationarySinceNanos = 0L;
+    private boolean m_inWindow = false;
+    private long m_windowStartNanos = 0L;
+    private double m_windowStartHeading = 0.0;
+    private int m_windowReferenceCt = 0;
+
+    /**
+     * Instantiate the drift estimator.
+     *
+     * @param modules (DriveModule[], not null) The drive modules. The sampled drive velocities are used to tell
+     *                whether the robot is stationary (see {@link DriveModule#sampleSensors()}).
+     * @param navx    (NavX, not null) The NavX.
+     */
+    public GyroDriftEstimator(DriveModule[] modules, NavX navx) {
+        m_modules = modules;
+        m_navx = navx;
+    }
+
+    /**
+     * Update the drift estimate and the NavX heading correction.
+     *
+     * @param nowNanos (long) The current {@link RobotClock#nanoTime()} time.
+     */
+    public void update(long nowNanos) {
+        if (!m_navx.isReady()) {
+            // the heading is not from the NavX, there is no NavX drift to estimate
+            m_stationary = false;
+            m_started = false;
+            return;
+        }
+        if (m_started) {
+            m_correction += m_driftRate * (nowNanos - m_lastNanos) * 1.0e-9;
+        }
+        m_started = true;
+        m_lastNanos = nowNanos;
+
+        if (!isModulesStationary()) {
+            m_stationary = false;
+        } else if (!m_stationary) {
+            m_stationary = true;
+            m_stationarySinceNanos = nowNanos;
+            m_inWindow = false;
+        } else if (!m_inWindow) {
+            if ((nowNanos - m_stationarySinceNanos) * 1.0e-9 >= Constants.STATIONARY_SETTLE_TIME) {
+                startWindow(nowNanos, m_navx.getHeading());
+            }
+        } else {
+            double window = (nowNanos - m_windowStartNanos) * 1.0e-9;
+            if (window >= Constants.DRIFT_WINDOW) {
+                double heading = m_navx.getHeading();
+                double drift = heading - m_windowStartHeading;
+                if ((m_navx.getReferenceCount() == m_windowReferenceCt) &&
+                        (Math.abs(drift / window) <= Constants.MAX_DRIFT_RATE)) {
+                    // the heading should not have changed, remove the drift and improve the drift estimate
+                    m_correction += drift;
+                    m_driftRate += Constants.DRIFT_GAIN * (drift / window);
+                    m_windows++;
+                    heading -= drift;
+                }
+                startWindow(nowNanos, heading);
+            }
+        }
+        if (m_correction != m_appliedCorrection) {
+            m_navx.setHeadingCorrection(m_correction);
+            m_appliedCorrection = m_correction;
+        }
+    }
+
+    private void startWindow(long nowNanos, double heading) {
+        m_inWindow = true;
+        m_windowStartNanos = nowNanos;
+        m_windowStartHeading = heading;
+        m_windowReferenceCt = m_navx.getReferenceCount();
+    }
+
+    private boolean isModulesStationary() {
+        for (DriveModule module : m_modules) {
+            if (Math.abs(module.getSampledDriveVelocity()) > Constants.STATIONARY_DRIVE_VELOCITY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The estimated gyro drift rate, in radians/sec, positive is clockwise.
+     */
+    public double getDriftRate() {
+        return m_driftRate;
+    }
+
+    /**
+     * @return The total drift correction applied to the NavX heading, in radians.
+     */
+    public double getCorrection() {
+        return m_correction;
+    }
+
+    /**
+     * @return {@code true} if the drive modules reported the robot was stationary at the last update,
+     *     {@code false} otherwise.
+     */
+    public boolean isStationary() {
+        return m_stationary;
+    }
+
+    /**
+     * @return The number of stationary drift windows used to estimate the drift.
+     */
+    public long getWindowCount() {
+        return m_windows;
+    }
+}
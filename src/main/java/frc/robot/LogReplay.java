@@ -0,0 +1,298 @@
+package frc.robot;
+
+import frc.robot.commands.DriveCommandXbox;
+import frc.robot.commands.FollowPathCommand;
+import frc.robot.hardware.IDriverSticks;
+import frc.robot.sim.ReplayGyro;
+import frc.robot.sim.ReplayMotorController;
+import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.SwerveOdometry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Replays a match recorded by the {@link FlightRecorder} through the drive code on a desktop JVM. The recorded
+ * inputs - the driver sticks, the NavX yaw, and the module encoders - are fed to a {@link DriveSubsystem} built
+ * on replay hardware (see {@link ReplayMotorController} and {@link ReplayGyro}), the {@link RobotClock} is set to
+ * the recorded time of each loop, and each loop runs the drive subsystem {@code periodic()} and then either the
+ * {@link DriveCommandXbox} (a loop with driver input) or the {@link FollowPathCommand} (a loop with a path point,
+ * if a path is given). The drive outputs - the module commands and the odometry pose - are compared with the
+ * recorded outputs, and may be recorded to a new log.
+ * <p>
+ * The replay does not depend on the wall clock or the speed of the computer, so replaying the same log through
+ * the same code regenerates the same outputs bit-for-bit, and the replay runs as fast as the control code can.
+ * Replaying a log through changed code shows the effect of the change on that exact run. The replayed outputs
+ * will not exactly match the outputs recorded on the robot where the robot computed them on other threads (the
+ * odometry and NavX sampling threads) or at other times within the loop - the replay runs everything on one
+ * thread at the recorded loop time - and the comparison shows how large that difference is.
+ * <p>
+ * The {@link #main(String...)} method replays a log file (run by the {@code replayFlightLog} gradle task).
+ */
+public class LogReplay {
+
+    /**
+     * The sticks recorded in the log.
+     */
+    private static class RecordedSticks implements IDriverSticks {
+        private double m_stickY = 0.0;
+        private double m_stickX = 0.0;
+        private double m_stickTwist = 0.0;
+
+        @Override
+        public double getStickY() {
+            return m_stickY;
+        }
+
+        @Override
+        public double getStickX() {
+            return m_stickX;
+        }
+
+        @Override
+        public double getStickTwist() {
+            return m_stickTwist;
+        }
+    }
+
+    private final FlightLog m_log;
+    private final PathTable m_pathTable;
+
+    // the comparison of the replayed outputs with the recorded outputs
+    private int m_loops = 0;
+    private int m_mismatchedLoops = 0;
+    private double m_maxSpinEncoderError = 0.0;
+    private double m_maxDriveReferenceError = 0.0;
+    private double m_maxPoseError = 0.0;
+    private long m_elapsedNanos = 0L;
+
+    /**
+     * Instantiate a replay of a flight log.
+     *
+     * @param log       (FlightLog, not null) The flight log.
+     * @param pathTable (PathTable) The path followed in the loops with a path point, {@code null} if those loops
+     *                  should not be replayed.
+     */
+    public LogReplay(FlightLog log, PathTable pathTable) {
+        m_log = log;
+        m_pathTable = pathTable;
+    }
+
+    /**
+     * Replay the log. The {@link RobotClock} is left using virtual time, at the time of the last record.
+     *
+     * @param outputLog (Path) The log to record the replayed outputs to, {@code null} if they should not be
+     *                  recorded. An existing file is replaced.
+     * @throws IOException if the output log could not be written.
+     * @throws IllegalArgumentException if the log has no records, or its module count does not match the
+     *                                  kinematics.
+     */
+    public void replay(Path outputLog) throws IOException {
+        if (0 == m_log.getCount()) {
+            throw new IllegalArgumentException("The flight log has no records.");
+        }
+        int moduleCount = m_log.getModuleCount();
+        FlightLog.Record record = new FlightLog.Record(moduleCount);
+        m_log.read(0, record);
+        RobotClock.useVirtualTime(record.timeNanos);
+
+        // the replay hardware and the drive code
+        ReplayGyro gyro = new ReplayGyro();
+        gyro.setRecorded(record.navxRawYaw);
+        NavX navx = new NavX(gyro, Constants.NAVX_INIT_TIMEOUT, 0.0);
+        ReplayMotorController[] driveMotors = new ReplayMotorController[moduleCount];
+        ReplayMotorController[] spinMotors = new ReplayMotorController[moduleCount];
+        DriveModule[] modules = new DriveModule[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            driveMotors[i] = new ReplayMotorController();
+            spinMotors[i] = new ReplayMotorController();
+            driveMotors[i].setRecorded(record.drivePosition[i], record.driveVelocity[i]);
+            spinMotors[i].setRecorded(record.spinPosition[i], 0.0);
+            modules[i] = new DriveModule(driveMotors[i], spinMotors[i], () -> 0.0, 0.0);
+        }
+        DriveSubsystem driveSubsystem = new DriveSubsystem(modules,
+                new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH), navx);
+        driveSubsystem.setFieldPosition(record.fieldX, record.fieldY, record.fieldHeading);
+        RecordedSticks sticks = new RecordedSticks();
+        DriveCommandXbox driveCommand = new DriveCommandXbox(sticks, driveSubsystem);
+        FollowPathCommand pathCommand = (null == m_pathTable) ? null :
+                new FollowPathCommand(m_pathTable, driveSubsystem);
+
+        FlightRecorder recorder = null;
+        if (null != outputLog) {
+            // the whole replay fits in the buffer, so nothing is written (or dropped) until the replay stops
+            recorder = new FlightRecorder(modules, navx,
+                    FlightRecorder.HEADER_BYTES + (m_log.getCount() * FlightRecorder.recordBytes(moduleCount)));
+            // the recorder never overwrites a log, but the output of a replay is replaced
+            Files.deleteIfExists(outputLog);
+            recorder.start(outputLog);
+        }
+
+        m_loops = 0;
+        m_mismatchedLoops = 0;
+        m_maxSpinEncoderError = 0.0;
+        m_maxDriveReferenceError = 0.0;
+        m_maxPoseError = 0.0;
+        boolean driving = false;
+        boolean following = false;
+        long start = System.nanoTime();
+        for (int n = 0; n < m_log.getCount(); n++) {
+            m_log.read(n, record);
+            RobotClock.setVirtualTime(record.timeNanos);
+            gyro.setRecorded(record.navxRawYaw);
+            for (int i = 0; i < moduleCount; i++) {
+                driveMotors[i].setRecorded(record.drivePosition[i], record.driveVelocity[i]);
+                spinMotors[i].setRecorded(record.spinPosition[i], 0.0);
+            }
+
+            driveSubsystem.periodic();
+            if (record.hasPathPoint() && (null != pathCommand)) {
+                if (!following) {
+                    pathCommand.initialize();
+                    following = true;
+                }
+                pathCommand.execute();
+                driving = false;
+            } else if (record.hasDriverInput()) {
+                if (!driving) {
+                    driveCommand.initialize();
+                    driving = true;
+                }
+                sticks.m_stickY = record.stickY;
+                sticks.m_stickX = record.stickX;
+                sticks.m_stickTwist = record.stickTwist;
+                driveCommand.execute();
+                following = false;
+            } else {
+                // nothing was driving in this loop, the recorded module commands are the last commands
+                driving = false;
+                following = false;
+            }
+
+            compare(record, modules, driveSubsystem);
+            if (null != recorder) {
+                if (record.hasDriverInput()) {
+                    recorder.setDriverInput(record.stickY, record.stickX, record.stickTwist);
+                }
+                if (following) {
+                    recorder.setPathPoint(m_pathTable.getFieldX(), m_pathTable.getFieldY(),
+                            m_pathTable.getFieldHeading());
+                }
+                SwerveOdometry.Pose pose = driveSubsystem.getPose();
+                recorder.record(record.timeNanos, pose.fieldX, pose.fieldY, pose.heading);
+            }
+            m_loops++;
+        }
+        m_elapsedNanos = System.nanoTime() - start;
+        if (null != recorder) {
+            recorder.stop();
+        }
+    }
+
+    /**
+     * Compare the replayed outputs of a loop with the recorded outputs. The recorded outputs are floats, so the
+     * replayed outputs are compared as floats.
+     */
+    private void compare(FlightLog.Record record, DriveModule[] modules, DriveSubsystem driveSubsystem) {
+        boolean mismatched = false;
+        for (int i = 0; i < modules.length; i++) {
+            DriveModule.Command command = modules[i].getPendingCommand();
+            double spinError = Math.abs((float) command.spinEncoder - record.spinEncoder[i]);
+            double driveError = Math.abs((float) command.driveReference - record.driveReference[i]);
+            if ((0.0 != spinError) || (0.0 != driveError) ||
+                    ((float) command.spinFeedforward != record.spinFeedforward[i]) ||
+                    (command.driveBySpeed != record.isDriveBySpeed(i))) {
+                mismatched = true;
+            }
+            m_maxSpinEncoderError = Math.max(m_maxSpinEncoderError, spinError);
+            m_maxDriveReferenceError = Math.max(m_maxDriveReferenceError, driveError);
+        }
+        SwerveOdometry.Pose pose = driveSubsystem.getPose();
+        double poseError = Math.max(Math.abs((float) pose.fieldX - record.fieldX),
+                Math.abs((float) pose.fieldY - record.fieldY));
+        if (0.0 != poseError) {
+            mismatched = true;
+        }
+        m_maxPoseError = Math.max(m_maxPoseError, poseError);
+        if (mismatched) {
+            m_mismatchedLoops++;
+        }
+    }
+
+    /**
+     * @return The number of loops replayed.
+     */
+    public int getLoopCount() {
+        return m_loops;
+    }
+
+    /**
+     * @return The number of replayed loops where any output did not exactly match the recorded output.
+     */
+    public int getMismatchedLoopCount() {
+        return m_mismatchedLoops;
+    }
+
+    /**
+     * @return The largest difference between a replayed and recorded module spin encoder setpoint.
+     */
+    public double getMaxSpinEncoderError() {
+        return m_maxSpinEncoderError;
+    }
+
+    /**
+     * @return The largest difference between a replayed and recorded module drive reference.
+     */
+    public double getMaxDriveReferenceError() {
+        return m_maxDriveReferenceError;
+    }
+
+    /**
+     * @return The largest difference between the replayed and recorded odometry field X or Y, in meters.
+     */
+    public double getMaxPoseError() {
+        return m_maxPoseError;
+    }
+
+    /**
+     * @return The wall clock time the replay took, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return m_elapsedNanos;
+    }
+
+    /**
+     * Replay a flight log, and print the comparison with the recorded outputs and the replay speed.
+     *
+     * @param args The log file, optionally the path file (or compiled path table) followed in the autonomous
+     *             loops, and optionally the log file to record the replayed outputs to.
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: LogReplay <log file> [<path file> [<output log file>]]");
+            return;
+        }
+        FlightLog log = FlightLog.map(Paths.get(args[0]));
+        PathTable pathTable = null;
+        if ((args.length > 1) && !args[1].isEmpty()) {
+            Path pathFile = Paths.get(args[1]);
+            pathTable = pathFile.toString().endsWith(PathTable.TABLE_EXTENSION) ? PathTable.map(pathFile) :
+                    PathTable.load(pathFile, Constants.PATH_TABLE_DT);
+            if (null == pathTable) {
+                System.out.println("Could not load the path: " + pathFile);
+                return;
+            }
+        }
+        LogReplay replay = new LogReplay(log, pathTable);
+        replay.replay(((args.length > 2) && !args[2].isEmpty()) ? Paths.get(args[2]) : null);
+        System.out.println(String.format("%d loops replayed, %d did not match the recorded outputs",
+                replay.getLoopCount(), replay.getMismatchedLoopCount()));
+        System.out.println(String.format("max error: spin setpoint %.6f, drive reference %.6f, pose %.6f m",
+                replay.getMaxSpinEncoderError(), replay.getMaxDriveReferenceError(), replay.getMaxPoseError()));
+        System.out.println(String.format("%.0f loops/sec",
+                replay.getLoopCount() / Math.max(replay.getElapsedNanos() * 1.0e-9, 1.0e-9)));
+    }
+}
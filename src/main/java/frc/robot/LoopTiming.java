@@ -0,0 +1,190 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Times the stages of the robot loop so we can see which stage uses the 20ms command cycle. Each stage (the
+ * command scheduler run, a subsystem {@code periodic()}, a command {@code execute()}, a NavX sample, a module
+ * dispatch, ...) is a named {@link Stage}, created once when the code that runs the stage is created, and timed
+ * with {@link System#nanoTime()} spans:
+ * <pre>
+ *     long start = System.nanoTime();
+ *     // ... the stage ...
+ *     m_stage.end(start);
+ * </pre>
+ * The durations are counted in a {@link TimingHistogram}, so timing a stage does not allocate anything. Every
+ * {@link Constants#LOOP_TIMING_REPORT_PERIOD} seconds {@link #report(long)} publishes the median, 99th percentile,
+ * and maximum duration of every stage over the report period to the SmartDashboard, as
+ * {@code Timing/<stage>/p50}, {@code Timing/<stage>/p99}, and {@code Timing/<stage>/max}, in milliseconds.
+ * <p>
+ * Stages may be timed on any thread.
+ */
+public class LoopTiming {
+
+    // The maximum number of stages, so the stages are a preallocated array.
+    private static final int MAX_STAGES = 32;
+
+    /**
+     * A timed stage of the robot loop.
+     */
+    public static class Stage {
+        private final String m_name;
+        private final String m_p50Key;
+        private final String m_p99Key;
+        private final String m_maxKey;
+        private final String m_countKey;
+        // the durations recorded since the last report, guarded by this stage
+        private final TimingHistogram m_recording = new TimingHistogram();
+        // the durations in the last report period, only used by the reporting thread
+        private final TimingHistogram m_report = new TimingHistogram();
+
+        Stage(String name) {
+            m_name = name;
+            m_p50Key = "Timing/" + name + "/p50";
+            m_p99Key = "Timing/" + name + "/p99";
+            m_maxKey = "Timing/" + name + "/max";
+            m_countKey = "Timing/" + name + "/count";
+        }
+
+        /**
+         * End a span of this stage that started at {@code startNanos}.
+         *
+         * @param startNanos (long) The {@link System#nanoTime()} time the stage started.
+         */
+        public void end(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Record a duration of this stage.
+         *
+         * @param nanos (long) The duration, in nanoseconds.
+         */
+        public synchronized void record(long nanos) {
+            if (Constants.USE_LOOP_TIMING) {
+                m_recording.record(nanos);
+            }
+        }
+
+        /**
+         * Move the durations recorded since the last report into the report histogram.
+         */
+        void roll() {
+            synchronized (this) {
+                m_report.copy(m_recording);
+                m_recording.reset();
+            }
+        }
+
+        /**
+         * @return The name of this stage.
+         */
+        public String getName() {
+            return m_name;
+        }
+
+        /**
+         * @return (not null) The durations of this stage in the last report period. This should only be read on
+         *     the thread calling {@link LoopTiming#report(long)}.
+         */
+        public TimingHistogram getReport() {
+            return m_report;
+        }
+    }
+
+    private final Stage[] m_stages = new Stage[MAX_STAGES];
+    private volatile int m_stageCt = 0;
+    private long m_lastReportNanos;
+    private boolean m_started = false;
+
+    /**
+     * Instantiate a loop timing. There is normally one loop timing for the robot (see {@link #getInstance()}),
+     * this constructor is for testing.
+     */
+    LoopTiming() {
+    }
+
+    /**
+     * Get the stage with this name, creating it if there is not one. Stages should be created when the code that
+     * runs the stage is created, not in the loop.
+     *
+     * @param name (String, not null) The stage name.
+     * @return (not null) The stage.
+     * @throws IllegalStateException if there are already the maximum number of stages.
+     */
+    public synchronized Stage getStage(String name) {
+        for (int i = 0; i < m_stageCt; i++) {
+            if (m_stages[i].getName().equals(name)) {
+                return m_stages[i];
+            }
+        }
+        if (m_stageCt >= MAX_STAGES) {
+            throw new IllegalStateException(String.format("There can be at most %d timed stages.", MAX_STAGES));
+        }
+        Stage stage = new Stage(name);
+        m_stages[m_stageCt] = stage;
+        m_stageCt++;
+        return stage;
+    }
+
+    /**
+     * @return The number of stages.
+     */
+    public int getStageCount() {
+        return m_stageCt;
+    }
+
+    /**
+     * Roll every stage into its report histogram if a report period has passed since the last report. This is
+     * called from {@link #report(long)}, and directly for testing.
+     *
+     * @param nowNanos (long) The current {@link System#nanoTime()} time.
+     * @return {@code true} if the stages were rolled, {@code false} otherwise.
+     */
+    boolean roll(long nowNanos) {
+        if (!m_started) {
+            m_started = true;
+            m_lastReportNanos = nowNanos;
+            return false;
+        }
+        if ((nowNanos - m_lastReportNanos) * 1.0e-9 < Constants.LOOP_TIMING_REPORT_PERIOD) {
+            return false;
+        }
+        m_lastReportNanos = nowNanos;
+        int stageCt = m_stageCt;
+        for (int i = 0; i < stageCt; i++) {
+            m_stages[i].roll();
+        }
+        return true;
+    }
+
+    /**
+     * Publish the stage timing to the SmartDashboard if a report period has passed since the last report. This
+     * should be called once every robot loop.
+     *
+     * @param nowNanos (long) The current {@link System#nanoTime()} time.
+     */
+    public void report(long nowNanos) {
+        if (!Constants.USE_LOOP_TIMING || !roll(nowNanos)) {
+            return;
+        }
+        int stageCt = m_stageCt;
+        for (int i = 0; i < stageCt; i++) {
+            Stage stage = m_stages[i];
+            TimingHistogram report = stage.m_report;
+            SmartDashboard.putNumber(stage.m_p50Key, report.getPercentile(50.0) * 1.0e-6);
+            SmartDashboard.putNumber(stage.m_p99Key, report.getPercentile(99.0) * 1.0e-6);
+            SmartDashboard.putNumber(stage.m_maxKey, report.getMax() * 1.0e-6);
+            SmartDashboard.putNumber(stage.m_countKey, report.getCount());
+        }
+    }
+
+    private static final LoopTiming INSTANCE = new LoopTiming();
+
+    /**
+     * @return (not null) The loop timing for the robot.
+     */
+    public static LoopTiming getInstance() {
+        return INSTANCE;
+    }
+}
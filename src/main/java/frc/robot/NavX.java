@@ -2,6 +2,11 @@ package frc.robot;
 
 import com.kauailabs.navx.frc.AHRS;
 import edu.wpi.first.wpilibj.SPI;
+import frc.robot.hardware.IGyro;
+import frc.robot.hardware.NavXGyro;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
@@ -12,13 +17,117 @@ import edu.wpi.first.wpilibj.SPI;
  * Originally this class was written to support NavX on a conventional drive that had PID direction loops
  * concerned with matching actual heading to expected heading. Right now we are a little unclear how that
  * relates to the A05annex 2021 season swerve drive.
+ *
+ * The NavX is sampled on its own thread (see {@link #startSampling()}) at the NavX update rate. Each sample unwraps the
+ * -180 to +180 NavX yaw into the continuous heading, and is published by writing it into one preallocated
+ * {@link Sample} guarded by a sequence number (a seqlock), so the sample may be read from any thread without locking,
+ * and sampling does not allocate anything. Sampling at the NavX update rate rather than once per command cycle keeps
+ * the unwrap correct during fast spins (the robot would need to turn more than 180 degrees between samples to confuse
+ * it), and takes the NavX reads off the command scheduler thread. If the sampling thread is not running, the NavX is
+ * sampled in {@link #recomputeHeading(boolean)}. The methods that change the heading state are synchronized.
+ *
+ * The NavX does not block robot startup while it calibrates. The sampling thread also checks the NavX; until the NavX
+ * has finished calibrating the NavX is {@link Status#INITIALIZING}, the heading does not change, and
+ * {@link #getHeadingInfo()} and {@link #getNavInfo()} report it is not ready by returning {@code null}. If the NavX
+ * does not finish calibrating in time, or later stops reporting, the NavX is {@link Status#DEGRADED} and the heading
+ * comes from the fallback gyro (see {@link #setFallbackGyro(IGyro)}) until the NavX is reporting again. The heading is
+ * continuous when the heading source changes.
  */
 public class NavX {
 
+    /**
+     * The state of the NavX heading source.
+     */
+    public enum Status {
+        /**
+         * The NavX is calibrating, there is no heading source yet.
+         */
+        INITIALIZING,
+        /**
+         * The heading is from the NavX.
+         */
+        READY,
+        /**
+         * The NavX did not calibrate in time, or has stopped reporting. The heading is from the fallback gyro if
+         * there is one, otherwise the heading does not change.
+         */
+        DEGRADED
+    }
+
+    /**
+     * A sample of the NavX. This is mutable so one instance can be reused, and filled in every command cycle by
+     * {@link NavX#getSample(Sample)}.
+     */
+    public static class Sample {
+        /**
+         * The heading of the robot, in radians, from -infinity to infinity, so the spins are included.
+         */
+        public double heading;
+        /**
+         * The yaw as reported by the heading source, in degrees from -180.0 to 180.0.
+         */
+        public double rawYaw;
+        /**
+         * The pitch as reported by the heading source, in degrees.
+         */
+        public double rawPitch;
+        /**
+         * The roll as reported by the heading source, in degrees.
+         */
+        public double rawRoll;
+        /**
+         * The filtered yaw rate, in radians/sec, positive is clockwise.
+         */
+        public double yawRate;
+        /**
+         * The update count of the heading source when this sample was taken.
+         */
+        public double updateCount;
+        /**
+         * The {@link RobotClock#nanoTime()} time this sample was taken.
+         */
+        public long timeNanos;
+    }
+
     //==================================================================================================================
     // NOTE: the NavX software expresses all the navigation angles in degrees, so we maintain angles internal
     // to this class in degrees. And do the conversions to radians when this class is queried for values.
-    private AHRS m_ahrs;
+    /**
+     * The NavX (or simulated) gyro.
+     */
+    private final IGyro m_navxGyro;
+    /**
+     * The degraded heading source used when the NavX is not reporting, {@code null} if there is none.
+     */
+    private IGyro m_fallbackGyro = null;
+    /**
+     * The gyro the heading is currently computed from, {@code null} if there is no heading source.
+     */
+    private IGyro m_gyro = null;
+    private volatile Status m_status = Status.INITIALIZING;
+
+    // watchdog state - the NavX is stalled if the update count has not changed in the stall timeout.
+    private final long m_startNanos;
+    private final long m_initTimeoutNanos;
+    private final long m_stallTimeoutNanos;
+    private double m_lastNavxUpdateCt;
+    private long m_lastNavxUpdateNanos;
+
+    // sampling - the latest sample is written in place. The sample is only written holding the NavX lock, and the
+    // sequence number is odd while it is being written, so readers that do not hold the lock copy the sample and
+    // retry if the sequence number was odd or changed while they were copying (see getSample(Sample)).
+    private final Sample m_sample = new Sample();
+    private volatile int m_sampleSeq = 0;
+    private double m_lastSampleUpdateCt = Double.NaN;
+    // the yaw rate is computed from the unwrapped gyro yaw, which is not changed by the references or the drift
+    // correction, in degrees/sec.
+    private double m_yawRate = 0.0;
+    private double m_lastUnwrappedYaw = 0.0;
+    private long m_lastUnwrappedNanos = RobotClock.nanoTime();
+    private volatile boolean m_sampling = false;
+    private Thread m_samplingThread = null;
+    private final LoopTiming.Stage m_sampleTiming = LoopTiming.getInstance().getStage("navx sample");
+
     /** The heading we are trying to track with the robot (in degrees)
      */
     private double m_expectedHeading = 0.0;
@@ -61,25 +170,162 @@ public class NavX {
      * The actual field heading of the robot at the time the NavX in initialized.
      */
     private double m_refHeading = 0.0;
+    /**
+     * The number of times the references have been set, so users of the heading can tell when the heading has
+     * been set rather than changed by the robot turning.
+     */
+    private volatile int m_referenceCt = 0;
+    /**
+     * The correction, in degrees, subtracted from the heading to remove the gyro drift (see
+     * {@link GyroDriftEstimator}).
+     */
+    private double m_headingCorrection = 0.0;
 
     /**
+     * Instantiate the NavX heading tracking for a gyro. This does not wait for the gyro to calibrate - if the gyro
+     * is not calibrating the NavX is ready when this returns, otherwise the NavX is initializing until the
+     * sampling thread sees the gyro has finished calibrating (see {@link #startSampling()} and
+     * {@link #checkGyro(long)}).
      *
+     * @param gyro         (IGyro, not null) The gyro, either the NavX board or a simulated gyro.
+     * @param initTimeout  (double) The time, in seconds, the gyro has to finish calibrating before the NavX is
+     *                     degraded.
+     * @param stallTimeout (double) The time, in seconds, without a gyro update before the NavX is degraded. If
+     *                     this is 0.0 or less the gyro is never considered stalled.
      */
-    private NavX() {
-        // So, if there is no navx, there is no error - it just keeps trying to connect forever, so this
-        // needs to be on a thread that can be killed if it doesn't connect in time ......
-        // TODO: figure out the threading, error handling, and redundancy.
-        m_ahrs = new AHRS(SPI.Port.kMXP);
-        m_ahrs.reset();
-        while (m_ahrs.isCalibrating()) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                break;
+    NavX(IGyro gyro, double initTimeout, double stallTimeout) {
+        // So, if there is no navx, there is no error - it just keeps trying to connect forever, so the
+        // calibration is watched by the sampling thread rather than waited for here.
+        m_navxGyro = gyro;
+        m_initTimeoutNanos = (long) (initTimeout * 1.0e9);
+        m_stallTimeoutNanos = (long) (stallTimeout * 1.0e9);
+        m_navxGyro.reset();
+        publish(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, RobotClock.nanoTime());
+        m_startNanos = System.nanoTime();
+        m_lastNavxUpdateCt = m_navxGyro.getUpdateCount();
+        m_lastNavxUpdateNanos = m_startNanos;
+        checkGyro(m_startNanos);
+    }
+
+    /**
+     * Start the NavX sampling thread, which checks and samples the NavX at {@link Constants#NAVX_SAMPLE_RATE_HZ}.
+     * This does nothing if the sampling thread is already running.
+     */
+    public synchronized void startSampling() {
+        if (null != m_samplingThread) {
+            return;
+        }
+        m_sampling = true;
+        m_samplingThread = new Thread(this::runSampling, "navx");
+        m_samplingThread.setDaemon(true);
+        m_samplingThread.start();
+    }
+
+    /**
+     * @return {@code true} if the sampling thread is running, {@code false} otherwise.
+     */
+    public boolean isSampling() {
+        return m_sampling;
+    }
+
+    private void runSampling() {
+        long periodNanos = (long) (1.0e9 / Constants.NAVX_SAMPLE_RATE_HZ);
+        long nextCycle = System.nanoTime();
+        while (m_sampling) {
+            long start = System.nanoTime();
+            checkGyro(start);
+            sample();
+            m_sampleTiming.end(start);
+            nextCycle += periodNanos;
+            long wait = nextCycle - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // we are late, start the next period now rather than trying to catch up
+                nextCycle = System.nanoTime();
             }
         }
-        m_updateCt = m_ahrs.getUpdateCount();
-        initializeHeadingAndNav();
+    }
+
+    /**
+     * Check the NavX, and change the heading source if the NavX has finished calibrating, timed out calibrating,
+     * stopped reporting, or started reporting again. This is called by the sampling thread.
+     *
+     * @param nowNanos (long) The current {@link System#nanoTime()} time.
+     */
+    synchronized void checkGyro(long nowNanos) {
+        double updateCt = m_navxGyro.getUpdateCount();
+        if (updateCt != m_lastNavxUpdateCt) {
+            m_lastNavxUpdateCt = updateCt;
+            m_lastNavxUpdateNanos = nowNanos;
+        }
+        boolean reporting = !m_navxGyro.isCalibrating() &&
+                ((m_stallTimeoutNanos <= 0) || (nowNanos - m_lastNavxUpdateNanos < m_stallTimeoutNanos));
+        switch (m_status) {
+            case INITIALIZING:
+                if (reporting) {
+                    changeHeadingSource(Status.READY, m_navxGyro);
+                } else if (nowNanos - m_startNanos >= m_initTimeoutNanos) {
+                    changeHeadingSource(Status.DEGRADED, m_fallbackGyro);
+                }
+                break;
+            case READY:
+                if (!reporting) {
+                    changeHeadingSource(Status.DEGRADED, m_fallbackGyro);
+                }
+                break;
+            case DEGRADED:
+                if (reporting) {
+                    changeHeadingSource(Status.READY, m_navxGyro);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Change the gyro the heading is computed from. The references are reset to the new gyro so the heading
+     * continues from the current heading.
+     *
+     * @param status (Status, not null) The new status.
+     * @param gyro   (IGyro) The new heading source, {@code null} if there is none.
+     */
+    private void changeHeadingSource(Status status, IGyro gyro) {
+        m_status = status;
+        m_gyro = gyro;
+        m_yawRate = 0.0;
+        if (null != m_gyro) {
+            m_updateCt = m_gyro.getUpdateCount();
+            setReferences(m_heading);
+        } else {
+            republish();
+        }
+    }
+
+    /**
+     * Set the gyro that provides a degraded heading when the NavX is not reporting, normally a gyro integrating
+     * the chassis rotation measured by the drive module encoders.
+     *
+     * @param gyro (IGyro) The fallback gyro, {@code null} if there is none.
+     */
+    public synchronized void setFallbackGyro(IGyro gyro) {
+        m_fallbackGyro = gyro;
+        if (Status.DEGRADED == m_status) {
+            changeHeadingSource(Status.DEGRADED, m_fallbackGyro);
+        }
+    }
+
+    /**
+     * @return (not null) The state of the heading source.
+     */
+    public Status getStatus() {
+        return m_status;
+    }
+
+    /**
+     * @return {@code true} if the heading is from the NavX, {@code false} if the NavX is initializing or degraded.
+     */
+    public boolean isReady() {
+        return Status.READY == m_status;
     }
 
     /**
@@ -96,16 +342,96 @@ public class NavX {
      *
      * @param heading (double) The current field heading of the robot in radians.
      */
-    public void initializeHeadingAndNav(double heading) {
+    public synchronized void initializeHeadingAndNav(double heading) {
         // In the past we have always initialized with the front of the robot facing down field, so the
         // heading was 0.0 at initialization. In this case we are
-        m_refPitch = m_ahrs.getPitch();
-        m_refYaw = m_ahrs.getYaw();
-        m_refRoll = m_ahrs.getRoll();
-        m_refHeading = Math.toDegrees(heading);
-        m_headingRawLast = 0.0;
-        m_expectedHeading = m_refHeading;
+        setReferences(Math.toDegrees(heading));
+        m_expectedHeading = m_heading;
+    }
+
+    /**
+     * Set the reference values to the current gyro values, and the reference heading.
+     *
+     * @param heading (double) The current heading, in degrees.
+     */
+    private void setReferences(double heading) {
+        if (null != m_gyro) {
+            m_refPitch = m_gyro.getPitch();
+            m_refYaw = m_gyro.getYaw();
+            m_refRoll = m_gyro.getRoll();
+        }
+        // the drift correction continues from the current correction
+        m_refHeading = heading + m_headingCorrection;
+        m_heading = heading;
+        m_headingRawLast = m_refYaw;
         m_headingRevs = 0;
+        m_referenceCt++;
+        if (null != m_gyro) {
+            m_lastSampleUpdateCt = m_gyro.getUpdateCount();
+            m_lastUnwrappedYaw = m_refYaw;
+            m_lastUnwrappedNanos = RobotClock.nanoTime();
+            publish(Math.toRadians(m_heading), m_refYaw, m_refPitch, m_refRoll, Math.toRadians(m_yawRate),
+                    m_lastSampleUpdateCt, m_lastUnwrappedNanos);
+        } else {
+            republish();
+        }
+    }
+
+    /**
+     * Publish a new sample with the current heading and the raw values of the last sample. Called holding the
+     * NavX lock.
+     */
+    private void republish() {
+        publish(Math.toRadians(m_heading), m_sample.rawYaw, m_sample.rawPitch, m_sample.rawRoll,
+                Math.toRadians(m_yawRate), m_sample.updateCount, RobotClock.nanoTime());
+    }
+
+    /**
+     * Write the sample. Called holding the NavX lock, so there is only one writer.
+     */
+    private void publish(double heading, double rawYaw, double rawPitch, double rawRoll, double yawRate,
+                         double updateCount, long timeNanos) {
+        // odd while the sample is being written - the fence keeps the sample writes after the sequence number
+        m_sampleSeq++;
+        VarHandle.storeStoreFence();
+        m_sample.heading = heading;
+        m_sample.rawYaw = rawYaw;
+        m_sample.rawPitch = rawPitch;
+        m_sample.rawRoll = rawRoll;
+        m_sample.yawRate = yawRate;
+        m_sample.updateCount = updateCount;
+        m_sample.timeNanos = timeNanos;
+        // even again, the volatile write publishes the sample writes
+        m_sampleSeq++;
+    }
+
+    /**
+     * @return The number of times the heading references have been set, either by
+     *     {@link #initializeHeadingAndNav(double)} or by a change of heading source.
+     */
+    public int getReferenceCount() {
+        return m_referenceCt;
+    }
+
+    /**
+     * Set the correction subtracted from the gyro heading to remove the gyro drift accumulated since the NavX
+     * was started. This is normally set every command cycle by the {@link GyroDriftEstimator}. The change in
+     * correction is applied to the heading immediately.
+     *
+     * @param correction (double) The heading correction, in radians.
+     */
+    public synchronized void setHeadingCorrection(double correction) {
+        double correctionDegrees = Math.toDegrees(correction);
+        m_heading -= correctionDegrees - m_headingCorrection;
+        m_headingCorrection = correctionDegrees;
+        republish();
+    }
+
+    /**
+     * @return The correction subtracted from the gyro heading to remove the gyro drift, in radians.
+     */
+    public synchronized double getHeadingCorrection() {
+        return Math.toRadians(m_headingCorrection);
     }
 
     /**
@@ -113,7 +439,7 @@ public class NavX {
      *
      * @param radians The change to the expected heading.
      */
-    public void incrementExpectedHeading(double radians) {
+    public synchronized void incrementExpectedHeading(double radians) {
         m_expectedHeading += Math.toDegrees(radians);
 
     }
@@ -121,17 +447,14 @@ public class NavX {
     /**
      * Set the expected heading to the current heading.
      */
-    public void setExpectedHeadingToCurrent() {
+    public synchronized void setExpectedHeadingToCurrent() {
         m_expectedHeading = m_heading;
     }
 
     /**
      * Recompute the heading as reported by the NavX and adjusted to be always increasing when rotation is
-     * clockwise. This heading computation was introduced by Jason Barringer to the FRC 6831 AO5 Annex code base
-     * in the 2017 season to make using PID loops to control heading with the IMU easier to write, and more
-     * predictable. If there is a discontinuity in the sensor output, this means there needs to be special logic
-     * in the PID code to deal with the discontinuity. This handles the discontinuity in a single place where
-     * the heading is computed.
+     * clockwise. If the sampling thread is running the heading is the heading of the latest sample, otherwise
+     * the NavX is sampled now (see {@link #sample()}).
      *
      * @param setExpectedToCurrent (boolean) {@code true} if the expected heading should be set to the current
      *                             heading, {@code false} otherwise. This would normally be {@code true} during
@@ -141,133 +464,316 @@ public class NavX {
      *                             heading and the robot is the expected to move along, or turn towards, the
      *                             expected heading; or when robot-relative driving without any turn.
      */
-    public void recomputeHeading(boolean setExpectedToCurrent) {
+    public synchronized void recomputeHeading(boolean setExpectedToCurrent) {
+        if (!m_sampling) {
+            sample();
+        }
         m_setExpectedToCurrent = setExpectedToCurrent;
-        double heading_raw = m_ahrs.getYaw();
+        if (setExpectedToCurrent) {
+            m_expectedHeading = m_heading;
+        }
+    }
+
+    /**
+     * Sample the heading source, unwrap the heading, and publish the sample. This does nothing if there is no
+     * heading source or the heading source has not updated since the last sample.
+     * <p>
+     * The heading is adjusted to be always increasing when rotation is clockwise. This heading computation was
+     * introduced by Jason Barringer to the FRC 6831 AO5 Annex code base in the 2017 season to make using PID loops
+     * to control heading with the IMU easier to write, and more predictable. If there is a discontinuity in the
+     * sensor output, this means there needs to be special logic in the PID code to deal with the discontinuity.
+     * This handles the discontinuity in a single place where the heading is computed.
+     */
+    synchronized void sample() {
+        if (null == m_gyro) {
+            // no heading source - the heading does not change
+            return;
+        }
+        double updateCt = m_gyro.getUpdateCount();
+        if (updateCt == m_lastSampleUpdateCt) {
+            return;
+        }
+        m_lastSampleUpdateCt = updateCt;
+        double heading_raw = m_gyro.getYaw();
         // This is the logic for detecting and correcting for the IMU discontinuity at +180degrees and -180degrees.
-        if (m_headingRawLast < -90.0 && heading_raw > 0.0) {
-            // The previous raw IMU heading was negative and close to the discontinuity, and it is now positive. We
-            // have gone through the discontinuity so we decrement the heading revolutions by 1 (we completed a
-            // negative revolution). NOTE: the initial check protects from the case that the heading is near 0 and
-            // goes continuously through 0, which is not the completion of a revolution.
+        // The robot is assumed to have turned the shortest way since the last sample, which is true as long as it
+        // turns less than 180 degrees between samples.
+        double change = heading_raw - m_headingRawLast;
+        if (change > 180.0) {
+            // The raw IMU heading jumped positive by more than half a revolution, so the robot actually turned
+            // negative through the discontinuity. We decrement the heading revolutions by 1 (we completed a
+            // negative revolution).
             m_headingRevs--;
-        } else if (m_headingRawLast > 90.0 && heading_raw < 0.0) {
-            // The previous raw IMU heading was positive and close to the discontinuity, and it is now negative. We
-            // have gone through the discontinuity so we increment the heading revolutions by 1 (we completed
-            // positive revolution). NOTE: the initial check protects from the case that the heading is near 0 and
-            // goes continuously through 0, which is not the completion of a revolution.
+        } else if (change < -180.0) {
+            // The raw IMU heading jumped negative by more than half a revolution, so the robot actually turned
+            // positive through the discontinuity. We increment the heading revolutions by 1 (we completed
+            // positive revolution).
             m_headingRevs++;
         }
         m_headingRawLast = heading_raw;
 
-        m_heading = (m_headingRevs * 360.0) + heading_raw - m_refYaw + m_refHeading;
-        if (setExpectedToCurrent) {
-            m_expectedHeading = m_heading;
+        double unwrappedYaw = (m_headingRevs * 360.0) + heading_raw;
+        m_heading = unwrappedYaw - m_refYaw + m_refHeading - m_headingCorrection;
+
+        // the yaw rate, low pass filtered because the change in yaw between updates is small and noisy
+        long now = RobotClock.nanoTime();
+        long dtNanos = now - m_lastUnwrappedNanos;
+        if (dtNanos > 0) {
+            double yawRate = (unwrappedYaw - m_lastUnwrappedYaw) * 1.0e9 / dtNanos;
+            m_yawRate += Constants.NAVX_YAW_RATE_FILTER * (yawRate - m_yawRate);
         }
+        m_lastUnwrappedYaw = unwrappedYaw;
+        m_lastUnwrappedNanos = now;
+        publish(Math.toRadians(m_heading), heading_raw, m_gyro.getPitch(), m_gyro.getRoll(),
+                Math.toRadians(m_yawRate), updateCt, now);
     }
 
     /**
-     * Get the robot chassis heading in radians.
+     * Predict the heading at a time after now, assuming the robot continues turning at the current yaw rate. The
+     * prediction starts from the latest sample, so the time since that sample was taken (up to
+     * {@link Constants#NAVX_MAX_SAMPLE_AGE}) is also predicted. This may be called from any thread.
+     *
+     * @param lookahead (double) The time after now, in seconds.
+     * @return The predicted heading, in radians.
+     */
+    public double getPredictedHeading(double lookahead) {
+        while (true) {
+            int seq = m_sampleSeq;
+            if (0 == (seq & 1)) {
+                double heading = m_sample.heading;
+                double yawRate = m_sample.yawRate;
+                long timeNanos = m_sample.timeNanos;
+                // the fence keeps the sample reads before the sequence number is checked again
+                VarHandle.loadLoadFence();
+                if (seq == m_sampleSeq) {
+                    double age = Math.min((RobotClock.nanoTime() - timeNanos) * 1.0e-9,
+                            Constants.NAVX_MAX_SAMPLE_AGE);
+                    return heading + (yawRate * (age + lookahead));
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Get the latest sample. This allocates a new sample, code running every command cycle should reuse a sample
+     * with {@link #getSample(Sample)}.
+     *
+     * @return (not null) The latest sample.
+     */
+    public Sample getSample() {
+        Sample sample = new Sample();
+        getSample(sample);
+        return sample;
+    }
+
+    /**
+     * Fill in a sample with the latest sample. This may be called from any thread, and does not wait for the
+     * sampling thread - if the sample is being written, the copy is retried.
+     *
+     * @param sample (Sample, not null) The sample to be filled in.
+     */
+    public void getSample(Sample sample) {
+        while (true) {
+            int seq = m_sampleSeq;
+            if (0 == (seq & 1)) {
+                sample.heading = m_sample.heading;
+                sample.rawYaw = m_sample.rawYaw;
+                sample.rawPitch = m_sample.rawPitch;
+                sample.rawRoll = m_sample.rawRoll;
+                sample.yawRate = m_sample.yawRate;
+                sample.updateCount = m_sample.updateCount;
+                sample.timeNanos = m_sample.timeNanos;
+                // the fence keeps the sample reads before the sequence number is checked again
+                VarHandle.loadLoadFence();
+                if (seq == m_sampleSeq) {
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Get the robot chassis heading in radians. This may be called from any thread.
      *
      * @return The robot chassis heading in radians.
      */
     public double getHeading() {
-        return Math.toRadians(m_heading);
+        while (true) {
+            int seq = m_sampleSeq;
+            if (0 == (seq & 1)) {
+                double heading = m_sample.heading;
+                // the fence keeps the sample read before the sequence number is checked again
+                VarHandle.loadLoadFence();
+                if (seq == m_sampleSeq) {
+                    return heading;
+                }
+            }
+            Thread.onSpinWait();
+        }
     }
 
     /**
-     * @return Returns the heading info, returns {@code null} if there is a problem with the NavX.
+     * Get the expected heading, the heading we are trying to track with the robot.
+     *
+     * @return The expected heading in radians.
+     */
+    public synchronized double getExpectedHeading() {
+        return Math.toRadians(m_expectedHeading);
+    }
+
+    /**
+     * Get the heading info. This allocates a new heading info, code running every command cycle should reuse
+     * a heading info with {@link #getHeadingInfo(HeadingInfo)}.
+     *
+     * @return Returns the heading info, returns {@code null} if there is a problem with the NavX, or there is no
+     *     heading source yet.
      */
     public HeadingInfo getHeadingInfo() {
-        if (null == m_ahrs) {
-            return null;
+        HeadingInfo info = new HeadingInfo();
+        return getHeadingInfo(info) ? info : null;
+    }
+
+    /**
+     * Fill in a heading info with the current heading info.
+     *
+     * @param info (HeadingInfo, not null) The heading info to be filled in.
+     * @return {@code true} if the heading info was filled in, {@code false} if there is a problem with the NavX,
+     *     or there is no heading source yet, in which case {@code info} is unchanged.
+     */
+    public synchronized boolean getHeadingInfo(HeadingInfo info) {
+        if (null == m_gyro) {
+            return false;
         }
-        double updateCt = m_ahrs.getUpdateCount();
-        if (updateCt <= m_updateCt) {
+        // the sample is only written holding the NavX lock, so it can be read directly
+        Sample sample = m_sample;
+        if (sample.updateCount <= m_updateCt) {
             // there is a problem communication with the NavX - the results we would get from NavX queries
             // are unreliable.
-            return null;
+            return false;
         }
-        return new HeadingInfo(Math.toRadians(m_heading), Math.toRadians(m_expectedHeading), m_setExpectedToCurrent);
+        info.heading = sample.heading;
+        info.expectedHeading = Math.toRadians(m_expectedHeading);
+        info.isExpectedTrackingCurrent = m_setExpectedToCurrent;
+        return true;
     }
 
     /**
-     * @return Returns the navigation info, returns {@code null} if there is a problem with the NavX.
+     * Get the navigation info. This allocates a new navigation info, code running every command cycle should
+     * reuse a navigation info with {@link #getNavInfo(NavInfo)}.
+     *
+     * @return Returns the navigation info, returns {@code null} if there is a problem with the NavX, or there is
+     *     no heading source yet.
      */
     public NavInfo getNavInfo() {
-        if (null == m_ahrs) {
-            return null;
+        NavInfo info = new NavInfo();
+        return getNavInfo(info) ? info : null;
+    }
+
+    /**
+     * Fill in a navigation info with the current navigation info.
+     *
+     * @param info (NavInfo, not null) The navigation info to be filled in.
+     * @return {@code true} if the navigation info was filled in, {@code false} if there is a problem with the
+     *     NavX, or there is no heading source yet, in which case {@code info} is unchanged.
+     */
+    public synchronized boolean getNavInfo(NavInfo info) {
+        if (null == m_gyro) {
+            return false;
         }
         // The subtraction of the ref values adjusts for the construction bias of not having the NavX perfectly
         // mounted, or there being some bias in the NavX - i.e. the ref represents the value first reported when
-        // the reference position is set, see initializeHeadingAndNav().
-        return new NavInfo(
-                Math.toRadians(m_ahrs.getPitch() - m_refPitch), Math.toRadians(m_ahrs.getYaw() - m_refYaw),
-                Math.toRadians(m_ahrs.getRoll() - m_refRoll), Math.toRadians(m_ahrs.getPitch()),
-                Math.toRadians(m_ahrs.getYaw()), Math.toRadians(m_ahrs.getRoll()));
+        // the reference position is set, see initializeHeadingAndNav(). The sample is only written holding the NavX
+        // lock, so it can be read directly.
+        Sample sample = m_sample;
+        info.pitch = Math.toRadians(sample.rawPitch - m_refPitch);
+        info.yaw = Math.toRadians(sample.rawYaw - m_refYaw);
+        info.roll = Math.toRadians(sample.rawRoll - m_refRoll);
+        info.rawPitch = Math.toRadians(sample.rawPitch);
+        info.rawYaw = Math.toRadians(sample.rawYaw);
+        info.rawRoll = Math.toRadians(sample.rawRoll);
+        return true;
     }
 
+    /**
+     * The data class for the heading info. This is mutable so one instance can be reused, and filled in every
+     * command cycle by {@link NavX#getHeadingInfo(HeadingInfo)}.
+     */
     public static class HeadingInfo {
         /**
          * The current heading in radians of the robot as computed in the last call
          * to {@link NavX#initializeHeadingAndNav()}.
          */
-        public final double heading;
-        public final double expectedHeading;
-        public final boolean isExpectedTrackingCurrent;
-
-        HeadingInfo(double heading, double expectedHeading, boolean isExpectedTrackingCurrent) {
-            this.heading = heading;
-            this.expectedHeading = expectedHeading;
-            this.isExpectedTrackingCurrent = isExpectedTrackingCurrent;
-        }
+        public double heading;
+        public double expectedHeading;
+        public boolean isExpectedTrackingCurrent;
     }
 
     /**
      * The data class for the 'raw' navigation info from the NavX, corrected by when the reference was last set.
+     * This is mutable so one instance can be reused, and filled in every command cycle by
+     * {@link NavX#getNavInfo(NavInfo)}.
      */
     public static class NavInfo {
         /**
          * The pitch (lean forward or backward) of the robot, with negative being forwards, from when the robot
          * was first initialized. Measured in radians.
          */
-        public final double pitch;
-        public final double rawPitch;
+        public double pitch;
+        public double rawPitch;
         /**
          * The yaw (rotation or turn) of the robot, with positive being clockwise (to the right), from when the
          * robot was first initialized. Measured in radians.
          */
-        public final double yaw;
-        public final double rawYaw;
+        public double yaw;
+        public double rawYaw;
         /**
          * The roll (lean sideways) of the robot, with positive being the robot falling over on it's left
          * side, from when the robot was first initialized. Measured in radians.
          */
-        public final double roll;
-        public final double rawRoll;
-
-        NavInfo(double pitch, double yaw, double roll, double rawPitch, double rawYaw, double rawRoll) {
-            this.pitch = pitch;
-            this.yaw = yaw;
-            this.roll = roll;
-            this.rawPitch = rawPitch;
-            this.rawYaw = rawYaw;
-            this.rawRoll = rawRoll;
-        }
+        public double roll;
+        public double rawRoll;
     }
 
     /**
      * The Singleton instance of this NavX. External classes should
-     * use the {@link #getInstance()} method to get the instance.
+     * use the {@link #getInstance()} method to get the instance. This is created the first time it is
+     * requested rather than when the class is loaded so that the class can be mocked for testing and
+     * benchmarking without trying to connect to a NavX.
      */
-    private final static NavX INSTANCE = new NavX();
+    private static NavX INSTANCE = null;
 
     /**
      * Returns the Singleton instance of this NavX. This static method
      * should be used -- {@code NavX.getInstance();} -- by external
-     * classes, rather than the constructor to get the instance of this class.
+     * classes, rather than the constructor to get the instance of this class. This does not wait for the NavX
+     * to calibrate, and starts the NavX sampling thread.
      */
-    public static NavX getInstance() {
+    public static synchronized NavX getInstance() {
+        if (null == INSTANCE) {
+            INSTANCE = new NavX(new NavXGyro(new AHRS(SPI.Port.kMXP, Constants.NAVX_UPDATE_RATE_HZ)),
+                    Constants.NAVX_INIT_TIMEOUT, Constants.NAVX_STALL_TIMEOUT);
+            INSTANCE.startSampling();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Create the Singleton instance of this NavX for a specific gyro, specifically, for a simulated gyro. This
+     * must be called before anything calls {@link #getInstance()}. The simulation is not necessarily stepped in
+     * real time, so the gyro is never considered stalled, and the sampling thread is not started - the
+     * gyro is sampled by {@link #recomputeHeading(boolean)}.
+     *
+     * @param gyro (IGyro, not null) The gyro.
+     * @return The NavX instance.
+     * @throws IllegalStateException if the NavX instance has already been created.
+     */
+    public static synchronized NavX createInstance(IGyro gyro) {
+        if (null != INSTANCE) {
+            throw new IllegalStateException("The NavX instance has already been created.");
+        }
+        INSTANCE = new NavX(gyro, Constants.NAVX_INIT_TIMEOUT, 0.0);
         return INSTANCE;
     }
 }
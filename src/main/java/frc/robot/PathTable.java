@@ -0,0 +1,349 @@
+package frc.robot;
+
+import org.a05annex.util.geo2d.KochanekBartelsSpline;
+import org.a05annex.util.geo2d.KochanekBartelsSpline.PathFollower;
+import org.a05annex.util.geo2d.KochanekBartelsSpline.PathPoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A path table is an autonomous path spline sampled at a fixed time interval into a flat table of path points -
+ * time, field X, field Y, field heading, speed forward, speed strafe, and speed rotation. Following a path with
+ * a table is index arithmetic and a linear interpolation, with no spline math and no allocation, which keeps
+ * the spline evaluation out of the autonomous command cycle.
+ * <p>
+ * Tables are compiled from the path files, either ahead of time with the {@link #main(String...)} method (run
+ * by the {@code compilePathTables} gradle task, so the tables are deployed with the paths), or on the robot the
+ * first time a path is loaded. A table file records the CRC of the path file it was compiled from, so a table
+ * is recompiled if the path file changes. Table files are memory mapped rather than read.
+ * <p>
+ * The table file is little endian: a header of a magic number, a format version, the sample count, and the
+ * path file CRC (all ints), then the sample interval (double), followed by the samples, 7 doubles each.
+ */
+public class PathTable {
+
+    /**
+     * The file extension for path tables, the table for {@code path.json} is {@code path.pathtable}.
+     */
+    public static final String TABLE_EXTENSION = ".pathtable";
+
+    private static final int MAGIC = 0x41303550; // "A05P"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int FIELDS = 7;
+    private static final int TIME = 0;
+    private static final int FIELD_X = 1;
+    private static final int FIELD_Y = 2;
+    private static final int FIELD_HEADING = 3;
+    private static final int SPEED_FORWARD = 4;
+    private static final int SPEED_STRAFE = 5;
+    private static final int SPEED_ROTATION = 6;
+
+    private final DoubleBuffer m_samples;
+    private final int m_count;
+    private final double m_dt;
+    private final int m_sourceCrc;
+
+    // the result of the last lookup
+    private double m_fieldX = 0.0;
+    private double m_fieldY = 0.0;
+    private double m_fieldHeading = 0.0;
+    private double m_speedForward = 0.0;
+    private double m_speedStrafe = 0.0;
+    private double m_speedRotation = 0.0;
+
+    private PathTable(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " path table.");
+        }
+        m_count = buffer.getInt(8);
+        m_sourceCrc = buffer.getInt(12);
+        m_dt = buffer.getDouble(16);
+        if (m_count < 1 || buffer.limit() < HEADER_BYTES + (m_count * FIELDS * Double.BYTES)) {
+            throw new IOException("The path table is truncated.");
+        }
+        buffer.position(HEADER_BYTES);
+        m_samples = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /**
+     * Compile a path spline into an in-memory path table.
+     *
+     * @param spline    (KochanekBartelsSpline, not null) The path.
+     * @param dt        (double) The time between samples, in seconds.
+     * @param sourceCrc (int) The CRC of the path file the spline was loaded from, see {@link #crc(Path)}.
+     * @return (not null) The path table.
+     */
+    public static PathTable compile(KochanekBartelsSpline spline, double dt, int sourceCrc) {
+        // count the samples - the path follower returns null when the time is past the end of the path
+        PathFollower follower = spline.getPathFollower();
+        int count = 0;
+        while (null != follower.getPointAt(count * dt)) {
+            count++;
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("The path has no points.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (count * FIELDS * Double.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(sourceCrc).putDouble(dt);
+        follower = spline.getPathFollower();
+        for (int i = 0; i < count; i++) {
+            double time = i * dt;
+            PathPoint point = follower.getPointAt(time);
+            buffer.putDouble(time);
+            buffer.putDouble(point.fieldPt.getX());
+            buffer.putDouble(point.fieldPt.getY());
+            buffer.putDouble(point.fieldHeading);
+            buffer.putDouble(point.speedForward);
+            buffer.putDouble(point.speedStrafe);
+            buffer.putDouble(point.speedRotation);
+        }
+        buffer.flip();
+        try {
+            return new PathTable(buffer);
+        } catch (IOException e) {
+            // this cannot happen, we just wrote a valid table
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Memory map a path table file.
+     *
+     * @param tableFile (Path, not null) The path table file.
+     * @return (not null) The path table.
+     * @throws IOException if the file could not be read, or is not a path table.
+     */
+    public static PathTable map(Path tableFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(tableFile, StandardOpenOption.READ)) {
+            return new PathTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write this path table to a file.
+     *
+     * @param tableFile (Path, not null) The path table file.
+     * @throws IOException if the file could not be written.
+     */
+    public void write(Path tableFile) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (m_count * FIELDS * Double.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(m_count).putInt(m_sourceCrc).putDouble(m_dt);
+        for (int i = 0; i < m_count * FIELDS; i++) {
+            buffer.putDouble(m_samples.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(tableFile, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Get the table file for a path file.
+     *
+     * @param pathFile (Path, not null) The path file.
+     * @return (not null) The table file, in the same directory as the path file.
+     */
+    public static Path tableFileFor(Path pathFile) {
+        String name = pathFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return pathFile.resolveSibling(((dot > 0) ? name.substring(0, dot) : name) + TABLE_EXTENSION);
+    }
+
+    /**
+     * Compute the CRC of a path file. The CRC is recorded in the table so we can tell whether the table is
+     * current for the path file.
+     *
+     * @param pathFile (Path, not null) The path file.
+     * @return The CRC of the file contents.
+     * @throws IOException if the file could not be read.
+     */
+    public static int crc(Path pathFile) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(pathFile));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Load the path table for a path file. If there is a current table file it is memory mapped; otherwise the
+     * path is loaded and compiled, and the table file is written (if it can be) so the next load is fast.
+     *
+     * @param pathFile (Path, not null) The path file.
+     * @param dt       (double) The time between samples, in seconds, used if the table needs to be compiled.
+     * @return The path table, {@code null} if the path could not be loaded.
+     */
+    public static PathTable load(Path pathFile, double dt) {
+        int crc;
+        try {
+            crc = crc(pathFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        Path tableFile = tableFileFor(pathFile);
+        if (Files.isReadable(tableFile)) {
+            try {
+                PathTable table = map(tableFile);
+                if (table.m_sourceCrc == crc && table.m_dt == dt) {
+                    return table;
+                }
+            } catch (IOException e) {
+                // The table is unreadable, or not a table - fall through and recompile it
+            }
+        }
+        KochanekBartelsSpline spline = new KochanekBartelsSpline();
+        if (!spline.loadPath(pathFile.toString())) {
+            return null;
+        }
+        PathTable table = compile(spline, dt, crc);
+        try {
+            table.write(tableFile);
+        } catch (IOException e) {
+            // The table could not be saved - that is OK, we have it in memory, it will be compiled again next time
+            e.printStackTrace();
+        }
+        return table;
+    }
+
+    /**
+     * @return The number of samples in this table.
+     */
+    public int getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return The time between samples, in seconds.
+     */
+    public double getDt() {
+        return m_dt;
+    }
+
+    /**
+     * @return The time of the last sample, in seconds.
+     */
+    public double getDuration() {
+        return m_samples.get(((m_count - 1) * FIELDS) + TIME);
+    }
+
+    /**
+     * Find the path point at the specified time since the start of the path, interpolating between the samples
+     * on either side of that time. The point is read with the getters for field position and speeds.
+     *
+     * @param time (double) The time since the start of the path, in seconds.
+     * @return {@code true} if there is a point at that time, {@code false} if the time is past the end of the path.
+     */
+    public boolean lookup(double time) {
+        if (time <= 0.0) {
+            setLookup(0, 0, 0.0);
+            return true;
+        }
+        double position = time / m_dt;
+        int before = (int) position;
+        if (before >= m_count - 1) {
+            if (before == m_count - 1 && time <= getDuration() + (m_dt * 0.5)) {
+                setLookup(m_count - 1, m_count - 1, 0.0);
+                return true;
+            }
+            return false;
+        }
+        setLookup(before, before + 1, position - before);
+        return true;
+    }
+
+    private void setLookup(int before, int after, double fraction) {
+        int b = before * FIELDS;
+        int a = after * FIELDS;
+        m_fieldX = interpolate(b + FIELD_X, a + FIELD_X, fraction);
+        m_fieldY = interpolate(b + FIELD_Y, a + FIELD_Y, fraction);
+        m_fieldHeading = interpolate(b + FIELD_HEADING, a + FIELD_HEADING, fraction);
+        m_speedForward = interpolate(b + SPEED_FORWARD, a + SPEED_FORWARD, fraction);
+        m_speedStrafe = interpolate(b + SPEED_STRAFE, a + SPEED_STRAFE, fraction);
+        m_speedRotation = interpolate(b + SPEED_ROTATION, a + SPEED_ROTATION, fraction);
+    }
+
+    private double interpolate(int before, int after, double fraction) {
+        double value = m_samples.get(before);
+        return value + (fraction * (m_samples.get(after) - value));
+    }
+
+    /**
+     * @return The field X of the last lookup, in meters.
+     */
+    public double getFieldX() {
+        return m_fieldX;
+    }
+
+    /**
+     * @return The field Y of the last lookup, in meters.
+     */
+    public double getFieldY() {
+        return m_fieldY;
+    }
+
+    /**
+     * @return The field heading of the last lookup, in radians.
+     */
+    public double getFieldHeading() {
+        return m_fieldHeading;
+    }
+
+    /**
+     * @return The chassis forward speed of the last lookup, in meters/sec.
+     */
+    public double getSpeedForward() {
+        return m_speedForward;
+    }
+
+    /**
+     * @return The chassis strafe speed of the last lookup, in meters/sec.
+     */
+    public double getSpeedStrafe() {
+        return m_speedStrafe;
+    }
+
+    /**
+     * @return The chassis rotation speed of the last lookup, in radians/sec.
+     */
+    public double getSpeedRotation() {
+        return m_speedRotation;
+    }
+
+    /**
+     * Compile the path tables for all of the path files in a directory, writing each table next to its path
+     * file. This is run ahead of time by the {@code compilePathTables} gradle task so current tables are deployed
+     * with the paths.
+     *
+     * @param args The paths directory, and optionally the sample interval in seconds.
+     */
+    public static void main(String... args) {
+        File pathsDirectory = new File((args.length > 0) ? args[0] : "src/main/deploy/paths");
+        double dt = (args.length > 1) ? Double.parseDouble(args[1]) : Constants.PATH_TABLE_DT;
+        File[] pathFiles = pathsDirectory.listFiles((dir, name) -> name.endsWith(".json"));
+        if (null == pathFiles) {
+            System.out.println("No paths directory: " + pathsDirectory);
+            return;
+        }
+        for (File pathFile : pathFiles) {
+            PathTable table = load(pathFile.toPath(), dt);
+            System.out.println((null == table) ? "FAILED  " + pathFile : String.format("%6d samples %8.3f sec  %s",
+                    table.getCount(), table.getDuration(), tableFileFor(pathFile.toPath())));
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package frc.robot;
+
+/**
+ * A holonomic trajectory tracking controller for following a path. The path provides the feed-forward - the
+ * chassis speeds the robot should be moving at now - and the controller adds PID corrections for the error
+ * between where the path says the robot should be and where odometry says the robot is.
+ * <p>
+ * The position error is corrected in field coordinates, then the corrected field velocity is converted to
+ * chassis forward and strafe using the actual robot heading. This means a heading error does not also become a
+ * position error - the path speeds are relative to the path heading, so they are rotated onto the actual
+ * heading rather than applied to the chassis directly.
+ * <p>
+ * The result is computed by {@link #compute(double, double, double, double, double, double, double, double,
+ * double, double)} and read with {@link #getForward()}, {@link #getStrafe()}, and {@link #getRotation()}.
+ * Nothing is allocated in the compute. This class is not thread safe.
+ */
+public class PathTrackingController {
+
+    private final double m_kP;
+    private final double m_kI;
+    private final double m_kD;
+    private final double m_headingKP;
+    private final double m_headingKI;
+    private final double m_headingKD;
+
+    // the controller state, in field coordinates
+    private boolean m_hasLastError = false;
+    private double m_lastErrorX = 0.0;
+    private double m_lastErrorY = 0.0;
+    private double m_lastErrorHeading = 0.0;
+    private double m_integralX = 0.0;
+    private double m_integralY = 0.0;
+    private double m_integralHeading = 0.0;
+
+    // the results of the last compute, chassis relative
+    private double m_forward = 0.0;
+    private double m_strafe = 0.0;
+    private double m_rotation = 0.0;
+
+    /**
+     * Instantiate a tracking controller with the tracking gains from {@link Constants}.
+     */
+    public PathTrackingController() {
+        this(Constants.TRACKING_kP, Constants.TRACKING_kI, Constants.TRACKING_kD,
+                Constants.TRACKING_HEADING_kP, Constants.TRACKING_HEADING_kI, Constants.TRACKING_HEADING_kD);
+    }
+
+    /**
+     * Instantiate a tracking controller.
+     *
+     * @param kP        (double) The position error proportional gain, (meters/sec) per meter.
+     * @param kI        (double) The position error integral gain, (meters/sec) per meter-sec.
+     * @param kD        (double) The position error derivative gain, (meters/sec) per (meter/sec).
+     * @param headingKP (double) The heading error proportional gain, (radians/sec) per radian.
+     * @param headingKI (double) The heading error integral gain, (radians/sec) per radian-sec.
+     * @param headingKD (double) The heading error derivative gain, (radians/sec) per (radian/sec).
+     */
+    public PathTrackingController(double kP, double kI, double kD,
+                                  double headingKP, double headingKI, double headingKD) {
+        m_kP = kP;
+        m_kI = kI;
+        m_kD = kD;
+        m_headingKP = headingKP;
+        m_headingKI = headingKI;
+        m_headingKD = headingKD;
+    }
+
+    /**
+     * Reset the controller state. This should be called when starting a path.
+     */
+    public void reset() {
+        m_hasLastError = false;
+        m_integralX = 0.0;
+        m_integralY = 0.0;
+        m_integralHeading = 0.0;
+    }
+
+    /**
+     * Compute the chassis speeds that follow the path and correct the error between the path and the robot.
+     *
+     * @param pathX             (double) The field X the robot should be at now, in meters.
+     * @param pathY             (double) The field Y the robot should be at now, in meters.
+     * @param pathHeading       (double) The heading the robot should be at now, in radians.
+     * @param pathSpeedForward  (double) The path forward speed, relative to the path heading, in meters/sec.
+     * @param pathSpeedStrafe   (double) The path strafe speed, relative to the path heading, in meters/sec.
+     * @param pathSpeedRotation (double) The path rotation speed, in radians/sec.
+     * @param robotX            (double) The field X of the robot, in meters.
+     * @param robotY            (double) The field Y of the robot, in meters.
+     * @param robotHeading      (double) The heading of the robot, in radians.
+     * @param dt                (double) The time since the last compute, in seconds.
+     */
+    public void compute(double pathX, double pathY, double pathHeading,
+                        double pathSpeedForward, double pathSpeedStrafe, double pathSpeedRotation,
+                        double robotX, double robotY, double robotHeading, double dt) {
+        // the path velocity in field coordinates
+        double sinPath = Math.sin(pathHeading);
+        double cosPath = Math.cos(pathHeading);
+        double fieldSpeedX = (pathSpeedForward * sinPath) + (pathSpeedStrafe * cosPath);
+        double fieldSpeedY = (pathSpeedForward * cosPath) - (pathSpeedStrafe * sinPath);
+
+        // the PID corrections
+        double errorX = pathX - robotX;
+        double errorY = pathY - robotY;
+        double errorHeading = pathHeading - robotHeading;
+        double derivativeX = 0.0;
+        double derivativeY = 0.0;
+        double derivativeHeading = 0.0;
+        if (dt > 0.0) {
+            m_integralX += errorX * dt;
+            m_integralY += errorY * dt;
+            m_integralHeading += errorHeading * dt;
+            if (m_hasLastError) {
+                derivativeX = (errorX - m_lastErrorX) / dt;
+                derivativeY = (errorY - m_lastErrorY) / dt;
+                derivativeHeading = (errorHeading - m_lastErrorHeading) / dt;
+            }
+        }
+        m_hasLastError = true;
+        m_lastErrorX = errorX;
+        m_lastErrorY = errorY;
+        m_lastErrorHeading = errorHeading;
+        fieldSpeedX += (m_kP * errorX) + (m_kI * m_integralX) + (m_kD * derivativeX);
+        fieldSpeedY += (m_kP * errorY) + (m_kI * m_integralY) + (m_kD * derivativeY);
+        m_rotation = pathSpeedRotation +
+                (m_headingKP * errorHeading) + (m_headingKI * m_integralHeading) + (m_headingKD * derivativeHeading);
+
+        // the field velocity relative to the actual robot heading
+        double sinRobot = Math.sin(robotHeading);
+        double cosRobot = Math.cos(robotHeading);
+        m_forward = (fieldSpeedX * sinRobot) + (fieldSpeedY * cosRobot);
+        m_strafe = (fieldSpeedX * cosRobot) - (fieldSpeedY * sinRobot);
+    }
+
+    /**
+     * @return The chassis forward speed from the last compute, in meters/sec.
+     */
+    public double getForward() {
+        return m_forward;
+    }
+
+    /**
+     * @return The chassis strafe speed from the last compute, in meters/sec.
+     */
+    public double getStrafe() {
+        return m_strafe;
+    }
+
+    /**
+     * @return The chassis rotation speed from the last compute, in radians/sec.
+     */
+    public double getRotation() {
+        return m_rotation;
+    }
+}
@@ -5,10 +5,14 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj.TimedRobot;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.commands.FollowPathCommand;
+import frc.robot.sim.SwerveSimulation;
+import frc.robot.subsystems.DriveSubsystem;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -23,97 +27,32 @@ public class Robot extends TimedRobot {
 
   private NavX m_navx;
 
-  // Telemetry variables
-  private double m_lastPort0 = 1000.0;
-  private int m_lastPort1 = -1;
-  private String m_lastPort2 = "";
-  private double m_lastPort3 = -1.0;
-  private double m_lastPort4 = -1.0;
-  private double m_lastPort5 = -1.0;
-  private double m_lastPort6 = -1.0;
-  private double m_lastPort7 = -1.0;
-  private double m_lastPort8 = -1.0;
-  private double m_lastPort9 = -1.0;
+  // the robot loop stage timing
+  private final LoopTiming m_loopTiming = LoopTiming.getInstance();
+  private final LoopTiming.Stage m_schedulerTiming = m_loopTiming.getStage("scheduler");
+  private final LoopTiming.Stage m_telemetryTiming = m_loopTiming.getStage("telemetry");
 
-  /**
-   * Update telemetry feedback for a real number value. If the value has not changed, no update is sent
-   *
-   * @param port      (int) The port 0 - 9 to write to.
-   * @param key       (String) The key for the telemetry.
-   * @param var       (double) The number to be reported.
-   * @param lastValue (double) The last value reported.
-   * @return (double) Returns {@code var}
-   */
-  @SuppressWarnings("unused")
-  private double dashboardTelemetry(int port, String key, double var, double lastValue) {
-    if (var != lastValue) {
-      SmartDashboard.putString(String.format("DB/String %d", port), String.format("%s: %10.6f", key, var));
-    }
-    return var;
-  }
+  // telemetry, read and published at the telemetry rate rather than every robot loop
+  private final TelemetryPublisher m_telemetry = new TelemetryPublisher();
 
-  /**
-   * Update telemetry feedback for an integer value. If the value has not changed, no update is sent
-   *
-   * @param port      (int) The port 0 - 9 to write to.
-   * @param key       (String) The key for the telemetry.
-   * @param var       (int) The integer to be reported.
-   * @param lastValue (int) The last value reported.
-   * @return (int) Returns {@code var}
-   */
-  @SuppressWarnings("unused")
-  private int dashboardTelemetry(int port, String key, int var, int lastValue) {
-    if (var != lastValue) {
-      SmartDashboard.putString(String.format("DB/String %d", port), String.format("%s: %d", key, var));
-    }
-    return var;
-  }
+  // the flight recorder has records that must be handed to its writer thread when the writer is ready
+  private boolean m_flightRecorderFlushPending = false;
 
   /**
-   * Update telemetry feedback for a string value. If the value has not changed, no update is sent
-   *
-   * @param port      (int) The port 0 - 9 to write to.
-   * @param key       (String) The key for the telemetry.
-   * @param var       (String) The string to be reported.
-   * @param lastValue (String) The last value reported.
-   * @return (String) Returns {@code var}
+   * Register the telemetry values with the telemetry publisher. This is called once, after the robot container
+   * has been created.
    */
-  @SuppressWarnings("unused")
-  private String dashboardTelemetry(int port, String key, String var, String lastValue) {
-    if ((var != lastValue) && !var.equals(lastValue)) {
-      SmartDashboard.putString(String.format("DB/String %d", port), String.format("%s: %s", key, var));
-    }
-    return var;
-  }
-
-  /**
-   * Update telemetry feedback for a boolean value. If the value has not changed, no update is sent
-   *
-   * @param port      (int) The port 0 - 9 to write to.
-   * @param key       (String) The key for the telemetry.
-   * @param var       (boolean) The boolean to be reported.
-   * @param lastValue (boolean) The last value reported.
-   * @return (boolean) Returns {@code var}
-   */
-  @SuppressWarnings("unused")
-  private boolean dashboardTelemetry(int port, String key, boolean var, boolean lastValue) {
-    if (var != lastValue) {
-      SmartDashboard.putString(String.format("DB/String %d", port),
-          String.format("%s: %s", key, var ? "on" : "off"));
-    }
-    return var;
-  }
-
-  private void displayTelemetry() {
-    m_lastPort0 = dashboardTelemetry(0, "Heading", m_navx.getHeadingInfo().heading, m_lastPort0);
-    m_lastPort1 = dashboardTelemetry(1, "Driver", m_robotContainer.readDriverID(), m_lastPort1);
-    m_lastPort2 = dashboardTelemetry(2, "Auto", Constants.AutonomousPath.getName(), m_lastPort2);
-    // m_lastPort3 =
-    // m_lastPort4 =
-    m_lastPort5 = dashboardTelemetry(5, "Field X", m_robotContainer.getDriveSubsystem().getFieldX(), m_lastPort5);
-    m_lastPort6 = dashboardTelemetry(6, "Field Y", m_robotContainer.getDriveSubsystem().getFieldY(), m_lastPort6);
-    // m_lastPort7 =
-    // m_lastPort8 =
+  private void registerTelemetry() {
+    DriveSubsystem driveSubsystem = m_robotContainer.getDriveSubsystem();
+    m_telemetry.addNumber("Heading", m_navx::getHeading, Constants.TELEMETRY_HEADING_DEADBAND);
+    m_telemetry.addInteger("Driver", m_robotContainer::readDriverID);
+    m_telemetry.addString("Auto", Constants.AutonomousPath::getName);
+    m_telemetry.addString("NavX", () -> m_navx.getStatus().name());
+    m_telemetry.addNumber("Drift deg per min",
+        () -> Math.toDegrees(driveSubsystem.getDriftEstimator().getDriftRate()) * 60.0,
+        Constants.TELEMETRY_DRIFT_DEADBAND);
+    m_telemetry.addNumber("Field X", driveSubsystem::getFieldX, Constants.TELEMETRY_POSITION_DEADBAND);
+    m_telemetry.addNumber("Field Y", driveSubsystem::getFieldY, Constants.TELEMETRY_POSITION_DEADBAND);
   }
 
   /**
@@ -123,9 +62,9 @@ public class Robot extends TimedRobot {
   @Override
   public void robotInit() {
 
-    // empty the telemetry display
-    for (int i = 0; i < 10; i++) {
-      SmartDashboard.putString(String.format("DB/String %d", i), " ");
+    if (isSimulation() && Constants.SIM_USE_VIRTUAL_TIME) {
+      // the drive simulation advances the clock, see simulationPeriodic()
+      RobotClock.useVirtualTime(System.nanoTime());
     }
 
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
@@ -137,6 +76,19 @@ public class Robot extends TimedRobot {
 
     m_navx = NavX.getInstance();
     m_navx.initializeHeadingAndNav();
+
+    registerTelemetry();
+
+    if (Constants.USE_FLIGHT_RECORDER) {
+      try {
+        // the logs are numbered rather than dated - the clock is not set until the driver station connects
+        m_robotContainer.getDriveSubsystem().getFlightRecorder().start(FlightRecorder.nextLogFile(
+            Paths.get(isReal() ? Constants.FLIGHT_RECORDER_DIRECTORY : Constants.FLIGHT_RECORDER_SIM_DIRECTORY),
+            Constants.FLIGHT_RECORDER_MAX_LOGS), Constants.FLIGHT_RECORDER_MAX_LOG_BYTES);
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
   }
 
   /**
@@ -152,17 +104,34 @@ public class Robot extends TimedRobot {
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
+    long start = System.nanoTime();
     CommandScheduler.getInstance().run();
-    displayTelemetry();
+    long telemetryStart = System.nanoTime();
+    m_schedulerTiming.record(telemetryStart - start);
+    if (isEnabled()) {
+      // only the enabled robot is recorded, so the log is not written while the robot sits in the pit
+      m_robotContainer.getDriveSubsystem().recordFlightData(RobotClock.nanoTime());
+    }
+    m_telemetry.publish(telemetryStart);
+    m_telemetryTiming.end(telemetryStart);
+    m_loopTiming.report(telemetryStart);
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
   @Override
   public void disabledInit() {
+    // the match (or this part of it) is over, write what has been recorded - if the writer is still writing the
+    // last buffer, keep trying in disabledPeriodic() until it is handed off
+    m_flightRecorderFlushPending = !m_robotContainer.getDriveSubsystem().getFlightRecorder().flush();
   }
 
   @Override
   public void disabledPeriodic() {
+    if (m_flightRecorderFlushPending) {
+      m_flightRecorderFlushPending = !m_robotContainer.getDriveSubsystem().getFlightRecorder().flush();
+    }
+    // follow the autonomous selection on the switchboard so the selected path is shown on the dashboard
+    Constants.AutonomousPath.setAutonomousToId(m_robotContainer.readAutoID());
   }
 
   /**
@@ -219,4 +188,16 @@ public class Robot extends TimedRobot {
   @Override
   public void testPeriodic() {
   }
+
+  /**
+   * This function is called periodically when the robot code is run in simulation, advance the drive simulation
+   * (and the virtual {@link RobotClock}, if it is being used) by one robot loop.
+   */
+  @Override
+  public void simulationPeriodic() {
+    SwerveSimulation simulation = m_robotContainer.getSimulation();
+    if (simulation != null) {
+      simulation.step(getPeriod());
+    }
+  }
 }
@@ -0,0 +1,73 @@
+package frc.robot;
+
+/**
+ * The time used by the drive and path code. On the robot this is the system {@link System#nanoTime()} time, so
+ * the control code measures loop intervals to the nanosecond rather than to the millisecond. For replay (see
+ * {@link LogReplay}) and simulation (see {@link frc.robot.sim.SwerveSimulation}) it is a virtual time that only
+ * changes when it is set or advanced, so the control code sees exactly the recorded or simulated times, however
+ * fast or slow the replay or simulation runs.
+ * <p>
+ * The clock only replaces the times the control code computes with. Thread scheduling (the sleeps and parks of
+ * the sampling, odometry, and dispatch threads) and the loop timing (see {@link LoopTiming}) always use the
+ * system time.
+ */
+public final class RobotClock {
+
+    private static volatile boolean m_virtual = false;
+    private static volatile long m_virtualNanos = 0L;
+
+    private RobotClock() {
+    }
+
+    /**
+     * @return The current time, in nanoseconds. Like {@link System#nanoTime()}, this is only meaningful as a
+     *     difference between two times.
+     */
+    public static long nanoTime() {
+        return m_virtual ? m_virtualNanos : System.nanoTime();
+    }
+
+    /**
+     * Switch to virtual time, starting at the specified time.
+     *
+     * @param nanos (long) The virtual time, in nanoseconds.
+     */
+    public static void useVirtualTime(long nanos) {
+        m_virtualNanos = nanos;
+        m_virtual = true;
+    }
+
+    /**
+     * Set the virtual time. This does nothing unless the clock is using virtual time.
+     *
+     * @param nanos (long) The virtual time, in nanoseconds.
+     */
+    public static void setVirtualTime(long nanos) {
+        m_virtualNanos = nanos;
+    }
+
+    /**
+     * Advance the virtual time. This does nothing unless the clock is using virtual time.
+     *
+     * @param nanos (long) The time to advance the virtual time by, in nanoseconds.
+     */
+    public static void advance(long nanos) {
+        if (m_virtual) {
+            m_virtualNanos += nanos;
+        }
+    }
+
+    /**
+     * Switch back to the system time.
+     */
+    public static void useSystemTime() {
+        m_virtual = false;
+    }
+
+    /**
+     * @return {@code true} if the clock is using virtual time, {@code false} if it is using the system time.
+     */
+    public static boolean isVirtual() {
+        return m_virtual;
+    }
+}
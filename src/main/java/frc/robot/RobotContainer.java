@@ -7,15 +7,16 @@ package frc.robot;
 import edu.wpi.first.wpilibj.DigitalInput;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 import edu.wpi.first.wpilibj2.command.button.POVButton;
 import frc.robot.commands.DriveCommandXbox;
 import frc.robot.commands.FollowPathCommand;
+import frc.robot.sim.SwerveSimulation;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.OdometryTargetError;
-import org.a05annex.util.geo2d.KochanekBartelsSpline;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -26,6 +27,8 @@ import org.a05annex.util.geo2d.KochanekBartelsSpline;
 public class RobotContainer {
 
   private final DriveSubsystem m_driveSubsystem;
+  // the drive simulation, null when running on the robot
+  private final SwerveSimulation m_simulation;
   //private final DriveCommand m_driveCommand;
   private final DriveCommandXbox m_driveCommandXbox;
   private final OdometryTargetError m_odometryTargetError;
@@ -64,17 +67,28 @@ public class RobotContainer {
   private DigitalInput switch3 = new DigitalInput(3);
   private DigitalInput switch4 = new DigitalInput(4);
 
-  private FollowPathCommand m_autonomousCommand = null;
-  private KochanekBartelsSpline m_autonomousSpline = null;
+  private final AutonomousPathCache m_autonomousPathCache = new AutonomousPathCache();
 
   /**
    * The container for the robot.  Contains subsystems, OI devices, and commands.
    */
   public RobotContainer() {
 
-    // subsystems
-    m_driveSubsystem = new DriveSubsystem();
+    // subsystems - when the robot code is run in simulation the drive runs on simulated hardware
+    if (RobotBase.isSimulation()) {
+      m_simulation = new SwerveSimulation();
+      m_driveSubsystem = m_simulation.createDriveSubsystem();
+    } else {
+      m_simulation = null;
+      m_driveSubsystem = new DriveSubsystem();
+    }
     m_odometryTargetError = new OdometryTargetError(m_driveSubsystem);
+    if (Constants.USE_ODOMETRY_THREAD) {
+      m_driveSubsystem.startOdometryThread(Constants.ODOMETRY_RATE_HZ);
+    }
+    if (Constants.USE_DISPATCH_THREAD) {
+      m_driveSubsystem.startDispatchThread();
+    }
 
     // commands
     //m_driveCommand = new DriveCommand(m_stick, m_driveSubsystem);
@@ -84,12 +98,10 @@ public class RobotContainer {
     //m_driveSubsystem.setDefaultCommand(m_driveCommand);
     m_driveSubsystem.setDefaultCommand(m_driveCommandXbox);
 
-    // set the default autonomous command -
+    // select the default autonomous path, and load all of the paths in the background so any path selected
+    // before autonomous starts is ready to go
     Constants.AutonomousPath.setAutonomousToId(readAutoID());
-    m_autonomousSpline = Constants.AutonomousPath.load();
-    if ( m_autonomousSpline != null) {
-      m_autonomousCommand = new FollowPathCommand(m_autonomousSpline, m_driveSubsystem);
-    }
+    m_autonomousPathCache.startPreload();
 
     // Configure the button bindings
     configureButtonBindings();
@@ -116,8 +128,10 @@ public class RobotContainer {
     // In this method is called it means the robot are getting ready to run an autonomous path. Before we run tha
     // path we need to make sure the NavX is initialized to the robot heading (which may not be 0.0) and that
     // the swerve drive modules are prepared (oriented in the right direction) for the first command in the path.
-
-    return m_autonomousCommand;
+    // The path is whatever is selected on the switchboard right now.
+    Constants.AutonomousPath.setAutonomousToId(readAutoID());
+    PathTable pathTable = m_autonomousPathCache.get(Constants.AutonomousPath.getSelected());
+    return (pathTable != null) ? new FollowPathCommand(pathTable, m_driveSubsystem) : null;
   }
 
   public int readDriverID() {
@@ -139,4 +153,11 @@ public class RobotContainer {
   public DriveSubsystem getDriveSubsystem() {
     return m_driveSubsystem;
   }
+
+  /**
+   * @return The drive simulation, {@code null} if the robot is not being simulated.
+   */
+  public SwerveSimulation getSimulation() {
+    return m_simulation;
+  }
 }
@@ -0,0 +1,342 @@
+package frc.robot;
+
+/**
+ * The kinematics for a swerve drive with any number of modules at any positions on the chassis. The inverse
+ * kinematics convert a chassis {@code forward}, {@code strafe}, and {@code rotation} into the direction and
+ * normalized speed for each drive module; the forward kinematics find the chassis motion that best matches (in
+ * the least squares sense) a measured motion of each module, and is used for odometry.
+ * <p>
+ * The kinematics object is created once and reused every command cycle; results are written into preallocated
+ * arrays so computing the module settings does not allocate anything on the heap.
+ * <p>
+ * Module positions are specified relative to the center of rotation of the chassis, which need not be the
+ * center of the modules. The module indices are the order the positions are specified in. For the standard
+ * 4 module rectangular chassis, {@link #SwerveKinematics(double, double)}, the module indices are {@link #RF},
+ * {@link #LF}, {@link #LR}, and {@link #RR}.
+ */
+public class SwerveKinematics {
+
+    /** The index of the right front module on a 4 module rectangular chassis. */
+    public static final int RF = 0;
+    /** The index of the left front module on a 4 module rectangular chassis. */
+    public static final int LF = 1;
+    /** The index of the left rear module on a 4 module rectangular chassis. */
+    public static final int LR = 2;
+    /** The index of the right rear module on a 4 module rectangular chassis. */
+    public static final int RR = 3;
+
+    private final int m_moduleCount;
+
+    /**
+     * The distance from the center of rotation to the furthest module. A chassis rotation of 1.0 is the
+     * rotation that moves the furthest module at a speed of 1.0.
+     */
+    private final double m_rotationRadius;
+    /**
+     * The inverse kinematics matrix, 2 rows per module (module forward, then module strafe) by 3 columns (chassis
+     * forward, strafe, and rotation), stored by row.
+     */
+    private final double[] m_inverse;
+    /**
+     * The forward kinematics matrix, the least squares pseudo-inverse of {@link #m_inverse}. 3 rows (chassis
+     * forward, strafe, and rotation) by 2 columns per module (module forward, then module strafe), stored by row.
+     */
+    private final double[] m_forwardKinematics;
+    /**
+     * The module directions for rotation in place, in radians.
+     */
+    private final double[] m_rotationRadians;
+
+    // the results of the last inverse kinematics computation
+    private final double[] m_speeds;
+    private final double[] m_radians;
+    private double m_forward = 0.0;
+    private double m_strafe = 0.0;
+    private double m_rotation = 0.0;
+
+    // the results of the last forward kinematics computation
+    private double m_chassisForward = 0.0;
+    private double m_chassisStrafe = 0.0;
+    private double m_chassisRotation = 0.0;
+
+    /**
+     * Instantiate the kinematics for a 4 module rectangular chassis rotating about its center.
+     *
+     * @param length (double) The distance between the centers of the front and rear wheels.
+     * @param width  (double) The distance between the centers of the left and right wheels.
+     */
+    public SwerveKinematics(double length, double width) {
+        this(new double[]{length / 2.0, length / 2.0, -length / 2.0, -length / 2.0},
+                new double[]{width / 2.0, -width / 2.0, -width / 2.0, width / 2.0});
+    }
+
+    /**
+     * Instantiate the kinematics for modules at the specified positions.
+     *
+     * @param moduleForward (double[], not null) The forward position of each module from the center of rotation,
+     *                      positive is towards the front of the robot.
+     * @param moduleStrafe  (double[], not null) The strafe position of each module from the center of rotation,
+     *                      positive is towards the right of the robot.
+     * @throws IllegalArgumentException if the position arrays are different lengths, there are fewer than 2
+     *                                  modules, or the modules are all at the center of rotation.
+     */
+    public SwerveKinematics(double[] moduleForward, double[] moduleStrafe) {
+        if (moduleForward.length != moduleStrafe.length) {
+            throw new IllegalArgumentException("There must be a forward and strafe position for every module.");
+        }
+        m_moduleCount = moduleForward.length;
+        if (m_moduleCount < 2) {
+            throw new IllegalArgumentException("A swerve drive needs at least 2 modules.");
+        }
+        m_inverse = new double[m_moduleCount * 6];
+        m_forwardKinematics = new double[m_moduleCount * 6];
+        m_rotationRadians = new double[m_moduleCount];
+        m_speeds = new double[m_moduleCount];
+        m_radians = new double[m_moduleCount];
+
+        double radius = 0.0;
+        for (int i = 0; i < m_moduleCount; i++) {
+            radius = Math.max(radius,
+                    Math.sqrt((moduleForward[i] * moduleForward[i]) + (moduleStrafe[i] * moduleStrafe[i])));
+        }
+        if (radius < Constants.SMALL) {
+            throw new IllegalArgumentException("The modules cannot all be at the center of rotation.");
+        }
+        m_rotationRadius = radius;
+
+        // Build the inverse kinematics. A clockwise chassis rotation moves a module at the front of the robot
+        // to the right, and a module at the right of the robot backwards.
+        for (int i = 0; i < m_moduleCount; i++) {
+            double rotationForward = -moduleStrafe[i] / radius;
+            double rotationStrafe = moduleForward[i] / radius;
+            int row = i * 6;
+            m_inverse[row] = 1.0;
+            m_inverse[row + 1] = 0.0;
+            m_inverse[row + 2] = rotationForward;
+            m_inverse[row + 3] = 0.0;
+            m_inverse[row + 4] = 1.0;
+            m_inverse[row + 5] = rotationStrafe;
+            m_rotationRadians[i] = Math.atan2(rotationStrafe, rotationForward);
+        }
+
+        // Build the forward kinematics, (AtA)^-1 At where A is the inverse kinematics matrix.
+        double[] ata = new double[9];
+        for (int r = 0; r < m_moduleCount * 2; r++) {
+            for (int j = 0; j < 3; j++) {
+                for (int k = 0; k < 3; k++) {
+                    ata[(j * 3) + k] += m_inverse[(r * 3) + j] * m_inverse[(r * 3) + k];
+                }
+            }
+        }
+        double[] ataInverse = invert3x3(ata);
+        for (int j = 0; j < 3; j++) {
+            for (int r = 0; r < m_moduleCount * 2; r++) {
+                double sum = 0.0;
+                for (int k = 0; k < 3; k++) {
+                    sum += ataInverse[(j * 3) + k] * m_inverse[(r * 3) + k];
+                }
+                m_forwardKinematics[(j * m_moduleCount * 2) + r] = sum;
+            }
+        }
+    }
+
+    /**
+     * Instantiate a copy of another kinematics. The copy has the same module positions, and its own result
+     * arrays, so it can be used on a different thread than the original.
+     *
+     * @param kinematics (SwerveKinematics, not null) The kinematics to copy.
+     */
+    public SwerveKinematics(SwerveKinematics kinematics) {
+        m_moduleCount = kinematics.m_moduleCount;
+        m_rotationRadius = kinematics.m_rotationRadius;
+        m_inverse = kinematics.m_inverse.clone();
+        m_forwardKinematics = kinematics.m_forwardKinematics.clone();
+        m_rotationRadians = kinematics.m_rotationRadians.clone();
+        m_speeds = new double[m_moduleCount];
+        m_radians = new double[m_moduleCount];
+    }
+
+    private static double[] invert3x3(double[] m) {
+        double c00 = (m[4] * m[8]) - (m[5] * m[7]);
+        double c01 = (m[5] * m[6]) - (m[3] * m[8]);
+        double c02 = (m[3] * m[7]) - (m[4] * m[6]);
+        double det = (m[0] * c00) + (m[1] * c01) + (m[2] * c02);
+        if (Math.abs(det) < Constants.SMALL) {
+            throw new IllegalArgumentException("The module positions do not determine the chassis motion.");
+        }
+        return new double[]{
+                c00 / det, ((m[2] * m[7]) - (m[1] * m[8])) / det, ((m[1] * m[5]) - (m[2] * m[4])) / det,
+                c01 / det, ((m[0] * m[8]) - (m[2] * m[6])) / det, ((m[2] * m[3]) - (m[0] * m[5])) / det,
+                c02 / det, ((m[1] * m[6]) - (m[0] * m[7])) / det, ((m[0] * m[4]) - (m[1] * m[3])) / det};
+    }
+
+    /**
+     * Get the number of modules.
+     *
+     * @return The number of modules.
+     */
+    public int getModuleCount() {
+        return m_moduleCount;
+    }
+
+    /**
+     * Get the distance from the center of rotation to the furthest module. A chassis rotation of 1.0 moves the
+     * furthest module at a speed of 1.0; so, for example, a chassis rotation from {@link #computeChassis} with
+     * module distances in meters is converted to radians by dividing by this radius (in meters).
+     *
+     * @return The distance from the center of rotation to the furthest module.
+     */
+    public double getRotationRadius() {
+        return m_rotationRadius;
+    }
+
+    /**
+     * Compute the module directions and speeds for the specified chassis relative components. If any module
+     * speed would be greater than 1.0, all of the module speeds, and the chassis components, are scaled so the
+     * fastest module runs at 1.0. If a module speed is small or 0, (i.e. the module is essentially stopped),
+     * the last direction of that module is kept because its next motion will probably be very close to its
+     * last motion.
+     *
+     * @param forward  Drive forward. From -1 (full backwards) to 1 (full forwards.
+     * @param strafe   Strafe right. From -1 (full left)  to 1 (full right).
+     * @param rotation Clockwise rotation. From -1 (full counter-clockwise) to 1 (full clockwise).
+     */
+    public void compute(double forward, double strafe, double rotation) {
+        // One pass through the inverse kinematics matrix computes the module vectors, the speeds, and finds the
+        // maximum speed.
+        double max = 0.0;
+        for (int i = 0, row = 0; i < m_moduleCount; i++, row += 6) {
+            double moduleForward = (m_inverse[row] * forward) + (m_inverse[row + 1] * strafe) +
+                    (m_inverse[row + 2] * rotation);
+            double moduleStrafe = (m_inverse[row + 3] * forward) + (m_inverse[row + 4] * strafe) +
+                    (m_inverse[row + 5] * rotation);
+            double speed = Math.sqrt((moduleForward * moduleForward) + (moduleStrafe * moduleStrafe));
+            m_speeds[i] = speed;
+            if (speed >= Constants.SMALL) {
+                m_radians[i] = Math.atan2(moduleStrafe, moduleForward);
+            }
+            if (speed > max) {
+                max = speed;
+            }
+        }
+
+        // normalize speeds
+        if (max > 1.0) {
+            for (int i = 0; i < m_moduleCount; i++) {
+                m_speeds[i] /= max;
+            }
+            forward /= max;
+            strafe /= max;
+            rotation /= max;
+        }
+        m_forward = forward;
+        m_strafe = strafe;
+        m_rotation = rotation;
+    }
+
+    /**
+     * Compute the chassis motion that best matches the measured motion of each module. The module motion is
+     * expressed as a distance (or speed) and a direction for each module; the chassis forward and strafe are
+     * in the same units as the module distances, and the chassis rotation is the rotation that would move the
+     * furthest module that distance (see {@link #getRotationRadius()}). When the modules do not agree (i.e.
+     * there is some wheel slip or measurement error) this is the least squares best fit.
+     *
+     * @param distances (double[], not null) The distance (or speed) of each module.
+     * @param radians   (double[], not null) The direction of each module, in radians, where 0.0 is towards the
+     *                  front of the robot, and positive is clockwise.
+     */
+    public void computeChassis(double[] distances, double[] radians) {
+        int columns = m_moduleCount * 2;
+        double forward = 0.0;
+        double strafe = 0.0;
+        double rotation = 0.0;
+        for (int i = 0, col = 0; i < m_moduleCount; i++, col += 2) {
+            double moduleForward = distances[i] * Math.cos(radians[i]);
+            double moduleStrafe = distances[i] * Math.sin(radians[i]);
+            forward += (m_forwardKinematics[col] * moduleForward) + (m_forwardKinematics[col + 1] * moduleStrafe);
+            strafe += (m_forwardKinematics[columns + col] * moduleForward) +
+                    (m_forwardKinematics[columns + col + 1] * moduleStrafe);
+            rotation += (m_forwardKinematics[(2 * columns) + col] * moduleForward) +
+                    (m_forwardKinematics[(2 * columns) + col + 1] * moduleStrafe);
+        }
+        m_chassisForward = forward;
+        m_chassisStrafe = strafe;
+        m_chassisRotation = rotation;
+    }
+
+    /**
+     * Set the module directions for rotating the chassis in place, and the module speeds to 0.0.
+     */
+    public void computeRotationInPlace() {
+        for (int i = 0; i < m_moduleCount; i++) {
+            m_radians[i] = m_rotationRadians[i];
+            m_speeds[i] = 0.0;
+        }
+        m_forward = 0.0;
+        m_strafe = 0.0;
+        m_rotation = 0.0;
+    }
+
+    /**
+     * Get the normalized speed of a module from the last computation.
+     *
+     * @param module (int) The module index.
+     * @return The normalized module speed, 0.0 to 1.0.
+     */
+    public double getSpeed(int module) {
+        return m_speeds[module];
+    }
+
+    /**
+     * Get the direction of a module from the last computation.
+     *
+     * @param module (int) The module index.
+     * @return The module direction from -pi to pi radians where 0.0 is towards the front of the robot, and
+     * positive is clockwise.
+     */
+    public double getRadians(int module) {
+        return m_radians[module];
+    }
+
+    /**
+     * @return The chassis forward from the last computation, after normalization.
+     */
+    public double getForward() {
+        return m_forward;
+    }
+
+    /**
+     * @return The chassis strafe from the last computation, after normalization.
+     */
+    public double getStrafe() {
+        return m_strafe;
+    }
+
+    /**
+     * @return The chassis rotation from the last computation, after normalization.
+     */
+    public double getRotation() {
+        return m_rotation;
+    }
+
+    /**
+     * @return The chassis forward from the last forward kinematics computation.
+     */
+    public double getChassisForward() {
+        return m_chassisForward;
+    }
+
+    /**
+     * @return The chassis strafe from the last forward kinematics computation.
+     */
+    public double getChassisStrafe() {
+        return m_chassisStrafe;
+    }
+
+    /**
+     * @return The chassis rotation from the last forward kinematics computation.
+     */
+    public double getChassisRotation() {
+        return m_chassisRotation;
+    }
+}
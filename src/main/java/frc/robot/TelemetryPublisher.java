@@ -0,0 +1,224 @@
+package frc.robot;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Publishes telemetry to the SmartDashboard. Each telemetry value is registered once, with the key it is
+ * published as and the source it is read from. {@link #publish(long)} is called every robot loop, but only reads
+ * the sources every {@link Constants#TELEMETRY_PERIOD} seconds, and only publishes the values that have changed -
+ * a number has changed when it has moved more than its deadband from the last value published. Numbers are
+ * published as numbers rather than formatted strings, so publishing does not allocate anything, and values that
+ * change every loop (like the heading and field position) do not flood the network tables.
+ * <p>
+ * The sources are read on the thread calling {@link #publish(long)}, normally the robot loop thread.
+ */
+public class TelemetryPublisher {
+
+    // The maximum number of telemetry values, so the values are a preallocated array.
+    private static final int MAX_VALUES = 32;
+
+    /**
+     * A registered telemetry value.
+     */
+    private abstract static class Value {
+        final String m_key;
+        boolean m_published = false;
+
+        Value(String key) {
+            m_key = key;
+        }
+
+        /**
+         * Read the source, and publish the value if it has changed since it was last published.
+         *
+         * @return {@code true} if the value was published, {@code false} otherwise.
+         */
+        abstract boolean publish();
+    }
+
+    private static class NumberValue extends Value {
+        private final DoubleSupplier m_source;
+        private final double m_deadband;
+        private double m_last = 0.0;
+
+        NumberValue(String key, DoubleSupplier source, double deadband) {
+            super(key);
+            m_source = source;
+            m_deadband = deadband;
+        }
+
+        @Override
+        boolean publish() {
+            double value = m_source.getAsDouble();
+            if (m_published && ((Math.abs(value - m_last) <= m_deadband) ||
+                    (Double.isNaN(value) && Double.isNaN(m_last)))) {
+                return false;
+            }
+            SmartDashboard.putNumber(m_key, value);
+            m_last = value;
+            m_published = true;
+            return true;
+        }
+    }
+
+    private static class IntegerValue extends Value {
+        private final IntSupplier m_source;
+        private int m_last = 0;
+
+        IntegerValue(String key, IntSupplier source) {
+            super(key);
+            m_source = source;
+        }
+
+        @Override
+        boolean publish() {
+            int value = m_source.getAsInt();
+            if (m_published && (value == m_last)) {
+                return false;
+            }
+            SmartDashboard.putNumber(m_key, value);
+            m_last = value;
+            m_published = true;
+            return true;
+        }
+    }
+
+    private static class BooleanValue extends Value {
+        private final BooleanSupplier m_source;
+        private boolean m_last = false;
+
+        BooleanValue(String key, BooleanSupplier source) {
+            super(key);
+            m_source = source;
+        }
+
+        @Override
+        boolean publish() {
+            boolean value = m_source.getAsBoolean();
+            if (m_published && (value == m_last)) {
+                return false;
+            }
+            SmartDashboard.putBoolean(m_key, value);
+            m_last = value;
+            m_published = true;
+            return true;
+        }
+    }
+
+    private static class StringValue extends Value {
+        private final Supplier<String> m_source;
+        private String m_last = null;
+
+        StringValue(String key, Supplier<String> source) {
+            super(key);
+            m_source = source;
+        }
+
+        @Override
+        boolean publish() {
+            String value = m_source.get();
+            if (null == value) {
+                value = "";
+            }
+            // the sources normally return the same string instance, so check that before comparing contents
+            if (m_published && ((value == m_last) || value.equals(m_last))) {
+                return false;
+            }
+            SmartDashboard.putString(m_key, value);
+            m_last = value;
+            m_published = true;
+            return true;
+        }
+    }
+
+    private final Value[] m_values = new Value[MAX_VALUES];
+    private int m_valueCt = 0;
+    private long m_lastPublishNanos = 0L;
+    private boolean m_started = false;
+
+    /**
+     * Register a number.
+     *
+     * @param key      (String, not null) The SmartDashboard key.
+     * @param source   (DoubleSupplier, not null) The source of the number.
+     * @param deadband (double) The number is only published when it moves more than this from the last
+     *                 number published.
+     */
+    public void addNumber(String key, DoubleSupplier source, double deadband) {
+        add(new NumberValue(key, source, deadband));
+    }
+
+    /**
+     * Register an integer.
+     *
+     * @param key    (String, not null) The SmartDashboard key.
+     * @param source (IntSupplier, not null) The source of the integer.
+     */
+    public void addInteger(String key, IntSupplier source) {
+        add(new IntegerValue(key, source));
+    }
+
+    /**
+     * Register a boolean.
+     *
+     * @param key    (String, not null) The SmartDashboard key.
+     * @param source (BooleanSupplier, not null) The source of the boolean.
+     */
+    public void addBoolean(String key, BooleanSupplier source) {
+        add(new BooleanValue(key, source));
+    }
+
+    /**
+     * Register a string. The source should return strings that already exist (like an enum name or a path name)
+     * rather than formatting a new string every time it is read.
+     *
+     * @param key    (String, not null) The SmartDashboard key.
+     * @param source (Supplier&lt;String&gt;, not null) The source of the string.
+     */
+    public void addString(String key, Supplier<String> source) {
+        add(new StringValue(key, source));
+    }
+
+    private void add(Value value) {
+        if (m_valueCt >= MAX_VALUES) {
+            throw new IllegalStateException(
+                    String.format("There can be at most %d telemetry values.", MAX_VALUES));
+        }
+        m_values[m_valueCt] = value;
+        m_valueCt++;
+    }
+
+    /**
+     * @return The number of registered telemetry values.
+     */
+    public int getValueCount() {
+        return m_valueCt;
+    }
+
+    /**
+     * Publish the changed telemetry values if {@link Constants#TELEMETRY_PERIOD} seconds have passed since they
+     * were last published. This should be called once every robot loop.
+     *
+     * @param nowNanos (long) The current {@link System#nanoTime()} time.
+     * @return The number of values published.
+     */
+    public int publish(long nowNanos) {
+        if (m_started && ((nowNanos - m_lastPublishNanos) * 1.0e-9 < Constants.TELEMETRY_PERIOD)) {
+            return 0;
+        }
+        m_started = true;
+        m_lastPublishNanos = nowNanos;
+        int published = 0;
+        for (int i = 0; i < m_valueCt; i++) {
+            if (m_values[i].publish()) {
+                published++;
+            }
+        }
+        return published;
+    }
+}
@@ -0,0 +1,138 @@
+package frc.robot;
+
+/**
+ * A fixed bucket histogram of durations in nanoseconds, in the style of an HDR histogram: durations under 64ns
+ * have their own bucket, and every power of two above that is split into 32 buckets, so a recorded duration is
+ * within about 3% of its bucket value all the way from nanoseconds to tens of seconds. The counts are a primitive
+ * array allocated when the histogram is created, so recording and reading percentiles does not allocate anything.
+ * <p>
+ * This class is not thread safe (see {@link LoopTiming.Stage} for the thread safe wrapper).
+ */
+public class TimingHistogram {
+
+    // the sub-buckets in each power of two
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // durations larger than this (about 34 seconds) are counted in the last bucket
+    private static final long MAX_TRACKED = (1L << 35) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_TRACKED) + 1;
+
+    private final long[] m_counts = new long[BUCKET_COUNT];
+    private long m_count = 0;
+    private long m_max = 0;
+    private long m_total = 0;
+
+    /**
+     * Get the bucket a duration is counted in.
+     *
+     * @param nanos (long) The duration, in nanoseconds, 0 or larger.
+     * @return The bucket index.
+     */
+    static int bucketIndex(long nanos) {
+        if (nanos < (SUB_COUNT << 1)) {
+            return (int) nanos;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(nanos)) - SUB_BITS;
+        return ((shift + 1) << SUB_BITS) + (int) ((nanos >>> shift) - SUB_COUNT);
+    }
+
+    /**
+     * Get the largest duration counted in a bucket.
+     *
+     * @param index (int) The bucket index.
+     * @return The largest duration in the bucket, in nanoseconds.
+     */
+    static long bucketUpperBound(int index) {
+        if (index < (SUB_COUNT << 1)) {
+            return index;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub = (index & (SUB_COUNT - 1)) + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos (long) The duration, in nanoseconds. A negative duration is recorded as 0.
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        m_counts[bucketIndex(Math.min(nanos, MAX_TRACKED))]++;
+        m_count++;
+        m_total += nanos;
+        if (nanos > m_max) {
+            m_max = nanos;
+        }
+    }
+
+    /**
+     * Clear all of the recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            m_counts[i] = 0;
+        }
+        m_count = 0;
+        m_max = 0;
+        m_total = 0;
+    }
+
+    /**
+     * Copy the recorded durations of another histogram into this histogram, replacing the durations recorded in
+     * this histogram.
+     *
+     * @param source (TimingHistogram, not null) The histogram to copy.
+     */
+    public void copy(TimingHistogram source) {
+        System.arraycopy(source.m_counts, 0, m_counts, 0, BUCKET_COUNT);
+        m_count = source.m_count;
+        m_max = source.m_max;
+        m_total = source.m_total;
+    }
+
+    /**
+     * Get the duration at a percentile of the recorded durations. The duration is the upper bound of the bucket
+     * the percentile falls in, but never more than the largest recorded duration.
+     *
+     * @param percentile (double) The percentile, 0.0 to 100.0.
+     * @return The duration, in nanoseconds, 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (0 == m_count) {
+            return 0;
+        }
+        long target = Math.max(1L, (long) Math.ceil(m_count * Math.max(0.0, Math.min(percentile, 100.0)) / 100.0));
+        long counted = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counted += m_counts[i];
+            if (counted >= target) {
+                return Math.min(bucketUpperBound(i), m_max);
+            }
+        }
+        return m_max;
+    }
+
+    /**
+     * @return The number of durations recorded.
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return The largest duration recorded, in nanoseconds.
+     */
+    public long getMax() {
+        return m_max;
+    }
+
+    /**
+     * @return The mean of the recorded durations, in nanoseconds, 0.0 if nothing has been recorded.
+     */
+    public double getMean() {
+        return (0 == m_count) ? 0.0 : (double) m_total / m_count;
+    }
+}
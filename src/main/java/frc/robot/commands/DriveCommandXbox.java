@@ -9,52 +9,83 @@ import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants;
+import frc.robot.DriveSlewLimiter;
+import frc.robot.FlightRecorder;
+import frc.robot.LoopTiming;
 import frc.robot.NavX;
+import frc.robot.RobotClock;
+import frc.robot.hardware.IDriverSticks;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.IGetTargetError;
 import org.a05annex.util.Utl;
 
 public class DriveCommandXbox extends CommandBase {
 
-  private final XboxController m_xbox;
-  private final Joystick m_stick;
+  private final IDriverSticks m_sticks;
   private final DriveSubsystem m_driveSubsystem;
-  private final NavX m_navx = NavX.getInstance();
+  private final NavX m_navx;
+  private final FlightRecorder m_flightRecorder;
+  // reused every command cycle so reading the heading does not allocate
+  private final NavX.HeadingInfo m_headingInfo = new NavX.HeadingInfo();
+  // limits how fast the shaped driver command can change
+  private final DriveSlewLimiter m_slewLimiter = new DriveSlewLimiter(Constants.DRIVE_AXIS_SLEW,
+      Constants.DRIVE_VECTOR_SLEW, Constants.TWIST_SLEW);
+  private final LoopTiming.Stage m_timing = LoopTiming.getInstance().getStage("drive xbox execute");
 
   /**
    * Drive using an xbox controller, with left stick Y being forward, left stick X being strafe,
    * and right stick X being rotate.
    */
   public DriveCommandXbox(XboxController xbox, Joystick stick, DriveSubsystem driveSubsystem) {
+    this(new IDriverSticks() {
+      @Override
+      public double getStickY() {
+        return Constants.USE_CONTROLLER.equals("XBOX") ? -xbox.getY(GenericHID.Hand.kLeft) : -stick.getY();
+      }
+
+      @Override
+      public double getStickX() {
+        return Constants.USE_CONTROLLER.equals("XBOX") ? xbox.getX(GenericHID.Hand.kLeft) : stick.getX();
+      }
+
+      @Override
+      public double getStickTwist() {
+        // if not xbox, controller should be joystick
+        return Constants.USE_CONTROLLER.equals("XBOX") ? xbox.getX(GenericHID.Hand.kRight) : stick.getTwist();
+      }
+    }, driveSubsystem);
+  }
+
+  /**
+   * Drive using any source of driver sticks, specifically, the sticks recorded in a flight log.
+   *
+   * @param sticks         (IDriverSticks, not null) The driver sticks.
+   * @param driveSubsystem (DriveSubsystem, not null) The drive subsystem.
+   */
+  public DriveCommandXbox(IDriverSticks sticks, DriveSubsystem driveSubsystem) {
     // Use addRequirements() here to declare subsystem dependencies.
-    m_xbox = xbox;
-    m_stick = stick;
+    m_sticks = sticks;
     m_driveSubsystem = driveSubsystem;
+    m_navx = driveSubsystem.getNavX();
+    m_flightRecorder = driveSubsystem.getFlightRecorder();
     addRequirements(m_driveSubsystem);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
+    m_slewLimiter.reset(0.0, 0.0, 0.0);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
+    long start = System.nanoTime();
     // get stick values
-    double stickY;
-    double stickX;
-    double stickTwist;
-    if (Constants.USE_CONTROLLER.equals("XBOX")) {
-      stickY = -m_xbox.getY(GenericHID.Hand.kLeft);
-      stickX = m_xbox.getX(GenericHID.Hand.kLeft);
-      stickTwist = m_xbox.getX(GenericHID.Hand.kRight);
-    } else {
-      // if not xbox, controller should be joystick
-      stickY = -m_stick.getY();
-      stickX = m_stick.getX();
-      stickTwist = m_stick.getTwist();
-    }
+    double stickY = m_sticks.getStickY();
+    double stickX = m_sticks.getStickX();
+    double stickTwist = m_sticks.getStickTwist();
+    m_flightRecorder.setDriverInput(stickY, stickX, stickTwist);
 
     // do deadband on speed
     double distance = Utl.length(stickY,stickX);
@@ -80,9 +111,8 @@ public class DriveCommandXbox extends CommandBase {
     // do deadband on rotation and track to heading if not touching right stick
     if (stickTwist < Constants.TWIST_DEADBAND) {
       // OK, no twist is specified - we should be trying to maintain the expected heading
-      NavX.HeadingInfo headingInfo = m_navx.getHeadingInfo();
-      if (null != headingInfo) {
-        rotation = (headingInfo.expectedHeading - headingInfo.heading) * Constants.DRIVE_ORIENTATION_kP;
+      if (m_navx.getHeadingInfo(m_headingInfo)) {
+        rotation = (m_headingInfo.expectedHeading - m_headingInfo.heading) * Constants.DRIVE_ORIENTATION_kP;
         rotation = Utl.clip(rotation,-0.5,0.5);
 //        rotation = 0.0;
       } else {
@@ -98,7 +128,18 @@ public class DriveCommandXbox extends CommandBase {
     }
     // find direction, if the speed is 0 then it won't rotate
     double direction = Math.atan2(stickX, stickY);
-    m_driveSubsystem.swerveDriveFieldRelative(direction, speed, rotation);
+
+    // limit the change in the command - the driver may have changed, so the limits may have changed
+    m_slewLimiter.setRates(Constants.DRIVE_AXIS_SLEW, Constants.DRIVE_VECTOR_SLEW, Constants.TWIST_SLEW);
+    m_slewLimiter.calculate(Math.cos(direction) * speed, Math.sin(direction) * speed, rotation, RobotClock.nanoTime());
+    double forward = m_slewLimiter.getForward();
+    double strafe = m_slewLimiter.getStrafe();
+    speed = Utl.length(forward, strafe);
+    if (speed > Constants.SMALL) {
+      direction = Math.atan2(strafe, forward);
+    }
+    m_driveSubsystem.swerveDriveFieldRelative(direction, speed, m_slewLimiter.getRotation());
+    m_timing.end(start);
   }
 
   // Called once the command ends or is interrupted.
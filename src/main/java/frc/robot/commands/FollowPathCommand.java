@@ -6,79 +6,113 @@ package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants;
-import frc.robot.NavX;
+import frc.robot.LoopTiming;
+import frc.robot.PathTable;
+import frc.robot.PathTrackingController;
+import frc.robot.RobotClock;
 import frc.robot.subsystems.DriveSubsystem;
+import frc.robot.subsystems.SwerveOdometry;
 import org.a05annex.util.geo2d.KochanekBartelsSpline;
-import org.a05annex.util.geo2d.KochanekBartelsSpline.PathFollower;
-import org.a05annex.util.geo2d.KochanekBartelsSpline.PathPoint;
 
+/**
+ * Follows an autonomous path. The path is followed from a compiled {@link PathTable}, so each command cycle is
+ * a table lookup rather than a spline evaluation. When {@link Constants#USE_PATH_TRACKING} is set the path speeds
+ * are the feed-forward for a {@link PathTrackingController} that corrects the error between the path and the
+ * odometry pose; otherwise the path speeds are used open loop.
+ */
 public class FollowPathCommand extends CommandBase {
 
     private DriveSubsystem m_driveSubsystem;
-    private final KochanekBartelsSpline m_spline;
-    private PathFollower m_pathFollower;
+    private final PathTable m_pathTable;
+    private final PathTrackingController m_trackingController = new PathTrackingController();
+    private final LoopTiming.Stage m_timing = LoopTiming.getInstance().getStage("follow path execute");
     private boolean m_isFinished = false;
-    private long m_startTime;
+    private long m_startNanos;
+    private double m_lastTime;
 
     /**
-     * Creates a new FollowPathCommand.
+     * Creates a new FollowPathCommand for a path spline. The spline is compiled to an in-memory path table - use
+     * {@link #FollowPathCommand(PathTable, DriveSubsystem)} with a table from the
+     * {@link frc.robot.AutonomousPathCache} to skip the compilation.
      */
     public FollowPathCommand(KochanekBartelsSpline path, DriveSubsystem driveSubsystem) {
+        this(PathTable.compile(path, Constants.PATH_TABLE_DT, 0), driveSubsystem);
+    }
+
+    /**
+     * Creates a new FollowPathCommand for a compiled path table.
+     */
+    public FollowPathCommand(PathTable pathTable, DriveSubsystem driveSubsystem) {
         // Use addRequirements() here to declare subsystem dependencies.
         m_driveSubsystem = driveSubsystem;
         addRequirements(m_driveSubsystem);
-        m_spline = path;
+        m_pathTable = pathTable;
     }
 
     // Called when the command is initially scheduled.
     @Override
     public void initialize() {
-        m_startTime = System.currentTimeMillis();
-        m_pathFollower = m_spline.getPathFollower();
+        m_startNanos = RobotClock.nanoTime();
+        m_lastTime = 0.0;
+        m_trackingController.reset();
         m_isFinished = false;
     }
 
     /**
      * Initialize the robot to run this path. This initialization consists specifically of
      * <ul>
-     * <li>making sure the NavX is aware of robot heading prior to starting along the path</li>
+     * <li>making sure the NavX and odometry are aware of the robot position and heading prior to starting
+     * along the path</li>
      * <li>assuring The serve modules are rotated to the correct orientation for the first
      * expected Forward, strafe, and rotate components that will be set for the path (eliminating
      * drift while the robot is trying to get all the modules to the correct orientation.</li>
      * </ul>
      */
     public void initialRobot() {
-        PathPoint point = m_pathFollower.getPointAt(0.0);
-        if (point != null) {
-            NavX.getInstance().initializeHeadingAndNav(point.fieldHeading);
-            double forward = point.speedForward / Constants.MAX_METERS_PER_SEC;
-            double strafe = point.speedStrafe / Constants.MAX_METERS_PER_SEC;
-            double rotation = (point.speedRotation / Constants.MAX_RADIANS_PER_SEC);
+        if (m_pathTable.lookup(0.0)) {
+            m_driveSubsystem.setFieldPosition(m_pathTable.getFieldX(), m_pathTable.getFieldY(),
+                    m_pathTable.getFieldHeading());
+            double forward = m_pathTable.getSpeedForward() / Constants.MAX_METERS_PER_SEC;
+            double strafe = m_pathTable.getSpeedStrafe() / Constants.MAX_METERS_PER_SEC;
+            double rotation = (m_pathTable.getSpeedRotation() / Constants.MAX_RADIANS_PER_SEC);
             m_driveSubsystem.prepareForDriveComponents(forward, strafe, rotation);
-            m_startTime = System.currentTimeMillis();
+            m_startNanos = RobotClock.nanoTime();
         }
     }
 
     // Called every time the scheduler runs while the command is scheduled.
     @Override
     public void execute() {
-        double currentTime = (System.currentTimeMillis() - m_startTime) / 1000.0;
-        PathPoint point = m_pathFollower.getPointAt(currentTime);
-        if (point == null) {
+        long start = System.nanoTime();
+        double currentTime = (RobotClock.nanoTime() - m_startNanos) * 1.0e-9;
+        if (!m_pathTable.lookup(currentTime)) {
             m_isFinished = true;
             m_driveSubsystem.swerveDriveComponents(0, 0, 0);
+            m_lastTime = currentTime;
+            m_timing.end(start);
+            return;
+        }
+        m_driveSubsystem.getFlightRecorder().setPathPoint(m_pathTable.getFieldX(), m_pathTable.getFieldY(),
+                m_pathTable.getFieldHeading());
+        if (Constants.USE_PATH_TRACKING) {
+            // one pose snapshot, so the position and heading are from the same odometry update
+            SwerveOdometry.Pose pose = m_driveSubsystem.getPose();
+            m_trackingController.compute(m_pathTable.getFieldX(), m_pathTable.getFieldY(),
+                    m_pathTable.getFieldHeading(), m_pathTable.getSpeedForward(), m_pathTable.getSpeedStrafe(),
+                    m_pathTable.getSpeedRotation(), pose.fieldX, pose.fieldY, pose.heading,
+                    currentTime - m_lastTime);
+            m_driveSubsystem.swerveDriveComponents(
+                    m_trackingController.getForward() / Constants.MAX_METERS_PER_SEC,
+                    m_trackingController.getStrafe() / Constants.MAX_METERS_PER_SEC,
+                    m_trackingController.getRotation() / Constants.MAX_RADIANS_PER_SEC);
         } else {
-            double errorRotation = (point.fieldHeading - NavX.getInstance().getHeading()) * Constants.TARGET_kP;
-            // TODO - The expected heading is included in the PathPoint. The path point is the instantaneous
-            // TODO - speed and position that we want to be at NOW. If the heading is incorrect, then the
-            // TODO - direction the forward and strafe is incorrect and we will be at the wrong place on
-            // TODO - the field. So we need a PID correction of heading incorporated here.
-            double forward = point.speedForward / Constants.MAX_METERS_PER_SEC;
-            double strafe = point.speedStrafe / Constants.MAX_METERS_PER_SEC;
-//      double rotation = (point.speedRotation / Constants.MAX_RADIANS_PER_SEC) + errorRotation;
-            double rotation = (point.speedRotation / Constants.MAX_RADIANS_PER_SEC);
+            double forward = m_pathTable.getSpeedForward() / Constants.MAX_METERS_PER_SEC;
+            double strafe = m_pathTable.getSpeedStrafe() / Constants.MAX_METERS_PER_SEC;
+            double rotation = (m_pathTable.getSpeedRotation() / Constants.MAX_RADIANS_PER_SEC);
             m_driveSubsystem.swerveDriveComponents(forward, strafe, rotation);
         }
+        m_lastTime = currentTime;
+        m_timing.end(start);
     }
 
     // Called once the command ends or is interrupted.
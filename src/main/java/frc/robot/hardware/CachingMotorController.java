@@ -0,0 +1,240 @@
+package frc.robot.hardware;
+
+import com.revrobotics.ControlType;
+
+/**
+ * A write-through cache in front of a motor controller that suppresses redundant CAN frames. A setpoint is only
+ * sent if the control type changed, the value moved by more than the epsilon for the control type, or the last
+ * send was longer ago than the refresh period (so a setpoint lost to a motor controller reset is eventually
+ * restored). PID parameters are only sent when they change. Reads, and encoder position changes, always pass
+ * through.
+ * <p>
+ * The counts of frames sent and suppressed are kept so the savings can be monitored. This class is not thread
+ * safe - a motor controller should only be commanded from one thread.
+ */
+public class CachingMotorController implements IMotorController {
+
+    private final IMotorController m_motor;
+    private final double m_positionEpsilon;
+    private final double m_velocityEpsilon;
+    private final double m_feedforwardEpsilon;
+    private final long m_refreshNanos;
+
+    // the last values sent, NaN or null when unknown
+    private ControlType m_controlType = null;
+    private double m_reference = Double.NaN;
+    private double m_arbFeedforward = Double.NaN;
+    private long m_referenceTime = 0L;
+    private Boolean m_inverted = null;
+    private double m_kP = Double.NaN;
+    private double m_kI = Double.NaN;
+    private double m_kD = Double.NaN;
+    private double m_kFF = Double.NaN;
+    private double m_iZone = Double.NaN;
+    private double m_minOutput = Double.NaN;
+    private double m_maxOutput = Double.NaN;
+
+    private long m_sent = 0;
+    private long m_suppressed = 0;
+
+    /**
+     * Instantiate a caching motor controller.
+     *
+     * @param motor           (IMotorController, not null) The motor controller the frames are sent to.
+     * @param positionEpsilon (double) The smallest change in a {@link ControlType#kPosition} setpoint that is sent,
+     *                        in motor revolutions.
+     * @param velocityEpsilon (double) The smallest change in a {@link ControlType#kVelocity} setpoint that is sent,
+     *                        in motor RPM.
+     * @param refreshPeriod   (double) The longest time an unchanged setpoint is suppressed before it is sent again,
+     *                        in seconds.
+     */
+    public CachingMotorController(IMotorController motor, double positionEpsilon, double velocityEpsilon,
+                                  double refreshPeriod) {
+        this(motor, positionEpsilon, velocityEpsilon, 0.0, refreshPeriod);
+    }
+
+    /**
+     * Instantiate a caching motor controller for setpoints with an arbitrary feed-forward.
+     *
+     * @param motor              (IMotorController, not null) The motor controller the frames are sent to.
+     * @param positionEpsilon    (double) The smallest change in a {@link ControlType#kPosition} setpoint that is
+     *                           sent, in motor revolutions.
+     * @param velocityEpsilon    (double) The smallest change in a {@link ControlType#kVelocity} setpoint that is
+     *                           sent, in motor RPM.
+     * @param feedforwardEpsilon (double) The smallest change in the arbitrary feed-forward that is sent, in volts.
+     * @param refreshPeriod      (double) The longest time an unchanged setpoint is suppressed before it is sent
+     *                           again, in seconds.
+     */
+    public CachingMotorController(IMotorController motor, double positionEpsilon, double velocityEpsilon,
+                                  double feedforwardEpsilon, double refreshPeriod) {
+        m_motor = motor;
+        m_positionEpsilon = positionEpsilon;
+        m_velocityEpsilon = velocityEpsilon;
+        m_feedforwardEpsilon = feedforwardEpsilon;
+        m_refreshNanos = (long) (refreshPeriod * 1.0e9);
+    }
+
+    /**
+     * @return The number of frames sent to the motor controller.
+     */
+    public long getSentCount() {
+        return m_sent;
+    }
+
+    /**
+     * @return The number of frames suppressed because they would not have changed the motor controller.
+     */
+    public long getSuppressedCount() {
+        return m_suppressed;
+    }
+
+    /**
+     * Forget the cached values, so the next setpoint and parameters are sent regardless of the cache.
+     */
+    public void invalidate() {
+        m_controlType = null;
+        m_reference = Double.NaN;
+        m_arbFeedforward = Double.NaN;
+        m_inverted = null;
+        m_kP = m_kI = m_kD = m_kFF = m_iZone = m_minOutput = m_maxOutput = Double.NaN;
+    }
+
+    /**
+     * Test whether a parameter frame is needed, and count the frame as sent or suppressed.
+     */
+    private boolean changed(double cached, double value) {
+        if (Double.compare(cached, value) == 0) {
+            m_suppressed++;
+            return false;
+        }
+        m_sent++;
+        return true;
+    }
+
+    @Override
+    public void restoreFactoryDefaults() {
+        m_motor.restoreFactoryDefaults();
+        m_sent++;
+        invalidate();
+    }
+
+    @Override
+    public void setInverted(boolean inverted) {
+        if (null != m_inverted && m_inverted == inverted) {
+            m_suppressed++;
+            return;
+        }
+        m_motor.setInverted(inverted);
+        m_sent++;
+        m_inverted = inverted;
+    }
+
+    @Override
+    public double getPosition() {
+        return m_motor.getPosition();
+    }
+
+    @Override
+    public void setPosition(double position) {
+        m_motor.setPosition(position);
+        m_sent++;
+    }
+
+    @Override
+    public double getVelocity() {
+        return m_motor.getVelocity();
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType) {
+        long now = System.nanoTime();
+        if (isSuppressed(value, controlType, 0.0, now)) {
+            return;
+        }
+        m_motor.setReference(value, controlType);
+        sent(value, controlType, 0.0, now);
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType, double arbFeedforward) {
+        long now = System.nanoTime();
+        if (isSuppressed(value, controlType, arbFeedforward, now)) {
+            return;
+        }
+        m_motor.setReference(value, controlType, arbFeedforward);
+        sent(value, controlType, arbFeedforward, now);
+    }
+
+    private boolean isSuppressed(double value, ControlType controlType, double arbFeedforward, long now) {
+        if (controlType == m_controlType && (now - m_referenceTime) < m_refreshNanos) {
+            double epsilon = (ControlType.kPosition == controlType) ? m_positionEpsilon :
+                    (ControlType.kVelocity == controlType) ? m_velocityEpsilon : 0.0;
+            if ((Math.abs(value - m_reference) <= epsilon) &&
+                    (Math.abs(arbFeedforward - m_arbFeedforward) <= m_feedforwardEpsilon)) {
+                m_suppressed++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sent(double value, ControlType controlType, double arbFeedforward, long now) {
+        m_sent++;
+        m_controlType = controlType;
+        m_reference = value;
+        m_arbFeedforward = arbFeedforward;
+        m_referenceTime = now;
+    }
+
+    @Override
+    public void setP(double kP) {
+        if (changed(m_kP, kP)) {
+            m_motor.setP(kP);
+            m_kP = kP;
+        }
+    }
+
+    @Override
+    public void setI(double kI) {
+        if (changed(m_kI, kI)) {
+            m_motor.setI(kI);
+            m_kI = kI;
+        }
+    }
+
+    @Override
+    public void setD(double kD) {
+        if (changed(m_kD, kD)) {
+            m_motor.setD(kD);
+            m_kD = kD;
+        }
+    }
+
+    @Override
+    public void setFF(double kFF) {
+        if (changed(m_kFF, kFF)) {
+            m_motor.setFF(kFF);
+            m_kFF = kFF;
+        }
+    }
+
+    @Override
+    public void setIZone(double iZone) {
+        if (changed(m_iZone, iZone)) {
+            m_motor.setIZone(iZone);
+            m_iZone = iZone;
+        }
+    }
+
+    @Override
+    public void setOutputRange(double min, double max) {
+        if (Double.compare(m_minOutput, min) == 0 && Double.compare(m_maxOutput, max) == 0) {
+            m_suppressed++;
+            return;
+        }
+        m_motor.setOutputRange(min, max);
+        m_sent++;
+        m_minOutput = min;
+        m_maxOutput = max;
+    }
+}
@@ -0,0 +1,13 @@
+package frc.robot.hardware;
+
+/**
+ * An absolute analog position encoder, like the analog potentiometer that tracks the absolute spin position of
+ * a swerve drive module.
+ */
+public interface IAnalogEncoder {
+
+    /**
+     * @return The encoder position, from 0.0 to 1.0 for one revolution, wrapping around at the ends.
+     */
+    double get();
+}
@@ -0,0 +1,23 @@
+package frc.robot.hardware;
+
+/**
+ * The driver's drive sticks, either the xbox controller or the joystick, or the sticks recorded in a flight log
+ * when a match is replayed.
+ */
+public interface IDriverSticks {
+
+    /**
+     * @return The stick Y, from -1.0 (full backwards) to 1.0 (full forwards).
+     */
+    double getStickY();
+
+    /**
+     * @return The stick X, from -1.0 (full left) to 1.0 (full right).
+     */
+    double getStickX();
+
+    /**
+     * @return The stick twist, from -1.0 (full counter-clockwise) to 1.0 (full clockwise).
+     */
+    double getStickTwist();
+}
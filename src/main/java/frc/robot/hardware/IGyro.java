@@ -0,0 +1,38 @@
+package frc.robot.hardware;
+
+/**
+ * The gyro operations the {@link frc.robot.NavX} uses, so the NavX heading tracking can be run with either
+ * the real NavX or a simulated gyro (see {@link frc.robot.sim}). Angles are in degrees, as they are for the NavX.
+ */
+public interface IGyro {
+
+    /**
+     * Reset the yaw to 0.0.
+     */
+    void reset();
+
+    /**
+     * @return {@code true} if the gyro is calibrating, {@code false} otherwise.
+     */
+    boolean isCalibrating();
+
+    /**
+     * @return The count of sensor updates, which increases whenever the gyro is reporting new data.
+     */
+    double getUpdateCount();
+
+    /**
+     * @return The yaw, in degrees from -180.0 to 180.0, positive is clockwise.
+     */
+    double getYaw();
+
+    /**
+     * @return The pitch, in degrees.
+     */
+    double getPitch();
+
+    /**
+     * @return The roll, in degrees.
+     */
+    double getRoll();
+}
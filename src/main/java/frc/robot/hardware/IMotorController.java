@@ -0,0 +1,73 @@
+package frc.robot.hardware;
+
+import com.revrobotics.ControlType;
+
+/**
+ * The motor controller operations the drive uses - a motor controller with an integrated encoder and PID
+ * controller, like the Spark MAX. The drive code is written against this interface rather than against the
+ * Spark MAX classes so the same code can be run with simulated motors (see {@link frc.robot.sim}).
+ * <p>
+ * Positions are in motor revolutions and velocities are in motor RPM, as they are for the Spark MAX encoder.
+ */
+public interface IMotorController {
+
+    /**
+     * Restore the motor controller to its factory default configuration.
+     */
+    void restoreFactoryDefaults();
+
+    /**
+     * Set whether the motor direction is inverted.
+     *
+     * @param inverted (boolean) {@code true} if the motor direction is inverted, {@code false} otherwise.
+     */
+    void setInverted(boolean inverted);
+
+    /**
+     * @return The encoder position, in motor revolutions.
+     */
+    double getPosition();
+
+    /**
+     * Set the encoder position.
+     *
+     * @param position (double) The new encoder position, in motor revolutions.
+     */
+    void setPosition(double position);
+
+    /**
+     * @return The encoder velocity, in motor RPM.
+     */
+    double getVelocity();
+
+    /**
+     * Set the PID controller reference.
+     *
+     * @param value       (double) The reference value, in motor revolutions for {@link ControlType#kPosition},
+     *                    and motor RPM for {@link ControlType#kVelocity}.
+     * @param controlType (ControlType, not null) The control type.
+     */
+    void setReference(double value, ControlType controlType);
+
+    /**
+     * Set the PID controller reference with an arbitrary feed-forward added to the PID output.
+     *
+     * @param value          (double) The reference value, in motor revolutions for {@link ControlType#kPosition},
+     *                       and motor RPM for {@link ControlType#kVelocity}.
+     * @param controlType    (ControlType, not null) The control type.
+     * @param arbFeedforward (double) The arbitrary feed-forward, in volts.
+     */
+    void setReference(double value, ControlType controlType, double arbFeedforward);
+
+    void setP(double kP);
+
+    void setI(double kI);
+
+    void setD(double kD);
+
+    void setFF(double kFF);
+
+    void setIZone(double iZone);
+
+    void setOutputRange(double min, double max);
+}
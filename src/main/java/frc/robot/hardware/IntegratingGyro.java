@@ -0,0 +1,57 @@
+package frc.robot.hardware;
+
+/**
+ * A gyro with no sensor - the yaw is integrated from the rotations reported to it, and is reported the way the NavX
+ * reports yaw, in degrees from -180.0 to 180.0. The chassis is assumed to be flat on the field, so pitch and roll
+ * are always 0.0. This is the degraded heading source for the {@link frc.robot.NavX} when the NavX is not
+ * available (the rotation is integrated from the drive module encoders by the odometry), and the base of the
+ * simulated gyro (see {@link frc.robot.sim.SimulatedGyro}).
+ */
+public class IntegratingGyro implements IGyro {
+
+    private volatile double m_yaw = 0.0;
+    private volatile double m_updateCount = 0.0;
+
+    /**
+     * Rotate the gyro.
+     *
+     * @param degrees (double) The rotation, in degrees, positive is clockwise.
+     */
+    public synchronized void rotate(double degrees) {
+        double yaw = m_yaw + degrees;
+        yaw -= 360.0 * Math.floor((yaw + 180.0) / 360.0);
+        m_yaw = yaw;
+        m_updateCount++;
+    }
+
+    @Override
+    public synchronized void reset() {
+        m_yaw = 0.0;
+        m_updateCount++;
+    }
+
+    @Override
+    public boolean isCalibrating() {
+        return false;
+    }
+
+    @Override
+    public double getUpdateCount() {
+        return m_updateCount;
+    }
+
+    @Override
+    public double getYaw() {
+        return m_yaw;
+    }
+
+    @Override
+    public double getPitch() {
+        return 0.0;
+    }
+
+    @Override
+    public double getRoll() {
+        return 0.0;
+    }
+}
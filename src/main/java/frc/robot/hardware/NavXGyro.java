@@ -0,0 +1,50 @@
+package frc.robot.hardware;
+
+import com.kauailabs.navx.frc.AHRS;
+
+/**
+ * The {@link IGyro} for the NavX board.
+ */
+public class NavXGyro implements IGyro {
+
+    private final AHRS m_ahrs;
+
+    /**
+     * Instantiate the gyro for a NavX board.
+     *
+     * @param ahrs (AHRS, not null) The NavX board.
+     */
+    public NavXGyro(AHRS ahrs) {
+        m_ahrs = ahrs;
+    }
+
+    @Override
+    public void reset() {
+        m_ahrs.reset();
+    }
+
+    @Override
+    public boolean isCalibrating() {
+        return m_ahrs.isCalibrating();
+    }
+
+    @Override
+    public double getUpdateCount() {
+        return m_ahrs.getUpdateCount();
+    }
+
+    @Override
+    public double getYaw() {
+        return m_ahrs.getYaw();
+    }
+
+    @Override
+    public double getPitch() {
+        return m_ahrs.getPitch();
+    }
+
+    @Override
+    public double getRoll() {
+        return m_ahrs.getRoll();
+    }
+}
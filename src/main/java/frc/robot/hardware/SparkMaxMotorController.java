@@ -0,0 +1,94 @@
+package frc.robot.hardware;
+
+import com.revrobotics.CANEncoder;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.ControlType;
+
+/**
+ * The {@link IMotorController} for a Spark MAX, its integrated encoder, and its PID controller.
+ */
+public class SparkMaxMotorController implements IMotorController {
+
+    private final CANSparkMax m_motor;
+    private final CANEncoder m_encoder;
+    private final CANPIDController m_pid;
+
+    /**
+     * Instantiate the motor controller for a Spark MAX.
+     *
+     * @param motor   (CANSparkMax, not null) The Spark MAX.
+     * @param encoder (CANEncoder, not null) The Spark MAX encoder.
+     * @param pid     (CANPIDController, not null) The Spark MAX PID controller.
+     */
+    public SparkMaxMotorController(CANSparkMax motor, CANEncoder encoder, CANPIDController pid) {
+        m_motor = motor;
+        m_encoder = encoder;
+        m_pid = pid;
+    }
+
+    @Override
+    public void restoreFactoryDefaults() {
+        m_motor.restoreFactoryDefaults();
+    }
+
+    @Override
+    public void setInverted(boolean inverted) {
+        m_motor.setInverted(inverted);
+    }
+
+    @Override
+    public double getPosition() {
+        return m_encoder.getPosition();
+    }
+
+    @Override
+    public void setPosition(double position) {
+        m_encoder.setPosition(position);
+    }
+
+    @Override
+    public double getVelocity() {
+        return m_encoder.getVelocity();
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType) {
+        m_pid.setReference(value, controlType);
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType, double arbFeedforward) {
+        m_pid.setReference(value, controlType, 0, arbFeedforward);
+    }
+
+    @Override
+    public void setP(double kP) {
+        m_pid.setP(kP);
+    }
+
+    @Override
+    public void setI(double kI) {
+        m_pid.setI(kI);
+    }
+
+    @Override
+    public void setD(double kD) {
+        m_pid.setD(kD);
+    }
+
+    @Override
+    public void setFF(double kFF) {
+        m_pid.setFF(kFF);
+    }
+
+    @Override
+    public void setIZone(double iZone) {
+        m_pid.setIZone(iZone);
+    }
+
+    @Override
+    public void setOutputRange(double min, double max) {
+        m_pid.setOutputRange(min, max);
+    }
+}
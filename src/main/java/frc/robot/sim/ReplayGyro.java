@@ -0,0 +1,53 @@
+package frc.robot.sim;
+
+import frc.robot.hardware.IGyro;
+
+/**
+ * A gyro that reports the NavX yaw recorded in a flight log, for replaying a match (see
+ * {@link frc.robot.LogReplay}). Each recorded yaw is a new NavX update. The gyro never calibrates, and pitch and
+ * roll are not recorded, so they are always 0.0.
+ */
+public class ReplayGyro implements IGyro {
+
+    private double m_yaw = 0.0;
+    private double m_updateCt = 0.0;
+
+    /**
+     * Set the recorded yaw.
+     *
+     * @param yaw (double) The yaw, in degrees from -180.0 to 180.0.
+     */
+    public void setRecorded(double yaw) {
+        m_yaw = yaw;
+        m_updateCt++;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public boolean isCalibrating() {
+        return false;
+    }
+
+    @Override
+    public double getUpdateCount() {
+        return m_updateCt;
+    }
+
+    @Override
+    public double getYaw() {
+        return m_yaw;
+    }
+
+    @Override
+    public double getPitch() {
+        return 0.0;
+    }
+
+    @Override
+    public double getRoll() {
+        return 0.0;
+    }
+}
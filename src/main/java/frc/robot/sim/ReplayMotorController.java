@@ -0,0 +1,109 @@
+package frc.robot.sim;
+
+import com.revrobotics.ControlType;
+import frc.robot.hardware.IMotorController;
+
+/**
+ * A motor controller that reports the encoder readings recorded in a flight log, for replaying a match (see
+ * {@link frc.robot.LogReplay}). The replay sets the recorded position and velocity before each robot loop; the
+ * references the drive code sets are kept so the replay can read what the drive commanded. Setting the position
+ * and the PID configuration do nothing - the recorded readings are what the real controller reported.
+ */
+public class ReplayMotorController implements IMotorController {
+
+    private double m_position = 0.0;
+    private double m_velocity = 0.0;
+    private ControlType m_controlType = null;
+    private double m_reference = 0.0;
+    private double m_arbFeedforward = 0.0;
+
+    /**
+     * Set the recorded encoder readings.
+     *
+     * @param position (double) The encoder position.
+     * @param velocity (double) The encoder velocity, in RPM.
+     */
+    public void setRecorded(double position, double velocity) {
+        m_position = position;
+        m_velocity = velocity;
+    }
+
+    /**
+     * @return The control type of the last reference, {@code null} if no reference has been set.
+     */
+    public ControlType getControlType() {
+        return m_controlType;
+    }
+
+    /**
+     * @return The last reference.
+     */
+    public double getReference() {
+        return m_reference;
+    }
+
+    /**
+     * @return The arbitrary feed-forward of the last reference, in volts.
+     */
+    public double getArbFeedforward() {
+        return m_arbFeedforward;
+    }
+
+    @Override
+    public void restoreFactoryDefaults() {
+    }
+
+    @Override
+    public void setInverted(boolean inverted) {
+    }
+
+    @Override
+    public double getPosition() {
+        return m_position;
+    }
+
+    @Override
+    public void setPosition(double position) {
+    }
+
+    @Override
+    public double getVelocity() {
+        return m_velocity;
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType) {
+        setReference(value, controlType, 0.0);
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType, double arbFeedforward) {
+        m_controlType = controlType;
+        m_reference = value;
+        m_arbFeedforward = arbFeedforward;
+    }
+
+    @Override
+    public void setP(double kP) {
+    }
+
+    @Override
+    public void setI(double kI) {
+    }
+
+    @Override
+    public void setD(double kD) {
+    }
+
+    @Override
+    public void setFF(double kFF) {
+    }
+
+    @Override
+    public void setIZone(double iZone) {
+    }
+
+    @Override
+    public void setOutputRange(double min, double max) {
+    }
+}
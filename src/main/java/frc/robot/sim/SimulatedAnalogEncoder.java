@@ -0,0 +1,34 @@
+package frc.robot.sim;
+
+import frc.robot.hardware.IAnalogEncoder;
+
+/**
+ * A simulated analog spin encoder, which reads the absolute spin position of the module from the simulated spin
+ * motor.
+ */
+public class SimulatedAnalogEncoder implements IAnalogEncoder {
+
+    private final SimulatedMotorController m_spinMotor;
+    private final double m_calibrationOffset;
+    private final double m_motorRevsPerSpin;
+
+    /**
+     * Instantiate a simulated analog spin encoder.
+     *
+     * @param spinMotor         (SimulatedMotorController, not null) The simulated spin motor.
+     * @param calibrationOffset (double) The encoder value when the module is pointed forward.
+     * @param motorRevsPerSpin  (double) The spin motor revolutions for one revolution of the module.
+     */
+    public SimulatedAnalogEncoder(SimulatedMotorController spinMotor, double calibrationOffset,
+                                  double motorRevsPerSpin) {
+        m_spinMotor = spinMotor;
+        m_calibrationOffset = calibrationOffset;
+        m_motorRevsPerSpin = motorRevsPerSpin;
+    }
+
+    @Override
+    public double get() {
+        double value = m_calibrationOffset + (m_spinMotor.getPosition() / m_motorRevsPerSpin);
+        return value - Math.floor(value);
+    }
+}
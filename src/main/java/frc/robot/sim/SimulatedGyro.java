@@ -0,0 +1,11 @@
+package frc.robot.sim;
+
+import frc.robot.hardware.IntegratingGyro;
+
+/**
+ * A simulated NavX gyro. The simulation rotates the gyro by the rotation of the simulated chassis (see
+ * {@link SwerveSimulation}), and the gyro reports the yaw the way the NavX does, in degrees from -180.0 to 180.0.
+ * The chassis is assumed to be flat on the field, so pitch and roll are always 0.0.
+ */
+public class SimulatedGyro extends IntegratingGyro {
+}
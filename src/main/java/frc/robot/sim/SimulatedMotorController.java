@@ -0,0 +1,198 @@
+package frc.robot.sim;
+
+import com.revrobotics.ControlType;
+import frc.robot.hardware.IMotorController;
+import org.a05annex.util.Utl;
+
+/**
+ * A simulated motor controller with an integrated encoder and PID controller, modelled on the Spark MAX driving a
+ * NEO. The PID controller computes an output from -1.0 to 1.0 the way the Spark MAX does - feed-forward plus PID on
+ * the error, with the integral zone, clipped to the output range - and the motor velocity follows the output
+ * (as a fraction of the free speed) with a first order lag. The encoder integrates the velocity.
+ * <p>
+ * The Spark MAX runs its PID loop every millisecond, and its integral and derivative gains are per loop; the
+ * simulation scales them by the time step so the same gains tune the same way. The motor is advanced by
+ * {@link #step(double)}. The encoder and reference may be read and set from any thread.
+ */
+public class SimulatedMotorController implements IMotorController {
+
+    // the Spark MAX PID loop period, in seconds
+    private static final double PID_PERIOD = 0.001;
+    // the battery voltage, for converting an arbitrary feed-forward in volts to output
+    private static final double NOMINAL_VOLTAGE = 12.0;
+
+    private final double m_freeSpeedRpm;
+    private final double m_timeConstant;
+
+    private volatile boolean m_inverted = false;
+    private volatile double m_position = 0.0;
+    private volatile double m_velocity = 0.0;
+
+    // the PID controller
+    private volatile ControlType m_controlType = null;
+    private volatile double m_reference = 0.0;
+    private volatile double m_arbFeedforward = 0.0;
+    private double m_kP = 0.0;
+    private double m_kI = 0.0;
+    private double m_kD = 0.0;
+    private double m_kFF = 0.0;
+    private double m_iZone = 0.0;
+    private double m_minOutput = -1.0;
+    private double m_maxOutput = 1.0;
+    private double m_integral = 0.0;
+    private double m_lastError = 0.0;
+    private double m_output = 0.0;
+
+    /**
+     * Instantiate a simulated motor controller.
+     *
+     * @param freeSpeedRpm (double) The motor speed at full output, in RPM.
+     * @param timeConstant (double) The time constant of the motor velocity response to a change in output,
+     *                     in seconds - the time to reach 63% of a step change.
+     */
+    public SimulatedMotorController(double freeSpeedRpm, double timeConstant) {
+        m_freeSpeedRpm = freeSpeedRpm;
+        m_timeConstant = timeConstant;
+    }
+
+    /**
+     * Advance the motor by a time step.
+     *
+     * @param dt (double) The time step, in seconds.
+     */
+    public synchronized void step(double dt) {
+        ControlType controlType = m_controlType;
+        double reference = m_reference;
+        double arbFeedforward = m_arbFeedforward / NOMINAL_VOLTAGE;
+        if (ControlType.kVelocity == controlType) {
+            m_output = pid(reference - m_velocity, dt) + (m_kFF * reference) + arbFeedforward;
+        } else if (ControlType.kPosition == controlType) {
+            m_output = pid(reference - m_position, dt) + arbFeedforward;
+        } else {
+            m_output = 0.0;
+        }
+        m_output = Utl.clip(m_output, m_minOutput, m_maxOutput);
+        double velocity = m_velocity;
+        velocity += ((m_output * m_freeSpeedRpm) - velocity) * (1.0 - Math.exp(-dt / m_timeConstant));
+        m_velocity = velocity;
+        m_position += velocity * dt / 60.0;
+    }
+
+    private double pid(double error, double dt) {
+        double loops = dt / PID_PERIOD;
+        if ((m_iZone == 0.0) || (Math.abs(error) <= m_iZone)) {
+            m_integral += error * loops;
+        } else {
+            m_integral = 0.0;
+        }
+        double derivative = (loops > 0.0) ? (error - m_lastError) / loops : 0.0;
+        m_lastError = error;
+        return (m_kP * error) + (m_kI * m_integral) + (m_kD * derivative);
+    }
+
+    /**
+     * @return The output computed in the last step, from -1.0 to 1.0.
+     */
+    public synchronized double getOutput() {
+        return m_output;
+    }
+
+    /**
+     * @return The last reference set for the PID controller.
+     */
+    public double getReference() {
+        return m_reference;
+    }
+
+    /**
+     * @return {@code true} if the motor is inverted, {@code false} otherwise. The simulated encoder always reads
+     * in the direction the motor is commanded, so this does not change the simulation.
+     */
+    public boolean getInverted() {
+        return m_inverted;
+    }
+
+    @Override
+    public synchronized void restoreFactoryDefaults() {
+        m_inverted = false;
+        m_controlType = null;
+        m_reference = 0.0;
+        m_arbFeedforward = 0.0;
+        m_kP = 0.0;
+        m_kI = 0.0;
+        m_kD = 0.0;
+        m_kFF = 0.0;
+        m_iZone = 0.0;
+        m_minOutput = -1.0;
+        m_maxOutput = 1.0;
+        m_integral = 0.0;
+    }
+
+    @Override
+    public void setInverted(boolean inverted) {
+        m_inverted = inverted;
+    }
+
+    @Override
+    public double getPosition() {
+        return m_position;
+    }
+
+    @Override
+    public synchronized void setPosition(double position) {
+        m_position = position;
+        m_lastError = 0.0;
+    }
+
+    @Override
+    public double getVelocity() {
+        return m_velocity;
+    }
+
+    @Override
+    public void setReference(double value, ControlType controlType) {
+        setReference(value, controlType, 0.0);
+    }
+
+    @Override
+    public synchronized void setReference(double value, ControlType controlType, double arbFeedforward) {
+        m_arbFeedforward = arbFeedforward;
+        if (controlType != m_controlType) {
+            m_integral = 0.0;
+            m_lastError = 0.0;
+        }
+        m_controlType = controlType;
+        m_reference = value;
+    }
+
+    @Override
+    public synchronized void setP(double kP) {
+        m_kP = kP;
+    }
+
+    @Override
+    public synchronized void setI(double kI) {
+        m_kI = kI;
+    }
+
+    @Override
+    public synchronized void setD(double kD) {
+        m_kD = kD;
+    }
+
+    @Override
+    public synchronized void setFF(double kFF) {
+        m_kFF = kFF;
+    }
+
+    @Override
+    public synchronized void setIZone(double iZone) {
+        m_iZone = iZone;
+    }
+
+    @Override
+    public synchronized void setOutputRange(double min, double max) {
+        m_minOutput = min;
+        m_maxOutput = max;
+    }
+}
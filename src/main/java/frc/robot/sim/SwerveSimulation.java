@@ -0,0 +1,173 @@
+package frc.robot.sim;
+
+import frc.robot.Constants;
+import frc.robot.DriveModule;
+import frc.robot.NavX;
+import frc.robot.RobotClock;
+import frc.robot.SwerveKinematics;
+import frc.robot.subsystems.DriveSubsystem;
+
+import static org.a05annex.util.Utl.TWO_PI;
+
+/**
+ * A physics simulation of the swerve drive, so the whole robot control loop can be run off the robot. Each module
+ * has a simulated drive and spin motor (see {@link SimulatedMotorController}) and the simulated NavX gyro is
+ * rotated by the chassis rotation. The drive modules are real {@link DriveModule}s driving the simulated motors, so
+ * the simulation exercises the same module code as the robot.
+ * <p>
+ * The simulation is advanced by {@link #step(double)}: the motors respond to whatever was last set, the chassis
+ * motion is solved from the module motion through the forward kinematics, and the gyro and the simulated (true)
+ * field position of the robot are updated. Steps may be run at any rate - on the robot the simulation is stepped
+ * from {@code Robot.simulationPeriodic()}; a test or tuning harness may step it as fast as it likes.
+ * <p>
+ * When the {@link RobotClock} is using virtual time each step also advances the clock by the time step, so the
+ * drive and path code see the simulated time rather than the wall clock time. The simulation then runs the control
+ * code at exactly the simulated loop period, however fast (or slow) the steps are actually run.
+ */
+public class SwerveSimulation {
+
+    private final SwerveKinematics m_kinematics;
+    private final SimulatedMotorController[] m_driveMotors;
+    private final SimulatedMotorController[] m_spinMotors;
+    private final DriveModule[] m_modules;
+    private final SimulatedGyro m_gyro = new SimulatedGyro();
+
+    // the module motion in a step, in kinematics module order
+    private final double[] m_lastDrivePositions;
+    private final double[] m_moduleDistances;
+    private final double[] m_moduleRadians;
+
+    // the simulated (true) position of the robot on the field
+    private double m_fieldX = 0.0;
+    private double m_fieldY = 0.0;
+    private double m_heading = 0.0;
+    private double m_time = 0.0;
+
+    /**
+     * Instantiate a simulation of the competition robot drive.
+     */
+    public SwerveSimulation() {
+        this(new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH));
+    }
+
+    /**
+     * Instantiate a simulation of a swerve drive.
+     *
+     * @param kinematics (SwerveKinematics, not null) The kinematics describing the module positions.
+     */
+    public SwerveSimulation(SwerveKinematics kinematics) {
+        m_kinematics = new SwerveKinematics(kinematics);
+        int moduleCount = kinematics.getModuleCount();
+        m_driveMotors = new SimulatedMotorController[moduleCount];
+        m_spinMotors = new SimulatedMotorController[moduleCount];
+        m_modules = new DriveModule[moduleCount];
+        m_lastDrivePositions = new double[moduleCount];
+        m_moduleDistances = new double[moduleCount];
+        m_moduleRadians = new double[moduleCount];
+        double spinRevsPerModuleRev = Constants.RADIANS_TO_SPIN_ENCODER * TWO_PI;
+        for (int i = 0; i < moduleCount; i++) {
+            m_driveMotors[i] = new SimulatedMotorController(Constants.SIM_MOTOR_FREE_RPM,
+                    Constants.SIM_DRIVE_TIME_CONSTANT);
+            m_spinMotors[i] = new SimulatedMotorController(Constants.SIM_MOTOR_FREE_RPM,
+                    Constants.SIM_SPIN_TIME_CONSTANT);
+            m_modules[i] = new DriveModule(m_driveMotors[i], m_spinMotors[i],
+                    new SimulatedAnalogEncoder(m_spinMotors[i], 0.5, spinRevsPerModuleRev), 0.5);
+        }
+    }
+
+    /**
+     * @return (not null) The simulated drive modules, in kinematics module order.
+     */
+    public DriveModule[] getModules() {
+        return m_modules.clone();
+    }
+
+    /**
+     * @return (not null) The simulated gyro.
+     */
+    public SimulatedGyro getGyro() {
+        return m_gyro;
+    }
+
+    /**
+     * Create a drive subsystem using the simulated drive modules and the simulated gyro. This creates the
+     * {@link NavX} instance for the simulated gyro, so it can only be called once, and must be called before
+     * anything else gets the NavX instance.
+     *
+     * @return (not null) The drive subsystem.
+     */
+    public DriveSubsystem createDriveSubsystem() {
+        return new DriveSubsystem(m_modules, new SwerveKinematics(m_kinematics), NavX.createInstance(m_gyro));
+    }
+
+    /**
+     * Set the simulated (true) position of the robot on the field.
+     *
+     * @param fieldX  (double) The X location of the robot on the field.
+     * @param fieldY  (double) The Y location of the robot on the field.
+     * @param heading (double) The heading of the robot on the field, in radians.
+     */
+    public synchronized void setFieldPosition(double fieldX, double fieldY, double heading) {
+        m_fieldX = fieldX;
+        m_fieldY = fieldY;
+        m_heading = heading;
+    }
+
+    /**
+     * Advance the simulation by a time step. If the {@link RobotClock} is using virtual time it is advanced by the
+     * time step.
+     *
+     * @param dt (double) The time step, in seconds.
+     */
+    public synchronized void step(double dt) {
+        for (int i = 0; i < m_modules.length; i++) {
+            m_driveMotors[i].step(dt);
+            m_spinMotors[i].step(dt);
+            double drivePosition = m_driveMotors[i].getPosition();
+            m_moduleDistances[i] = (drivePosition - m_lastDrivePositions[i]) * Constants.DRIVE_METERS_PER_TIC;
+            m_moduleRadians[i] = m_spinMotors[i].getPosition() / Constants.RADIANS_TO_SPIN_ENCODER;
+            m_lastDrivePositions[i] = drivePosition;
+        }
+        m_kinematics.computeChassis(m_moduleDistances, m_moduleRadians);
+        double rotation = m_kinematics.getChassisRotation() / m_kinematics.getRotationRadius();
+        double aveHeading = m_heading + (rotation * 0.5);
+        double sinHeading = Math.sin(aveHeading);
+        double cosHeading = Math.cos(aveHeading);
+        double forward = m_kinematics.getChassisForward();
+        double strafe = m_kinematics.getChassisStrafe();
+        m_fieldX += (forward * sinHeading) + (strafe * cosHeading);
+        m_fieldY += (forward * cosHeading) - (strafe * sinHeading);
+        m_heading += rotation;
+        m_gyro.rotate(Math.toDegrees(rotation));
+        m_time += dt;
+        RobotClock.advance(Math.round(dt * 1.0e9));
+    }
+
+    /**
+     * @return The simulated time, the sum of all of the time steps, in seconds.
+     */
+    public synchronized double getTime() {
+        return m_time;
+    }
+
+    /**
+     * @return The simulated X location of the robot on the field, in meters.
+     */
+    public synchronized double getFieldX() {
+        return m_fieldX;
+    }
+
+    /**
+     * @return The simulated Y location of the robot on the field, in meters.
+     */
+    public synchronized double getFieldY() {
+        return m_fieldY;
+    }
+
+    /**
+     * @return The simulated heading of the robot on the field, in radians.
+     */
+    public synchronized double getHeading() {
+        return m_heading;
+    }
+}
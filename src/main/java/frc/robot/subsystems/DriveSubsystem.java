@@ -7,87 +7,238 @@ package frc.robot.subsystems;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.DriveModule;
+import frc.robot.FlightRecorder;
+import frc.robot.GyroDriftEstimator;
+import frc.robot.LoopTiming;
 import frc.robot.NavX;
-import org.a05annex.util.Utl;
+import frc.robot.RobotClock;
+import frc.robot.SwerveKinematics;
+import frc.robot.hardware.CachingMotorController;
+import frc.robot.hardware.IMotorController;
+import frc.robot.hardware.IntegratingGyro;
 
 public class DriveSubsystem extends SubsystemBase {
 
-    // create drive modules
-    private final DriveModule m_rf;
-    private final DriveModule m_rr;
-    private final DriveModule m_lf;
-    private final DriveModule m_lr;
+    /**
+     * The ways the drive can compute odometry (the position of the robot on the field).
+     */
+    public enum OdometryMode {
+        /**
+         * Integrate the chassis forward and strafe that were last set for the drive, assuming the drive is
+         * instantaneously moving at the commanded speed. This drifts whenever wheels slip, saturate, or lag
+         * the PID.
+         */
+        COMMANDED,
+        /**
+         * Use the change in drive encoder positions and the spin encoder directions of each module, solved
+         * through the forward kinematics for the chassis motion, with the NavX heading.
+         */
+        ENCODERS
+    }
 
     // create NavX - the drive subsystem owns the NavX and is responsible for the heading update
     // cycle.
-    private final NavX m_navx = NavX.getInstance();
-
-    // the drive geometry
-    private final double LENGTH_OVER_DIAGONAL =
-            Constants.DRIVE_LENGTH / Constants.DRIVE_DIAGONAL;
-    private final double WIDTH_OVER_DIAGONAL =
-            Constants.DRIVE_WIDTH / Constants.DRIVE_DIAGONAL;
-
-    // keep track of last angles
-    private double m_RF_lastRadians = 0.0;
-    private double m_RR_lastRadians = 0.0;
-    private double m_LF_lastRadians = 0.0;
-    private double m_LR_lastRadians = 0.0;
+    private final NavX m_navx;
+    // the degraded heading source for the NavX, integrating the chassis rotation measured by encoder odometry
+    private final IntegratingGyro m_encoderGyro = new IntegratingGyro();
+    // removes the NavX drift, estimated whenever the modules are stationary
+    private final GyroDriftEstimator m_driftEstimator;
+
+    // the drive modules in kinematics module order (see SwerveKinematics), and the kinematics used to compute the
+    // module directions and speeds.
+    private final DriveModule[] m_modules;
+    private final SwerveKinematics m_kinematics;
+    // the module commands are computed for all modules, then sent to all modules together by the dispatcher
+    private final ModuleDispatcher m_dispatcher;
+    // the last module speeds, and when they were set, for the rate the module directions change
+    private final double[] m_lastModuleSpeeds;
+    private long m_lastModuleNanos = RobotClock.nanoTime();
 
     // keep track of the last chassis speeds for odometry
     private double m_thisChassisForward = 0.0;
     private double m_thisChassisStrafe = 0.0;
     private double m_thisChassisRotation = 0.0;
-    private long m_lastTime = System.currentTimeMillis();
-    private double m_lastHeading = 0.0;
+    private long m_lastNanos = RobotClock.nanoTime();
+    // the measured period of field-relative drive commands, for latency compensation
+    private double m_commandPeriod = 0.02;
+    private long m_lastFieldRelativeNanos = RobotClock.nanoTime();
     private double m_lastChassisForward = 0.0;
     private double m_lastChassisStrafe = 0.0;
     private double m_lastChassisRotation = 0.0;
 
-    private double m_fieldX = 0.0;
-    private double m_fieldY = 0.0;
-    private double m_fieldHeading = 0.0;
+    // odometry - when the odometry thread is running, encoder odometry is computed on that thread and the field
+    // position is read from the pose it publishes.
+    private OdometryMode m_odometryMode = OdometryMode.ENCODERS;
+    private final SwerveOdometry m_odometry;
+    private OdometryThread m_odometryThread = null;
+    private final PoseHistory m_poseHistory = new PoseHistory(Constants.POSE_HISTORY_CAPACITY);
 
+    // records what the drive did every robot loop, once it is started
+    private final FlightRecorder m_flightRecorder;
+
+    private final LoopTiming.Stage m_periodicTiming = LoopTiming.getInstance().getStage("drive periodic");
 
     /**
      * Creates a new DriveSubsystem.
      */
     public DriveSubsystem() {
         // Initialization Here
-        m_rf = DriveModule.factory(Constants.MotorControllers.RF_DRIVE, Constants.MotorControllers.RF_SPIN,
-                Constants.AnalogPorts.RF, Constants.CalibrationOffset.RF);
+        this(DriveModule.factory(Constants.MotorControllers.RF_DRIVE, Constants.MotorControllers.RF_SPIN,
+                        Constants.AnalogPorts.RF, Constants.CalibrationOffset.RF),
+                DriveModule.factory(Constants.MotorControllers.RR_DRIVE, Constants.MotorControllers.RR_SPIN,
+                        Constants.AnalogPorts.RR, Constants.CalibrationOffset.RR),
+                DriveModule.factory(Constants.MotorControllers.LF_DRIVE, Constants.MotorControllers.LF_SPIN,
+                        Constants.AnalogPorts.LF, Constants.CalibrationOffset.LF),
+                DriveModule.factory(Constants.MotorControllers.LR_DRIVE, Constants.MotorControllers.LR_SPIN,
+                        Constants.AnalogPorts.LR, Constants.CalibrationOffset.LR),
+                NavX.getInstance());
+    }
+
+    /**
+     * Instantiate a DriveSubsystem. The drive modules and NavX are passed in so this subsystem can be
+     * tested and benchmarked with mocked hardware.
+     *
+     * @param rf (DriveModule, not null) The right front drive module.
+     * @param rr (DriveModule, not null) The right rear drive module.
+     * @param lf (DriveModule, not null) The left front drive module.
+     * @param lr (DriveModule, not null) The left rear drive module.
+     * @param navx (NavX, not null) The NavX providing the robot heading.
+     */
+    public DriveSubsystem(DriveModule rf, DriveModule rr, DriveModule lf, DriveModule lr, NavX navx) {
+        this(new DriveModule[]{rf, lf, lr, rr},
+                new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH), navx);
+    }
+
+    /**
+     * Instantiate a DriveSubsystem for any number of drive modules at any positions on the chassis. This
+     * is how the same drive code is run on our test chassis.
+     *
+     * @param modules    (DriveModule[], not null) The drive modules, in the module order of {@code kinematics}.
+     * @param kinematics (SwerveKinematics, not null) The kinematics describing the module positions.
+     * @param navx       (NavX, not null) The NavX providing the robot heading.
+     * @throws IllegalArgumentException if the number of modules does not match the kinematics.
+     */
+    public DriveSubsystem(DriveModule[] modules, SwerveKinematics kinematics, NavX navx) {
+        if (modules.length != kinematics.getModuleCount()) {
+            throw new IllegalArgumentException("There must be a drive module for every kinematics module.");
+        }
+        m_modules = modules.clone();
+        m_kinematics = kinematics;
+        m_navx = navx;
+        m_odometry = new SwerveOdometry(m_modules, m_kinematics);
+        m_odometry.setEncoderGyro(m_encoderGyro);
+        m_navx.setFallbackGyro(m_encoderGyro);
+        m_driftEstimator = new GyroDriftEstimator(m_modules, m_navx);
+        m_dispatcher = new ModuleDispatcher(m_modules);
+        m_flightRecorder = new FlightRecorder(m_modules, m_navx, Constants.FLIGHT_RECORDER_BUFFER_BYTES);
+        m_lastModuleSpeeds = new double[m_modules.length];
+    }
+
+    /**
+     * Get the number of CAN frames sent to the drive module motor controllers. Only frames through a
+     * {@link CachingMotorController} are counted.
+     *
+     * @return The number of CAN frames sent.
+     */
+    public long getCanFramesSent() {
+        long sent = 0;
+        for (DriveModule module : m_modules) {
+            sent += getCanCache(module.getDriveMotor(), true) + getCanCache(module.getSpinMotor(), true);
+        }
+        return sent;
+    }
+
+    /**
+     * Get the number of redundant CAN frames suppressed by the drive module motor controller caches.
+     *
+     * @return The number of CAN frames suppressed.
+     */
+    public long getCanFramesSuppressed() {
+        long suppressed = 0;
+        for (DriveModule module : m_modules) {
+            suppressed += getCanCache(module.getDriveMotor(), false) + getCanCache(module.getSpinMotor(), false);
+        }
+        return suppressed;
+    }
+
+    private static long getCanCache(IMotorController motor, boolean sent) {
+        if (motor instanceof CachingMotorController) {
+            CachingMotorController cache = (CachingMotorController) motor;
+            return sent ? cache.getSentCount() : cache.getSuppressedCount();
+        }
+        return 0;
+    }
+
+    /**
+     * Start sending the module commands on a dedicated dispatch thread rather than on the command scheduler thread.
+     * While the dispatch thread is running, modules must only be commanded through this drive subsystem.
+     */
+    public void startDispatchThread() {
+        m_dispatcher.start();
+    }
 
-        m_rr = DriveModule.factory(Constants.MotorControllers.RR_DRIVE, Constants.MotorControllers.RR_SPIN,
-                Constants.AnalogPorts.RR, Constants.CalibrationOffset.RR);
+    /**
+     * Stop the dispatch thread, module commands are sent on the calling thread again.
+     */
+    public void stopDispatchThread() {
+        m_dispatcher.stop();
+    }
 
-        m_lf = DriveModule.factory(Constants.MotorControllers.LF_DRIVE, Constants.MotorControllers.LF_SPIN,
-                Constants.AnalogPorts.LF, Constants.CalibrationOffset.LF);
+    /**
+     * @return (not null) The module command dispatcher, for dispatch statistics.
+     */
+    public ModuleDispatcher getDispatcher() {
+        return m_dispatcher;
+    }
 
-        m_lr = DriveModule.factory(Constants.MotorControllers.LR_DRIVE, Constants.MotorControllers.LR_SPIN,
-                Constants.AnalogPorts.LR, Constants.CalibrationOffset.LR);
+    /**
+     * Get the NavX this drive subsystem uses for heading.
+     *
+     * @return The NavX owned by this drive subsystem.
+     */
+    public NavX getNavX() {
+        return m_navx;
+    }
+
+    /**
+     * Get the number of drive modules.
+     *
+     * @return The number of drive modules.
+     */
+    public int getModuleCount() {
+        return m_modules.length;
+    }
+
+    /**
+     * Get a drive module.
+     *
+     * @param module (int) The module index, in kinematics module order.
+     * @return The drive module.
+     */
+    public DriveModule getModule(int module) {
+        return m_modules[module];
     }
 
     public DriveModule getRFModule() {
-        return m_rf;
+        return m_modules[SwerveKinematics.RF];
     }
 
     public DriveModule getRRModule() {
-        return m_rr;
+        return m_modules[SwerveKinematics.RR];
     }
 
     public DriveModule getLFModule() {
-        return m_lf;
+        return m_modules[SwerveKinematics.LF];
     }
 
     public DriveModule getLRModule() {
-        return m_lr;
+        return m_modules[SwerveKinematics.LR];
     }
 
     public void resetDrivePID() {
-        m_rf.setDrivePID();
-        m_rr.setDrivePID();
-        m_lf.setDrivePID();
-        m_lr.setDrivePID();
+        for (DriveModule module : m_modules) {
+            module.setDrivePID();
+        }
     }
 
     /**
@@ -101,48 +252,6 @@ public class DriveSubsystem extends SubsystemBase {
     public void swerveDriveComponents(double forward, double strafe,
                                        double rotation) {
         setModulesForChassisMotion(forward, strafe, rotation,true);
-//        // calculate a, b, c and d variables
-//        double a = strafe - (rotation * LENGTH_OVER_DIAGONAL);
-//        double b = strafe + (rotation * LENGTH_OVER_DIAGONAL);
-//        double c = forward - (rotation * WIDTH_OVER_DIAGONAL);
-//        double d = forward + (rotation * WIDTH_OVER_DIAGONAL);
-//
-//        // calculate wheel speeds
-//        double rfSpeed = Utl.length(b, c);
-//        double lfSpeed = Utl.length(b, d);
-//        double lrSpeed = Utl.length(a, d);
-//        double rrSpeed = Utl.length(a, c);
-//
-//        // normalize speeds
-//        double max = Utl.max(rfSpeed, lfSpeed, lrSpeed, rrSpeed);
-//        if (max > 1.0) {
-//            rfSpeed /= max;
-//            lfSpeed /= max;
-//            lrSpeed /= max;
-//            rrSpeed /= max;
-//            forward /= max;
-//            strafe /= max;
-//            rotation /= max;
-//        }
-//
-//        // if speed is small or 0, (i.e. essentially stopped), use the last angle because its next motion
-//        // will probably be very close to its current last motion - i.e. the next direction will probably
-//        // be very close to the last direction.
-//        m_RF_lastRadians = (rfSpeed < Constants.SMALL) ? m_RF_lastRadians : Math.atan2(b, c);
-//        m_LF_lastRadians = (lfSpeed < Constants.SMALL) ? m_LF_lastRadians : Math.atan2(b, d);
-//        m_LR_lastRadians = (lrSpeed < Constants.SMALL) ? m_LR_lastRadians : Math.atan2(a, d);
-//        m_RR_lastRadians = (rrSpeed < Constants.SMALL) ? m_RR_lastRadians : Math.atan2(a, c);
-//
-//        // run wheels at speeds and angles
-//        m_rf.setRadiansAndSpeed(m_RF_lastRadians, rfSpeed);
-//        m_lf.setRadiansAndSpeed(m_LF_lastRadians, lfSpeed);
-//        m_lr.setRadiansAndSpeed(m_LR_lastRadians, lrSpeed);
-//        m_rr.setRadiansAndSpeed(m_RR_lastRadians, rrSpeed);
-//
-//        // save the values we set for use in odometry calculations
-//        m_thisChassisForward = forward;
-//        m_thisChassisStrafe = strafe;
-//        m_thisChassisRotation = rotation;
     }
 
     /**
@@ -183,48 +292,34 @@ public class DriveSubsystem extends SubsystemBase {
     private void setModulesForChassisMotion(double forward, double strafe,
                                            double rotation, boolean setSpeeds)
     {
-        // calculate a, b, c and d variables
-        double a = strafe - (rotation * LENGTH_OVER_DIAGONAL);
-        double b = strafe + (rotation * LENGTH_OVER_DIAGONAL);
-        double c = forward - (rotation * WIDTH_OVER_DIAGONAL);
-        double d = forward + (rotation * WIDTH_OVER_DIAGONAL);
-
-        // calculate wheel speeds
-        double rfSpeed = Utl.length(b, c);
-        double lfSpeed = Utl.length(b, d);
-        double lrSpeed = Utl.length(a, d);
-        double rrSpeed = Utl.length(a, c);
-
-        // normalize speeds
-        double max = Utl.max(rfSpeed, lfSpeed, lrSpeed, rrSpeed);
-        if (max > 1.0) {
-            rfSpeed /= max;
-            lfSpeed /= max;
-            lrSpeed /= max;
-            rrSpeed /= max;
-            forward /= max;
-            strafe /= max;
-            rotation /= max;
+        // compute the module directions and speeds
+        m_kinematics.compute(forward, strafe, rotation);
+
+        // run wheels at speeds and angles - compute the commands for all of the modules, then send them together
+        long now = RobotClock.nanoTime();
+        double dt = (now - m_lastModuleNanos) * 1.0e-9;
+        m_lastModuleNanos = now;
+        for (int i = 0; i < m_modules.length; i++) {
+            double radians = m_kinematics.getRadians(i);
+            double speed = setSpeeds ? m_kinematics.getSpeed(i) : 0.0;
+            if (Constants.USE_AZIMUTH_FEEDFORWARD) {
+                // The module measures the rate its direction is changing from its spin setpoint. The direction of
+                // a module that is not moving is arbitrary, and a longer interval is a gap between driving, so
+                // there is no rate for those.
+                boolean tracking = (speed > Constants.SMALL) && (m_lastModuleSpeeds[i] > Constants.SMALL) &&
+                        (dt < 0.1);
+                m_modules[i].computeTrackingRadiansAndSpeed(radians, speed, tracking ? dt : 0.0);
+            } else {
+                m_modules[i].computeRadiansAndSpeed(radians, speed);
+            }
+            m_lastModuleSpeeds[i] = speed;
         }
-
-        // if speed is small or 0, (i.e. essentially stopped), use the last angle because its next motion
-        // will probably be very close to its current last motion - i.e. the next direction will probably
-        // be very close to the last direction.
-        m_RF_lastRadians = (rfSpeed < Constants.SMALL) ? m_RF_lastRadians : Math.atan2(b, c);
-        m_LF_lastRadians = (lfSpeed < Constants.SMALL) ? m_LF_lastRadians : Math.atan2(b, d);
-        m_LR_lastRadians = (lrSpeed < Constants.SMALL) ? m_LR_lastRadians : Math.atan2(a, d);
-        m_RR_lastRadians = (rrSpeed < Constants.SMALL) ? m_RR_lastRadians : Math.atan2(a, c);
-
-        // run wheels at speeds and angles
-        m_rf.setRadiansAndSpeed(m_RF_lastRadians, setSpeeds ? rfSpeed : 0.0);
-        m_lf.setRadiansAndSpeed(m_LF_lastRadians, setSpeeds ? lfSpeed : 0.0);
-        m_lr.setRadiansAndSpeed(m_LR_lastRadians, setSpeeds ? lrSpeed : 0.0);
-        m_rr.setRadiansAndSpeed(m_RR_lastRadians, setSpeeds ? rrSpeed : 0.0);
+        m_dispatcher.dispatch();
 
         // save the values we set for use in odometry calculations
-        m_thisChassisForward = setSpeeds ? forward : 0.0;
-        m_thisChassisStrafe = setSpeeds ? strafe : 0.0;
-        m_thisChassisRotation = setSpeeds ? rotation : 0.0;
+        m_thisChassisForward = setSpeeds ? m_kinematics.getForward() : 0.0;
+        m_thisChassisStrafe = setSpeeds ? m_kinematics.getStrafe() : 0.0;
+        m_thisChassisRotation = setSpeeds ? m_kinematics.getRotation() : 0.0;
 
     }
 
@@ -242,7 +337,11 @@ public class DriveSubsystem extends SubsystemBase {
     }
 
     /**
-     * Swerve drive with a field-relative direction (angle in radians), a speed and a rotation.
+     * Swerve drive with a field-relative direction (angle in radians), a speed and a rotation. If
+     * {@link Constants#USE_LATENCY_COMPENSATION} is set, the field direction is converted to a chassis direction
+     * with the heading predicted for when the modules respond to this command, rather than the last measured
+     * heading - otherwise the robot turns further before the modules respond, and driving while spinning
+     * curves away from the field direction.
      *
      * @param fieldDirection (double) The direction in radians from -Math.PI to Math.PI where 0.0 is away from the
      *                       driver, and positive is clockwise.
@@ -250,10 +349,30 @@ public class DriveSubsystem extends SubsystemBase {
      * @param rotation       (double) Clockwise rotation speed from -1.0 to 1.0.
      */
     public void swerveDriveFieldRelative(double fieldDirection, double speed, double rotation) {
-        double chassisDirection = fieldDirection - m_navx.getHeading();
+        double heading;
+        if (Constants.USE_LATENCY_COMPENSATION) {
+            long now = RobotClock.nanoTime();
+            double period = (now - m_lastFieldRelativeNanos) * 1.0e-9;
+            m_lastFieldRelativeNanos = now;
+            if (period < 0.1) {
+                // a longer period is a gap between driving, not the command period
+                m_commandPeriod += 0.1 * (period - m_commandPeriod);
+            }
+            heading = m_navx.getPredictedHeading(Constants.DRIVE_ACTUATION_LATENCY + (0.5 * m_commandPeriod));
+        } else {
+            heading = m_navx.getHeading();
+        }
+        double chassisDirection = fieldDirection - heading;
         swerveDrive(chassisDirection, speed, rotation);
     }
 
+    /**
+     * @return The measured period of field-relative drive commands, in seconds.
+     */
+    public double getCommandPeriod() {
+        return m_commandPeriod;
+    }
+
     /**
      * Swerve drive with a robot-relative direction (angle in degrees), a speed and a rotation.
      *
@@ -277,23 +396,166 @@ public class DriveSubsystem extends SubsystemBase {
      * @param heading (double) The heading of the robot on the field., in radians.
      */
     public void setFieldPosition(double fieldX, double fieldY, double heading) {
-        m_fieldX = fieldX;
-        m_fieldY = fieldY;
-        m_fieldHeading = heading;
         m_navx.initializeHeadingAndNav(heading);
-        m_lastTime = System.currentTimeMillis();
+        resetOdometry(fieldX, fieldY, heading);
+        m_poseHistory.clear();
+        m_lastNanos = RobotClock.nanoTime();
+    }
+
+    /**
+     * Get the history of robot poses, recorded once per scheduler cycle. Use this to find where the robot was
+     * when a measurement was taken. The history should only be used from the command scheduler thread.
+     *
+     * @return (not null) The pose history.
+     */
+    public PoseHistory getPoseHistory() {
+        return m_poseHistory;
+    }
+
+    /**
+     * Set how odometry is computed. The field position is not changed, so odometry continues from the
+     * current field position in the new mode.
+     *
+     * @param odometryMode (OdometryMode, not null) The odometry mode.
+     */
+    public void setOdometryMode(OdometryMode odometryMode) {
+        SwerveOdometry.Pose pose = getPose();
+        double fieldX = pose.fieldX;
+        double fieldY = pose.fieldY;
+        double fieldHeading = pose.heading;
+        m_odometryMode = odometryMode;
+        resetOdometry(fieldX, fieldY, fieldHeading);
     }
 
+    /**
+     * Reset the scheduler cycle odometry and the odometry thread to a field position. While the odometry thread
+     * is running it is the only thread that samples the module sensors, so the scheduler cycle odometry only
+     * takes the pose, and the thread restarts its encoder interval when it handles the reset request.
+     *
+     * @param fieldX  (double) The X location of the robot on the field.
+     * @param fieldY  (double) The Y location of the robot on the field.
+     * @param heading (double) The heading of the robot on the field, in radians.
+     */
+    private void resetOdometry(double fieldX, double fieldY, double heading) {
+        if (null == m_odometryThread) {
+            m_odometry.reset(fieldX, fieldY, heading);
+        } else {
+            m_odometry.setPose(fieldX, fieldY, heading);
+            m_odometryThread.requestReset(fieldX, fieldY, heading);
+        }
+    }
+
+    /**
+     * Get the flight recorder. The commands driving this subsystem set the driver input and path point on the
+     * recorder, see {@link #recordFlightData(long)}.
+     *
+     * @return (not null) The flight recorder.
+     */
+    public FlightRecorder getFlightRecorder() {
+        return m_flightRecorder;
+    }
+
+    /**
+     * Record this robot loop in the flight recorder. This should be called once every robot loop, after the
+     * command scheduler has run, so the record has this loop's commands.
+     *
+     * @param nowNanos (long) The current {@link RobotClock#nanoTime()} time.
+     */
+    public void recordFlightData(long nowNanos) {
+        if (m_flightRecorder.isRecording()) {
+            SwerveOdometry.Pose pose = getPose();
+            m_flightRecorder.record(nowNanos, pose.fieldX, pose.fieldY, pose.heading);
+        }
+    }
+
+    /**
+     * @return (not null) The NavX drift estimator, for the drift rate.
+     */
+    public GyroDriftEstimator getDriftEstimator() {
+        return m_driftEstimator;
+    }
+
+    /**
+     * @return The current odometry mode.
+     */
+    public OdometryMode getOdometryMode() {
+        return m_odometryMode;
+    }
+
+    /**
+     * Start running encoder odometry on a dedicated thread at a higher rate than the command scheduler. While
+     * the odometry thread is running, and the odometry mode is {@link OdometryMode#ENCODERS}, the odometry
+     * thread also updates the NavX heading and this subsystem reports the pose published by the odometry thread.
+     *
+     * @param rateHz (double) The odometry update rate, in cycles per second.
+     */
+    public void startOdometryThread(double rateHz) {
+        if (null != m_odometryThread) {
+            return;
+        }
+        OdometryThread odometryThread = new OdometryThread(m_modules, new SwerveKinematics(m_kinematics),
+                m_navx, m_encoderGyro, rateHz);
+        odometryThread.requestReset(m_odometry.getFieldX(), m_odometry.getFieldY(), m_odometry.getFieldHeading());
+        odometryThread.start();
+        m_odometryThread = odometryThread;
+    }
+
+    /**
+     * Stop the odometry thread, odometry continues from the last pose in the scheduler cycle.
+     */
+    public void stopOdometryThread() {
+        if (null == m_odometryThread) {
+            return;
+        }
+        m_odometryThread.stop();
+        // the thread has stopped sampling, so the scheduler cycle re-samples the module sensors to start its next
+        // encoder interval from the last pose of whichever odometry was running
+        SwerveOdometry.Pose pose = getPose();
+        m_odometry.reset(pose.fieldX, pose.fieldY, pose.heading);
+        m_odometryThread = null;
+    }
+
+    /**
+     * @return {@code true} if odometry is being computed on the odometry thread.
+     */
+    private boolean isOdometryOnThread() {
+        return (null != m_odometryThread) && (m_odometryMode == OdometryMode.ENCODERS);
+    }
+
+    /**
+     * Get the current field position of the robot as an immutable snapshot. This may be called from any thread.
+     * Code that uses more than one of the field X, field Y, and heading should use one snapshot, so they are all
+     * from the same odometry update.
+     *
+     * @return (not null) The current field position.
+     */
+    public SwerveOdometry.Pose getPose() {
+        if (isOdometryOnThread()) {
+            return m_odometryThread.getPose();
+        }
+        return new SwerveOdometry.Pose(m_odometry.getFieldX(), m_odometry.getFieldY(),
+                m_odometry.getFieldHeading(), RobotClock.nanoTime());
+    }
+
+    /**
+     * @return The current field X of the robot, in meters. This is for telemetry, see {@link #getPose()}.
+     */
     public double getFieldX() {
-        return m_fieldX;
+        return isOdometryOnThread() ? m_odometryThread.getPose().fieldX : m_odometry.getFieldX();
     }
 
+    /**
+     * @return The current field Y of the robot, in meters. This is for telemetry, see {@link #getPose()}.
+     */
     public double getFieldY() {
-        return m_fieldY;
+        return isOdometryOnThread() ? m_odometryThread.getPose().fieldY : m_odometry.getFieldY();
     }
 
+    /**
+     * @return The current field heading of the robot, in radians. This is for telemetry, see {@link #getPose()}.
+     */
     public double getFieldHeading() {
-        return m_fieldHeading;
+        return isOdometryOnThread() ? m_odometryThread.getPose().heading : m_odometry.getFieldHeading();
     }
 
     /**
@@ -304,17 +566,14 @@ public class DriveSubsystem extends SubsystemBase {
      * @param targetHeading double) The desired chassis heading on the field, in radians.
      */
     public void setHeading(double targetHeading) {
-        m_RF_lastRadians = Math.atan2(Constants.DRIVE_LENGTH, -Constants.DRIVE_WIDTH);
-        m_LF_lastRadians = Math.atan2(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
-        m_LR_lastRadians = Math.atan2(-Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
-        m_RR_lastRadians = Math.atan2(-Constants.DRIVE_LENGTH, -Constants.DRIVE_WIDTH);
+        m_kinematics.computeRotationInPlace();
 
         double deltaTics = (targetHeading - m_navx.getHeading()) * Constants.DRIVE_POS_TICS_PER_RADIAN;
 
-        m_rf.setRadiansAndDistance(m_RF_lastRadians, deltaTics);
-        m_lf.setRadiansAndDistance(m_LF_lastRadians, deltaTics);
-        m_lr.setRadiansAndDistance(m_LR_lastRadians, deltaTics);
-        m_rr.setRadiansAndDistance(m_RR_lastRadians, deltaTics);
+        for (int i = 0; i < m_modules.length; i++) {
+            m_modules[i].computeRadiansAndDistance(m_kinematics.getRadians(i), deltaTics);
+        }
+        m_dispatcher.dispatch();
 
         m_thisChassisForward = 0.0;
         m_thisChassisStrafe = 0.0;
@@ -326,35 +585,66 @@ public class DriveSubsystem extends SubsystemBase {
     @Override
     public void periodic() {
         // This method will be called once per scheduler run
-        // Update the NavX heading
-        m_navx.recomputeHeading(false);
+        long start = System.nanoTime();
+        long now = RobotClock.nanoTime();
+        if (!isOdometryOnThread()) {
+            // Update the NavX heading
+            m_navx.recomputeHeading(false);
+            double currentHeading = m_navx.getHeading();
+            if (m_odometryMode == OdometryMode.ENCODERS) {
+                // this samples the module sensors for this cycle
+                m_odometry.updateFromEncoders(currentHeading);
+            } else {
+                if (null == m_odometryThread) {
+                    // nothing else is sampling the module sensors, sample them for this cycle
+                    for (DriveModule module : m_modules) {
+                        module.sampleSensors();
+                    }
+                }
+                updateCommandedOdometry(currentHeading, now);
+            }
+        }
+
+        // the module sensors have been sampled for this cycle, update the NavX drift estimate
+        m_driftEstimator.update(now);
+
+        // record the pose for lookups of where the robot was
+        if (isOdometryOnThread()) {
+            SwerveOdometry.Pose pose = m_odometryThread.getPose();
+            m_poseHistory.record(pose.timeNanos, pose.fieldX, pose.fieldY, pose.heading);
+        } else {
+            m_poseHistory.record(now, m_odometry.getFieldX(), m_odometry.getFieldY(),
+                    m_odometry.getFieldHeading());
+        }
+
+        // save the current state as the last state
+        m_lastChassisForward = m_thisChassisForward;
+        m_lastChassisStrafe = m_thisChassisStrafe;
+        m_lastChassisRotation = m_thisChassisRotation;
+        m_lastNanos = now;
+        m_periodicTiming.end(start);
+    }
+
+    /**
+     * Update the field position from the commanded chassis motion.
+     *
+     * @param currentHeading (double) The current heading, in radians.
+     * @param now            (long) The current {@link RobotClock#nanoTime()} time.
+     */
+    private void updateCommandedOdometry(double currentHeading, long now) {
         // Update the odometry for the drive. OK, the scam here is that there was a previous heading set
         // in the last command cycle when we were setting the new direction/speed/rotation for the
         // chassis, and the heading we are at now. For odometry, assume the average of the last heading and current
         // heading approximates the path of the robot and that the last speed set happened pretty
         // instantaneously. In that case, we can make a pretty good guess how the robot moved on the field.
 
-        // Get the average speed and heading for this interval
-        double currentHeading = m_navx.getHeading();
-        double aveHeading = (m_lastHeading + currentHeading) * 0.5;
+        // Get the average speed for this interval
         double aveForward = (m_lastChassisForward + m_thisChassisForward) * 0.5;
         double aveStrafe = (m_lastChassisStrafe + m_thisChassisStrafe) * 0.5;
 
         // the the maximum distance we could travel in this interval at max speed
-        long now = System.currentTimeMillis();
-        double maxDistanceInInterval = Constants.MAX_METERS_PER_SEC * (double) (now - m_lastTime) / 1000.0;
-
-        // compute the distance in field X and Y and update the field position
-        double sinHeading = Math.sin(aveHeading);
-        double cosHeading = Math.cos(aveHeading);
-        m_fieldX += ((aveForward * sinHeading) + (aveStrafe * cosHeading)) * maxDistanceInInterval;
-        m_fieldY += ((aveForward * cosHeading) - (aveStrafe * sinHeading)) * maxDistanceInInterval;
+        double maxDistanceInInterval = Constants.MAX_METERS_PER_SEC * (now - m_lastNanos) * 1.0e-9;
 
-        // save the current state as the last state
-        m_lastHeading = m_fieldHeading = currentHeading;
-        m_lastChassisForward = m_thisChassisForward;
-        m_lastChassisStrafe = m_thisChassisStrafe;
-        m_lastChassisRotation = m_thisChassisRotation;
-        m_lastTime = now;
+        m_odometry.move(aveForward * maxDistanceInInterval, aveStrafe * maxDistanceInInterval, currentHeading);
     }
 }
@@ -16,4 +16,10 @@ public interface IGetTargetError {
      * @return Heading to the target relative to the current robot heading, in radians.
      */
     public double GetTargetHeadingError();
+
+    /**
+     * @param timeNanos The {@link frc.robot.RobotClock#nanoTime()} time the target measurement was taken.
+     * @return Heading to the target relative to the robot heading at the specified time, in radians.
+     */
+    public double GetTargetHeadingErrorAt(long timeNanos);
 }
@@ -0,0 +1,169 @@
+package frc.robot.subsystems;
+
+import frc.robot.DriveModule;
+import frc.robot.LoopTiming;
+
+/**
+ * Sends the pending commands of all of the drive modules to their motor controllers as one batch. The drive
+ * computes the commands for every module first (see {@link DriveModule#computeRadiansAndSpeed(double, double)}),
+ * then dispatches them together, so the modules receive their setpoints as close together as possible.
+ * <p>
+ * By default the batch is sent on the calling thread. When the dispatch thread is started, {@link #dispatch()}
+ * copies the commands into a batch and returns immediately, and the dispatch thread sends the batch - this takes
+ * the CAN writes out of the command scheduler cycle. If a new batch is dispatched before the dispatch thread has
+ * sent the previous one, only the newest batch is sent. While the dispatch thread is running it is the only
+ * thread that sends commands to the modules, so all module commands must go through the dispatcher.
+ */
+public class ModuleDispatcher {
+
+    private final DriveModule[] m_modules;
+
+    // the batch waiting for the dispatch thread, and the batch the dispatch thread is sending. m_queued and
+    // m_hasQueued are guarded by m_lock.
+    private DriveModule.Command[] m_queued;
+    private DriveModule.Command[] m_sending;
+    private boolean m_hasQueued = false;
+    private final Object m_lock = new Object();
+
+    private volatile boolean m_running = false;
+    private Thread m_thread = null;
+
+    // batch statistics, written only by the thread sending the batches
+    private volatile long m_batches = 0;
+    private volatile long m_batchTimeNanos = 0L;
+    private volatile long m_batchSkewNanos = 0L;
+    private final LoopTiming.Stage m_timing = LoopTiming.getInstance().getStage("module dispatch");
+
+    /**
+     * Instantiate a dispatcher for a set of drive modules.
+     *
+     * @param modules (DriveModule[], not null) The drive modules.
+     */
+    public ModuleDispatcher(DriveModule[] modules) {
+        m_modules = modules;
+        m_queued = new DriveModule.Command[modules.length];
+        m_sending = new DriveModule.Command[modules.length];
+        for (int i = 0; i < modules.length; i++) {
+            m_queued[i] = new DriveModule.Command();
+            m_sending[i] = new DriveModule.Command();
+        }
+    }
+
+    /**
+     * Send the pending command of every module, either now, or on the dispatch thread if it is running.
+     */
+    public void dispatch() {
+        if (!m_running) {
+            send(null);
+            return;
+        }
+        synchronized (m_lock) {
+            for (int i = 0; i < m_modules.length; i++) {
+                m_queued[i].copy(m_modules[i].getPendingCommand());
+            }
+            m_hasQueued = true;
+            m_lock.notify();
+        }
+    }
+
+    /**
+     * Send a batch - the pending module commands if {@code batch} is {@code null}.
+     */
+    private void send(DriveModule.Command[] batch) {
+        long start = System.nanoTime();
+        for (int i = 0; i < m_modules.length; i++) {
+            if (null == batch) {
+                m_modules[i].flush();
+            } else {
+                m_modules[i].apply(batch[i]);
+            }
+        }
+        m_batchSkewNanos = System.nanoTime() - start;
+        m_batchTimeNanos = start;
+        m_batches++;
+        m_timing.end(start);
+    }
+
+    /**
+     * Start the dispatch thread. This does nothing if the thread is already running.
+     */
+    public synchronized void start() {
+        if (null != m_thread) {
+            return;
+        }
+        m_running = true;
+        m_thread = new Thread(this::run, "module-dispatch");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stop the dispatch thread and wait for it to finish. Any batch it has not sent is discarded.
+     */
+    public synchronized void stop() {
+        if (null == m_thread) {
+            return;
+        }
+        synchronized (m_lock) {
+            m_running = false;
+            m_lock.notify();
+        }
+        try {
+            m_thread.join();
+        } catch (InterruptedException e) {
+            //  If this is interrupted it is because the robot is being shut down - that is OK
+        }
+        m_thread = null;
+    }
+
+    /**
+     * @return {@code true} if the dispatch thread is running, {@code false} otherwise.
+     */
+    public boolean isRunning() {
+        return m_running;
+    }
+
+    /**
+     * @return The number of batches sent.
+     */
+    public long getBatches() {
+        return m_batches;
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} time the last batch started sending.
+     */
+    public long getBatchTimeNanos() {
+        return m_batchTimeNanos;
+    }
+
+    /**
+     * @return The time from the first module write to the last module write in the last batch, in nanoseconds.
+     * This is the skew between the modules receiving their setpoints.
+     */
+    public long getBatchSkewNanos() {
+        return m_batchSkewNanos;
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (m_lock) {
+                while (!m_hasQueued && m_running) {
+                    try {
+                        m_lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!m_running) {
+                    return;
+                }
+                DriveModule.Command[] swap = m_sending;
+                m_sending = m_queued;
+                m_queued = swap;
+                m_hasQueued = false;
+            }
+            send(m_sending);
+        }
+    }
+}
@@ -24,9 +24,21 @@ public class OdometryTargetError extends SubsystemBase implements IGetTargetErro
   }
 
   public double GetTargetHeadingError() {
-    double fieldX = m_driveSubsystem.getFieldX();
-    double fieldY = m_driveSubsystem.getFieldY();
-    double fieldHeading = m_driveSubsystem.getFieldHeading();
+    SwerveOdometry.Pose pose = m_driveSubsystem.getPose();
+    return getTargetHeadingError(pose.fieldX, pose.fieldY, pose.heading);
+  }
+
+  public double GetTargetHeadingErrorAt(long timeNanos) {
+    PoseHistory poseHistory = m_driveSubsystem.getPoseHistory();
+    if (!poseHistory.lookup(timeNanos)) {
+      // no history yet, the best we can do is the current pose
+      return GetTargetHeadingError();
+    }
+    return getTargetHeadingError(poseHistory.getLookupX(), poseHistory.getLookupY(),
+        poseHistory.getLookupHeading());
+  }
+
+  private double getTargetHeadingError(double fieldX, double fieldY, double fieldHeading) {
     double angleToTargetFromZero = Math.atan2(m_targetX - fieldX, m_targetY - fieldY);
     fieldHeading %= Utl.PI;
     return angleToTargetFromZero - fieldHeading;
@@ -0,0 +1,175 @@
+package frc.robot.subsystems;
+
+import frc.robot.DriveModule;
+import frc.robot.NavX;
+import frc.robot.RobotClock;
+import frc.robot.SwerveKinematics;
+import frc.robot.hardware.IntegratingGyro;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs encoder odometry on its own thread at a fixed rate, independent of the 20ms command scheduler cycle.
+ * Each cycle samples the NavX heading and the drive module encoders, integrates the motion, and publishes an
+ * immutable {@link SwerveOdometry.Pose}.
+ * <p>
+ * The odometry thread is the only writer of the odometry state. The pose is handed off to readers through a
+ * volatile reference, so readers on any thread always see a complete, consistent pose without locking. Requests
+ * to reset the field position are handed the other way, and applied by the odometry thread at the start of its
+ * next cycle.
+ */
+public class OdometryThread {
+
+    private final NavX m_navx;
+    private final SwerveOdometry m_odometry;
+    private final long m_periodNanos;
+
+    private volatile SwerveOdometry.Pose m_pose;
+    private final AtomicReference<SwerveOdometry.Pose> m_resetRequest = new AtomicReference<>();
+    private volatile boolean m_running = false;
+    private Thread m_thread = null;
+
+    // loop statistics, written only by the odometry thread
+    private volatile long m_cycles = 0;
+    private volatile long m_overruns = 0;
+
+    /**
+     * Instantiate the odometry thread. The thread is not started until {@link #start()} is called.
+     *
+     * @param modules    (DriveModule[], not null) The drive modules, in the module order of {@code kinematics}.
+     * @param kinematics (SwerveKinematics, not null) The kinematics describing the module positions. The odometry
+     *                   thread needs its own instance because the kinematics results are not thread safe.
+     * @param navx       (NavX, not null) The NavX providing the robot heading.
+     * @param rateHz     (double) The odometry update rate, in cycles per second.
+     */
+    public OdometryThread(DriveModule[] modules, SwerveKinematics kinematics, NavX navx, double rateHz) {
+        this(modules, kinematics, navx, null, rateHz);
+    }
+
+    /**
+     * Instantiate the odometry thread with a gyro integrating the encoder measured chassis rotation. The thread
+     * is not started until {@link #start()} is called.
+     *
+     * @param modules     (DriveModule[], not null) The drive modules, in the module order of {@code kinematics}.
+     * @param kinematics  (SwerveKinematics, not null) The kinematics describing the module positions. The
+     *                    odometry thread needs its own instance because the kinematics results are not thread safe.
+     * @param navx        (NavX, not null) The NavX providing the robot heading.
+     * @param encoderGyro (IntegratingGyro) The gyro integrating the encoder measured chassis rotation (see
+     *                    {@link SwerveOdometry#setEncoderGyro(IntegratingGyro)}), {@code null} if there is none.
+     * @param rateHz      (double) The odometry update rate, in cycles per second.
+     */
+    public OdometryThread(DriveModule[] modules, SwerveKinematics kinematics, NavX navx,
+                          IntegratingGyro encoderGyro, double rateHz) {
+        m_navx = navx;
+        m_odometry = new SwerveOdometry(modules, kinematics);
+        m_odometry.setEncoderGyro(encoderGyro);
+        m_periodNanos = (long) (1.0e9 / rateHz);
+        m_pose = new SwerveOdometry.Pose(0.0, 0.0, 0.0, RobotClock.nanoTime());
+    }
+
+    /**
+     * Start the odometry thread. This does nothing if the thread is already running.
+     */
+    public synchronized void start() {
+        if (null != m_thread) {
+            return;
+        }
+        m_running = true;
+        m_thread = new Thread(this::run, "odometry");
+        m_thread.setDaemon(true);
+        m_thread.start();
+    }
+
+    /**
+     * Stop the odometry thread and wait for it to finish.
+     */
+    public synchronized void stop() {
+        if (null == m_thread) {
+            return;
+        }
+        m_running = false;
+        LockSupport.unpark(m_thread);
+        try {
+            m_thread.join();
+        } catch (InterruptedException e) {
+            //  If this is interrupted it is because the robot is being shut down - that is OK
+        }
+        m_thread = null;
+    }
+
+    /**
+     * @return {@code true} if the odometry thread is running, {@code false} otherwise.
+     */
+    public boolean isRunning() {
+        return m_running;
+    }
+
+    /**
+     * Request that the field position be reset. The reset is applied by the odometry thread at the start of
+     * its next cycle, so the pose from {@link #getPose()} may not reflect the reset for up to one cycle.
+     *
+     * @param fieldX  (double) The X location of the robot on the field.
+     * @param fieldY  (double) The Y location of the robot on the field.
+     * @param heading (double) The heading of the robot on the field, in radians.
+     */
+    public void requestReset(double fieldX, double fieldY, double heading) {
+        SwerveOdometry.Pose reset = new SwerveOdometry.Pose(fieldX, fieldY, heading, RobotClock.nanoTime());
+        m_resetRequest.set(reset);
+        if (!m_running) {
+            // nothing will pick up the request, publish it as the current pose
+            m_pose = reset;
+        }
+    }
+
+    /**
+     * Get the most recent pose. This may be called from any thread.
+     *
+     * @return (not null) The most recent pose.
+     */
+    public SwerveOdometry.Pose getPose() {
+        return m_pose;
+    }
+
+    /**
+     * @return The number of odometry cycles that have been run.
+     */
+    public long getCycles() {
+        return m_cycles;
+    }
+
+    /**
+     * @return The number of odometry cycles that did not finish before the next cycle was due.
+     */
+    public long getOverruns() {
+        return m_overruns;
+    }
+
+    private void run() {
+        long nextCycle = System.nanoTime();
+        while (m_running) {
+            cycle();
+            nextCycle += m_periodNanos;
+            long wait = nextCycle - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // overrun - we are late, start the next period now rather than trying to catch up
+                m_overruns++;
+                nextCycle = System.nanoTime();
+            }
+        }
+    }
+
+    private void cycle() {
+        SwerveOdometry.Pose reset = m_resetRequest.getAndSet(null);
+        if (null != reset) {
+            m_odometry.reset(reset.fieldX, reset.fieldY, reset.heading);
+        }
+        m_navx.recomputeHeading(false);
+        m_odometry.updateFromEncoders(m_navx.getHeading());
+        m_pose = new SwerveOdometry.Pose(m_odometry.getFieldX(), m_odometry.getFieldY(),
+                m_odometry.getFieldHeading(), RobotClock.nanoTime());
+        m_cycles++;
+    }
+}
@@ -0,0 +1,174 @@
+package frc.robot.subsystems;
+
+/**
+ * A fixed capacity history of timestamped robot poses, used to answer "where was the robot at time t" - for
+ * example, where the robot was when a camera frame was captured, rather than where it is now. When the history
+ * is full the oldest pose is replaced.
+ * <p>
+ * Poses are stored in preallocated primitive arrays, so recording a pose does not allocate anything on the
+ * heap. A lookup is a binary search for the poses on either side of the requested time and a linear
+ * interpolation between them; the result is read with {@link #getLookupX()}, {@link #getLookupY()}, and
+ * {@link #getLookupHeading()}.
+ * <p>
+ * This class is not thread safe - it should be recorded to and read from the same thread.
+ */
+public class PoseHistory {
+
+    private final int m_capacity;
+    private final long[] m_timeNanos;
+    private final double[] m_fieldX;
+    private final double[] m_fieldY;
+    private final double[] m_heading;
+    /**
+     * The array index of the oldest pose.
+     */
+    private int m_oldest = 0;
+    /**
+     * The number of poses in the history.
+     */
+    private int m_size = 0;
+
+    // the result of the last lookup
+    private double m_lookupX = 0.0;
+    private double m_lookupY = 0.0;
+    private double m_lookupHeading = 0.0;
+
+    /**
+     * Instantiate a pose history.
+     *
+     * @param capacity (int) The maximum number of poses kept in the history.
+     * @throws IllegalArgumentException if the capacity is less than 2.
+     */
+    public PoseHistory(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The pose history capacity must be at least 2.");
+        }
+        m_capacity = capacity;
+        m_timeNanos = new long[capacity];
+        m_fieldX = new double[capacity];
+        m_fieldY = new double[capacity];
+        m_heading = new double[capacity];
+    }
+
+    /**
+     * Remove all poses from the history. This should be called when the field position is reset, so lookups
+     * do not interpolate across the reset.
+     */
+    public void clear() {
+        m_oldest = 0;
+        m_size = 0;
+    }
+
+    /**
+     * @return The number of poses in the history.
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * Record a pose. Poses must be recorded in time order; a pose that is not newer than the newest pose in
+     * the history is ignored.
+     *
+     * @param timeNanos (long) The {@link frc.robot.RobotClock#nanoTime()} time of the pose.
+     * @param fieldX    (double) The X location of the robot on the field.
+     * @param fieldY    (double) The Y location of the robot on the field.
+     * @param heading   (double) The heading of the robot on the field, in radians.
+     * @return {@code true} if the pose was recorded, {@code false} if it was ignored.
+     */
+    public boolean record(long timeNanos, double fieldX, double fieldY, double heading) {
+        if ((m_size > 0) && (timeNanos - m_timeNanos[index(m_size - 1)] <= 0)) {
+            return false;
+        }
+        int index;
+        if (m_size < m_capacity) {
+            index = index(m_size);
+            m_size++;
+        } else {
+            index = m_oldest;
+            m_oldest = (m_oldest + 1) % m_capacity;
+        }
+        m_timeNanos[index] = timeNanos;
+        m_fieldX[index] = fieldX;
+        m_fieldY[index] = fieldY;
+        m_heading[index] = heading;
+        return true;
+    }
+
+    /**
+     * Convert the position of a pose in the history (0 is the oldest) to the array index of that pose.
+     */
+    private int index(int position) {
+        return (m_oldest + position) % m_capacity;
+    }
+
+    /**
+     * Find the pose of the robot at the specified time, interpolating between the recorded poses on either side
+     * of that time. A time before the oldest pose returns the oldest pose, and a time after the newest pose
+     * returns the newest pose - the pose is not extrapolated.
+     *
+     * @param timeNanos (long) The {@link frc.robot.RobotClock#nanoTime()} time of the pose.
+     * @return {@code true} if there was a pose, {@code false} if the history is empty.
+     */
+    public boolean lookup(long timeNanos) {
+        if (m_size == 0) {
+            return false;
+        }
+        // binary search for the last pose at or before the requested time
+        int low = 0;
+        int high = m_size - 1;
+        if (timeNanos - m_timeNanos[index(low)] <= 0) {
+            setLookup(index(low));
+            return true;
+        }
+        if (timeNanos - m_timeNanos[index(high)] >= 0) {
+            setLookup(index(high));
+            return true;
+        }
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (timeNanos - m_timeNanos[index(mid)] >= 0) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        // interpolate between the poses at low and high
+        int before = index(low);
+        int after = index(high);
+        double fraction = (double) (timeNanos - m_timeNanos[before]) /
+                (double) (m_timeNanos[after] - m_timeNanos[before]);
+        m_lookupX = m_fieldX[before] + (fraction * (m_fieldX[after] - m_fieldX[before]));
+        m_lookupY = m_fieldY[before] + (fraction * (m_fieldY[after] - m_fieldY[before]));
+        m_lookupHeading = m_heading[before] + (fraction * (m_heading[after] - m_heading[before]));
+        return true;
+    }
+
+    private void setLookup(int index) {
+        m_lookupX = m_fieldX[index];
+        m_lookupY = m_fieldY[index];
+        m_lookupHeading = m_heading[index];
+    }
+
+    /**
+     * @return The X location of the robot on the field from the last {@link #lookup(long)}.
+     */
+    public double getLookupX() {
+        return m_lookupX;
+    }
+
+    /**
+     * @return The Y location of the robot on the field from the last {@link #lookup(long)}.
+     */
+    public double getLookupY() {
+        return m_lookupY;
+    }
+
+    /**
+     * @return The heading of the robot on the field, in radians, from the last {@link #lookup(long)}.
+     */
+    public double getLookupHeading() {
+        return m_lookupHeading;
+    }
+}
@@ -0,0 +1,187 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants;
+import frc.robot.DriveModule;
+import frc.robot.SwerveKinematics;
+import frc.robot.hardware.IntegratingGyro;
+
+/**
+ * Tracks the position of the robot on the field by integrating the motion of the chassis. The chassis motion
+ * is either provided directly (see {@link #move(double, double, double)}), or measured from the drive module
+ * encoders (see {@link #updateFromEncoders(double)}).
+ * <p>
+ * This class is not thread safe - each instance should only be updated by a single thread. Everything used in
+ * an update is preallocated so updating does not allocate anything on the heap.
+ */
+public class SwerveOdometry {
+
+    /**
+     * An immutable snapshot of the robot position on the field.
+     */
+    public static class Pose {
+        /**
+         * The X location of the robot on the field, in meters.
+         */
+        public final double fieldX;
+        /**
+         * The Y location of the robot on the field, in meters.
+         */
+        public final double fieldY;
+        /**
+         * The heading of the robot on the field, in radians.
+         */
+        public final double heading;
+        /**
+         * The {@link frc.robot.RobotClock#nanoTime()} time this pose was computed.
+         */
+        public final long timeNanos;
+
+        public Pose(double fieldX, double fieldY, double heading, long timeNanos) {
+            this.fieldX = fieldX;
+            this.fieldY = fieldY;
+            this.heading = heading;
+            this.timeNanos = timeNanos;
+        }
+    }
+
+    private final DriveModule[] m_modules;
+    private final SwerveKinematics m_kinematics;
+
+    private double m_fieldX = 0.0;
+    private double m_fieldY = 0.0;
+    private double m_fieldHeading = 0.0;
+    private double m_lastHeading = 0.0;
+
+    // the gyro integrating the chassis rotation measured by the encoders, null if there is none
+    private IntegratingGyro m_encoderGyro = null;
+
+    // the last drive encoder positions, and the working arrays for the module motion in this interval, all in
+    // kinematics module order.
+    private final double[] m_lastDrivePositions;
+    private final double[] m_moduleDistances;
+    private final double[] m_moduleRadians;
+
+    /**
+     * Instantiate the odometry for a set of drive modules.
+     *
+     * @param modules    (DriveModule[], not null) The drive modules, in the module order of {@code kinematics}.
+     * @param kinematics (SwerveKinematics, not null) The kinematics describing the module positions. This is
+     *                   used for the forward kinematics only, so it may be shared with the code driving the
+     *                   modules as long as both are on the same thread.
+     */
+    public SwerveOdometry(DriveModule[] modules, SwerveKinematics kinematics) {
+        m_modules = modules;
+        m_kinematics = kinematics;
+        m_lastDrivePositions = new double[m_modules.length];
+        m_moduleDistances = new double[m_modules.length];
+        m_moduleRadians = new double[m_modules.length];
+        resetDrivePositions();
+    }
+
+    /**
+     * Set the field position of the robot, and start the next encoder interval from the current encoder
+     * positions.
+     *
+     * @param fieldX  (double) The X location of the robot on the field.
+     * @param fieldY  (double) The Y location of the robot on the field.
+     * @param heading (double) The heading of the robot on the field, in radians.
+     */
+    public void reset(double fieldX, double fieldY, double heading) {
+        m_fieldX = fieldX;
+        m_fieldY = fieldY;
+        m_fieldHeading = heading;
+        m_lastHeading = heading;
+        resetDrivePositions();
+    }
+
+    /**
+     * Set the field position of the robot without sampling the module sensors. Use this instead of
+     * {@link #reset(double, double, double)} while another thread samples the module sensors; the next encoder
+     * interval must then start from a {@link #resetDrivePositions()} on the sampling thread.
+     *
+     * @param fieldX  (double) The X location of the robot on the field.
+     * @param fieldY  (double) The Y location of the robot on the field.
+     * @param heading (double) The heading of the robot on the field, in radians.
+     */
+    public void setPose(double fieldX, double fieldY, double heading) {
+        m_fieldX = fieldX;
+        m_fieldY = fieldY;
+        m_fieldHeading = heading;
+        m_lastHeading = heading;
+    }
+
+    /**
+     * Set the gyro that integrates the chassis rotation measured by the drive module encoders. This is the
+     * degraded heading source for the NavX (see {@link frc.robot.NavX#setFallbackGyro}), and is rotated in
+     * {@link #updateFromEncoders(double)}.
+     *
+     * @param encoderGyro (IntegratingGyro) The encoder gyro, {@code null} if there is none.
+     */
+    public void setEncoderGyro(IntegratingGyro encoderGyro) {
+        m_encoderGyro = encoderGyro;
+    }
+
+    /**
+     * Record the current drive encoder positions as the start of the next encoder interval.
+     */
+    public void resetDrivePositions() {
+        for (int i = 0; i < m_modules.length; i++) {
+            m_modules[i].sampleSensors();
+            m_lastDrivePositions[i] = m_modules[i].getSampledDrivePosition();
+        }
+    }
+
+    /**
+     * Update the field position from the measured module motion. Each module moved the change in its drive
+     * encoder position in the direction of its spin encoder; the forward kinematics give the chassis forward and
+     * strafe that best fit the module motion, and the NavX gives the heading. The module sensors are sampled
+     * here (see {@link DriveModule#sampleSensors()}), so the thread updating the odometry is the thread that
+     * samples the module sensors.
+     *
+     * @param currentHeading (double) The current heading, in radians.
+     */
+    public void updateFromEncoders(double currentHeading) {
+        for (int i = 0; i < m_modules.length; i++) {
+            DriveModule module = m_modules[i];
+            module.sampleSensors();
+            double drivePosition = module.getSampledDrivePosition();
+            m_moduleDistances[i] = (drivePosition - m_lastDrivePositions[i]) * Constants.DRIVE_METERS_PER_TIC;
+            m_moduleRadians[i] = module.getSampledSpinPosition() / Constants.RADIANS_TO_SPIN_ENCODER;
+            m_lastDrivePositions[i] = drivePosition;
+        }
+        m_kinematics.computeChassis(m_moduleDistances, m_moduleRadians);
+        if (null != m_encoderGyro) {
+            m_encoderGyro.rotate(Math.toDegrees(m_kinematics.getChassisRotation() / m_kinematics.getRotationRadius()));
+        }
+        move(m_kinematics.getChassisForward(), m_kinematics.getChassisStrafe(), currentHeading);
+    }
+
+    /**
+     * Move the field position by a chassis relative forward and strafe distance. Assume the average of the
+     * last heading and current heading approximates the heading of the robot as it moved this distance.
+     *
+     * @param forward        (double) The forward distance moved, in meters.
+     * @param strafe         (double) The strafe distance moved, in meters.
+     * @param currentHeading (double) The current heading, in radians.
+     */
+    public void move(double forward, double strafe, double currentHeading) {
+        double aveHeading = (m_lastHeading + currentHeading) * 0.5;
+        double sinHeading = Math.sin(aveHeading);
+        double cosHeading = Math.cos(aveHeading);
+        m_fieldX += (forward * sinHeading) + (strafe * cosHeading);
+        m_fieldY += (forward * cosHeading) - (strafe * sinHeading);
+        m_lastHeading = m_fieldHeading = currentHeading;
+    }
+
+    public double getFieldX() {
+        return m_fieldX;
+    }
+
+    public double getFieldY() {
+        return m_fieldY;
+    }
+
+    public double getFieldHeading() {
+        return m_fieldHeading;
+    }
+}
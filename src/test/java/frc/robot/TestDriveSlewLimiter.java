@@ -0,0 +1,73 @@
+package frc.robot;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestDriveSlewLimiter {
+
+    private static final long CYCLE_NANOS = 20000000L;
+
+    @Test
+    @DisplayName("Test no limits passes the command through")
+    void test_no_limits() {
+        DriveSlewLimiter limiter = new DriveSlewLimiter(0.0, 0.0, 0.0);
+        limiter.calculate(1.0, -0.5, 0.25, 0L);
+        assertEquals(1.0, limiter.getForward(), 0.000001);
+        assertEquals(-0.5, limiter.getStrafe(), 0.000001);
+        assertEquals(0.25, limiter.getRotation(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test the axis and rotation limits")
+    void test_axis_limits() {
+        DriveSlewLimiter limiter = new DriveSlewLimiter(2.0, 0.0, 5.0);
+        limiter.calculate(0.0, 0.0, 0.0, 0L);
+        limiter.calculate(1.0, -1.0, 1.0, CYCLE_NANOS);
+        assertEquals(0.04, limiter.getForward(), 0.000001);
+        assertEquals(-0.04, limiter.getStrafe(), 0.000001);
+        assertEquals(0.1, limiter.getRotation(), 0.000001);
+        // full speed is reached in half a second
+        long now = CYCLE_NANOS;
+        for (int i = 0; i < 24; i++) {
+            now += CYCLE_NANOS;
+            limiter.calculate(1.0, -1.0, 1.0, now);
+        }
+        assertEquals(1.0, limiter.getForward(), 0.000001);
+        assertEquals(-1.0, limiter.getStrafe(), 0.000001);
+        assertEquals(1.0, limiter.getRotation(), 0.000001);
+        // and the stop is limited too
+        limiter.calculate(0.0, 0.0, 0.0, now + CYCLE_NANOS);
+        assertEquals(0.96, limiter.getForward(), 0.000001);
+        assertEquals(0.9, limiter.getRotation(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test the vector limit is the same in every direction")
+    void test_vector_limit() {
+        DriveSlewLimiter limiter = new DriveSlewLimiter(0.0, 2.5, 0.0);
+        for (int i = 0; i < 8; i++) {
+            double direction = i * Math.PI / 4.0;
+            limiter.reset(0.0, 0.0, 0.0);
+            limiter.calculate(0.0, 0.0, 0.0, 0L);
+            limiter.calculate(Math.cos(direction), Math.sin(direction), 0.0, CYCLE_NANOS);
+            assertEquals(0.05, Math.sqrt(limiter.getForward() * limiter.getForward() +
+                    limiter.getStrafe() * limiter.getStrafe()), 0.000001);
+            assertEquals(direction, Math.atan2(limiter.getStrafe(), limiter.getForward()) +
+                    ((i > 4) ? 2.0 * Math.PI : 0.0), 0.000001);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a gap between commands is not a bigger change")
+    void test_gap() {
+        DriveSlewLimiter limiter = new DriveSlewLimiter(0.0, 1.0, 0.0);
+        limiter.calculate(0.0, 0.0, 0.0, 0L);
+        limiter.calculate(1.0, 0.0, 0.0, 5000000000L);
+        assertEquals(0.1, limiter.getForward(), 0.000001);
+    }
+}
@@ -0,0 +1,81 @@
+package frc.robot;
+
+import frc.robot.sim.SwerveSimulation;
+import frc.robot.subsystems.DriveSubsystem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestDriveSubsystem {
+
+    private static final double DT = 0.02;
+
+    private static DriveSubsystem createDriveSubsystem(SwerveSimulation simulation) {
+        return new DriveSubsystem(simulation.getModules(),
+                new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH),
+                new NavX(simulation.getGyro(), 10.0, 0.0));
+    }
+
+    @Test
+    @DisplayName("Test the module direction feed-forward follows a turning drive direction")
+    void test_azimuth_feedforward_turning() {
+        boolean useAzimuthFeedforward = Constants.USE_AZIMUTH_FEEDFORWARD;
+        try {
+            Constants.USE_AZIMUTH_FEEDFORWARD = true;
+            RobotClock.useVirtualTime(0L);
+            SwerveSimulation simulation = new SwerveSimulation();
+            DriveSubsystem driveSubsystem = createDriveSubsystem(simulation);
+            // the drive direction turns clockwise at 1 radian/sec
+            for (int n = 0; n < 25; n++) {
+                driveSubsystem.swerveDrive(n * DT, 0.5, 0.0);
+                simulation.step(DT);
+            }
+            for (DriveModule module : simulation.getModules()) {
+                assertEquals(Constants.SPIN_kV, module.getPendingCommand().spinFeedforward, 0.000001);
+            }
+        } finally {
+            Constants.USE_AZIMUTH_FEEDFORWARD = useAzimuthFeedforward;
+            RobotClock.useSystemTime();
+        }
+    }
+
+    @Test
+    @DisplayName("Test reversing the drive direction at speed does not spike the module direction feed-forward")
+    void test_azimuth_feedforward_reversing() {
+        boolean useAzimuthFeedforward = Constants.USE_AZIMUTH_FEEDFORWARD;
+        try {
+            Constants.USE_AZIMUTH_FEEDFORWARD = true;
+            RobotClock.useVirtualTime(0L);
+            SwerveSimulation simulation = new SwerveSimulation();
+            DriveSubsystem driveSubsystem = createDriveSubsystem(simulation);
+            for (int n = 0; n < 50; n++) {
+                driveSubsystem.swerveDriveComponents(0.8, 0.1, 0.0);
+                simulation.step(DT);
+            }
+            // reverse - the modules run backwards rather than turning, the spin setpoints do not move
+            driveSubsystem.swerveDriveComponents(-0.8, -0.1, 0.0);
+            for (DriveModule module : simulation.getModules()) {
+                assertEquals(0.0, module.getPendingCommand().spinFeedforward, 0.000001);
+                assertTrue(module.getPendingCommand().driveReference < 0.0);
+            }
+            // and swing the direction 90 degrees every loop, the modules turn as far as they ever do, and the
+            // feed-forward is limited to the motor voltage
+            for (int n = 0; n < 50; n++) {
+                simulation.step(DT);
+                driveSubsystem.swerveDriveComponents((0 == (n % 2)) ? 0.0 : -0.8, (0 == (n % 2)) ? 0.8 : 0.0,
+                        0.0);
+                for (DriveModule module : simulation.getModules()) {
+                    assertEquals(Constants.MAX_SPIN_FEEDFORWARD,
+                            Math.abs(module.getPendingCommand().spinFeedforward), 0.000001);
+                }
+            }
+        } finally {
+            Constants.USE_AZIMUTH_FEEDFORWARD = useAzimuthFeedforward;
+            RobotClock.useSystemTime();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package frc.robot;
+
+import frc.robot.hardware.IntegratingGyro;
+import frc.robot.sim.SimulatedMotorController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestFlightRecorder {
+
+    private static DriveModule[] modules() {
+        DriveModule[] modules = new DriveModule[4];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = new DriveModule(new SimulatedMotorController(5700.0, 0.1),
+                    new SimulatedMotorController(5700.0, 0.03), () -> 0.0, 0.0);
+            modules[i].sampleSensors();
+        }
+        return modules;
+    }
+
+    @Test
+    @DisplayName("Test records are written and decoded, across buffer hand-offs")
+    void test_record_and_decode() throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        Path logFile = directory.resolve("test.log");
+        try {
+            recordAndDecode(logFile);
+        } finally {
+            Files.deleteIfExists(logFile);
+            Files.delete(directory);
+        }
+    }
+
+    private static void recordAndDecode(Path logFile) throws IOException {
+        DriveModule[] modules = modules();
+        IntegratingGyro gyro = new IntegratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        // a buffer of a little more than 3 records
+        FlightRecorder recorder = new FlightRecorder(modules, navx, (FlightRecorder.recordBytes(4) * 3) + 100);
+        recorder.start(logFile);
+        assertTrue(recorder.isRecording());
+        int records = 10;
+        for (int n = 0; n < records; n++) {
+            gyro.rotate(1.5);
+            navx.recomputeHeading(false);
+            modules[0].computeRadiansAndSpeed(0.1 * n, 0.5);
+            recorder.setDriverInput(0.1 * n, -0.2 * n, 0.3);
+            if (n % 2 == 0) {
+                recorder.setPathPoint(n, 2.0 * n, 0.25);
+            }
+            recorder.record(1000000000L + (n * 20000000L), 0.5 * n, -0.5 * n, 0.01 * n);
+            // wait for the writer, so nothing is dropped
+            while (!recorder.flush() && (n % 3 == 2)) {
+                Thread.yield();
+            }
+        }
+        recorder.stop();
+        assertFalse(recorder.isRecording());
+        assertEquals(records, recorder.getRecordCount());
+        assertEquals(0, recorder.getDroppedCount());
+        assertEquals(Files.size(logFile), recorder.getBytesWritten());
+
+        FlightLog log = FlightLog.map(logFile);
+        assertEquals(4, log.getModuleCount());
+        assertEquals(records, log.getCount());
+        FlightLog.Record record = new FlightLog.Record(4);
+        for (int n = 0; n < records; n++) {
+            log.read(n, record);
+            assertEquals(1000000000L + (n * 20000000L), record.timeNanos);
+            assertTrue(record.hasDriverInput());
+            assertEquals(n % 2 == 0, record.hasPathPoint());
+            assertEquals(0.1 * n, record.stickY);
+            assertEquals(-0.2 * n, record.stickX);
+            assertEquals(1.5 * (n + 1), record.navxRawYaw, 0.000001);
+            assertEquals(Math.toRadians(1.5 * (n + 1)), record.navxHeading, 0.00001);
+            assertEquals(0.5 * n, record.fieldX, 0.00001);
+            assertEquals(-0.5 * n, record.fieldY, 0.00001);
+            assertTrue(record.isDriveBySpeed(0));
+            assertEquals(modules[1].getSampledDrivePosition(), record.drivePosition[1]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> log.read(records, record));
+    }
+
+    @Test
+    @DisplayName("Test nothing is recorded until the recorder is started")
+    void test_not_started() throws IOException {
+        IntegratingGyro gyro = new IntegratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        FlightRecorder recorder = new FlightRecorder(modules(), navx, FlightRecorder.recordBytes(4) + 100);
+        // not started, nothing is recorded
+        recorder.record(0L, 0.0, 0.0, 0.0);
+        assertEquals(0, recorder.getRecordCount());
+        assertThrows(IllegalArgumentException.class, () -> new FlightRecorder(modules(), navx, 10));
+    }
+
+    @Test
+    @DisplayName("Test logs are numbered, never overwritten, limited in size, and only the newest are kept")
+    void test_log_files() throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        Path other = directory.resolve("drive-notes.log");
+        try {
+            Files.write(other, new byte[1]);
+            Path first = FlightRecorder.nextLogFile(directory, 3);
+            assertEquals("drive-00001.log", first.getFileName().toString());
+            IntegratingGyro gyro = new IntegratingGyro();
+            NavX navx = new NavX(gyro, 10.0, 0.0);
+            // a log with room for 2 records
+            FlightRecorder recorder = new FlightRecorder(modules(), navx, FlightRecorder.recordBytes(4) * 4);
+            recorder.start(first, FlightRecorder.HEADER_BYTES + (2 * FlightRecorder.recordBytes(4)));
+            for (int n = 0; n < 5; n++) {
+                recorder.record(n, 0.0, 0.0, 0.0);
+            }
+            recorder.stop();
+            assertEquals(2, recorder.getRecordCount());
+            assertEquals(3, recorder.getDroppedCount());
+            assertEquals(2, FlightLog.map(first).getCount());
+
+            // the log is never overwritten
+            FlightRecorder again = new FlightRecorder(modules(), navx, FlightRecorder.recordBytes(4) * 4);
+            assertThrows(IOException.class, () -> again.start(first));
+            assertFalse(again.isRecording());
+            assertTrue(again.flush());
+
+            // the sequence continues, and the oldest logs are deleted
+            for (int n = 2; n <= 5; n++) {
+                Path next = FlightRecorder.nextLogFile(directory, 3);
+                assertEquals(String.format("drive-%05d.log", n), next.getFileName().toString());
+                Files.write(next, new byte[1]);
+            }
+            assertFalse(Files.exists(first));
+            assertFalse(Files.exists(directory.resolve("drive-00002.log")));
+            assertTrue(Files.exists(directory.resolve("drive-00003.log")));
+            assertTrue(Files.exists(other));
+            assertThrows(IllegalArgumentException.class, () -> FlightRecorder.nextLogFile(directory, 0));
+        } finally {
+            for (int n = 1; n <= 5; n++) {
+                Files.deleteIfExists(directory.resolve(String.format("drive-%05d.log", n)));
+            }
+            Files.delete(other);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a file that is not a flight log is rejected")
+    void test_not_a_log() throws IOException {
+        Path file = Files.createTempFile("test", ".log");
+        try {
+            Files.write(file, new byte[64]);
+            assertThrows(IOException.class, () -> FlightLog.map(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package frc.robot;
+
+import frc.robot.hardware.IntegratingGyro;
+import frc.robot.sim.SimulatedMotorController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestGyroDriftEstimator {
+
+    private static final long CYCLE_NANOS = 20000000L;
+
+    private static DriveModule[] stationaryModules() {
+        DriveModule[] modules = new DriveModule[4];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = new DriveModule(new SimulatedMotorController(5700.0, 0.1),
+                    new SimulatedMotorController(5700.0, 0.03), () -> 0.0, 0.0);
+            modules[i].sampleSensors();
+        }
+        return modules;
+    }
+
+    /**
+     * Run command cycles with the gyro drifting at a constant rate.
+     *
+     * @return The time after the last cycle.
+     */
+    private static long drift(IntegratingGyro gyro, NavX navx, GyroDriftEstimator estimator, long start,
+                              double seconds, double degreesPerSec) {
+        long now = start;
+        long cycles = (long) (seconds * 1.0e9 / CYCLE_NANOS);
+        for (long i = 0; i < cycles; i++) {
+            now += CYCLE_NANOS;
+            gyro.rotate(degreesPerSec * CYCLE_NANOS * 1.0e-9);
+            navx.recomputeHeading(false);
+            estimator.update(now);
+        }
+        return now;
+    }
+
+    @Test
+    @DisplayName("Test the drift rate is estimated and removed while stationary")
+    void test_stationary_drift() {
+        IntegratingGyro gyro = new IntegratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        GyroDriftEstimator estimator = new GyroDriftEstimator(stationaryModules(), navx);
+        drift(gyro, navx, estimator, 0L, 30.0, 0.1);
+        assertTrue(estimator.isStationary());
+        assertTrue(estimator.getWindowCount() > 20);
+        assertEquals(Math.toRadians(0.1), estimator.getDriftRate(), Math.toRadians(0.005));
+        // the heading has been held at the start heading, less the drift of the settle time
+        assertEquals(0.0, navx.getHeading(), Math.toRadians(0.1));
+    }
+
+    @Test
+    @DisplayName("Test a fast heading change is not drift")
+    void test_not_drift() {
+        IntegratingGyro gyro = new IntegratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        GyroDriftEstimator estimator = new GyroDriftEstimator(stationaryModules(), navx);
+        drift(gyro, navx, estimator, 0L, 10.0, 10.0);
+        assertEquals(0, estimator.getWindowCount());
+        assertEquals(0.0, estimator.getDriftRate(), 0.000001);
+        assertEquals(Math.toRadians(100.0), navx.getHeading(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test setting the heading is not drift")
+    void test_heading_set() {
+        IntegratingGyro gyro = new IntegratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        GyroDriftEstimator estimator = new GyroDriftEstimator(stationaryModules(), navx);
+        long now = drift(gyro, navx, estimator, 0L, 1.0, 0.0);
+        navx.initializeHeadingAndNav(Math.toRadians(0.5));
+        drift(gyro, navx, estimator, now, 1.0, 0.0);
+        assertEquals(Math.toRadians(0.5), navx.getHeading(), 0.000001);
+        assertEquals(0.0, estimator.getDriftRate(), 0.000001);
+    }
+}
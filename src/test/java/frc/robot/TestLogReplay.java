@@ -0,0 +1,108 @@
+package frc.robot;
+
+import frc.robot.sim.ReplayGyro;
+import frc.robot.sim.ReplayMotorController;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestLogReplay {
+
+    private static final int LOOPS = 500;
+    private static final long LOOP_NANOS = 20000000L;
+
+    /**
+     * Write a log of a driver driving in a curve while turning, with the encoders and NavX following along. Only
+     * the inputs matter, the recorded outputs are whatever the modules were last commanded.
+     */
+    private static void writeInputLog(Path logFile) throws IOException {
+        ReplayGyro gyro = new ReplayGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        DriveModule[] modules = new DriveModule[4];
+        ReplayMotorController[] driveMotors = new ReplayMotorController[4];
+        ReplayMotorController[] spinMotors = new ReplayMotorController[4];
+        for (int i = 0; i < 4; i++) {
+            driveMotors[i] = new ReplayMotorController();
+            spinMotors[i] = new ReplayMotorController();
+            modules[i] = new DriveModule(driveMotors[i], spinMotors[i], () -> 0.0, 0.0);
+        }
+        FlightRecorder recorder = new FlightRecorder(modules, navx, 1024 * 1024);
+        recorder.start(logFile);
+        for (int n = 0; n < LOOPS; n++) {
+            double t = n * 0.02;
+            double yaw = 30.0 * t;
+            gyro.setRecorded(yaw - (360.0 * Math.floor((yaw + 180.0) / 360.0)));
+            navx.recomputeHeading(false);
+            for (int i = 0; i < 4; i++) {
+                driveMotors[i].setRecorded(100.0 * t * t + i, 1000.0 * t);
+                spinMotors[i].setRecorded(2.0 * Math.sin(t + i), 0.0);
+                modules[i].sampleSensors();
+            }
+            recorder.setDriverInput(0.6 * Math.cos(t), 0.6 * Math.sin(t), (n < LOOPS / 2) ? 0.5 : 0.0);
+            recorder.record(5000000000L + (n * LOOP_NANOS), 0.0, 0.0, 0.0);
+        }
+        recorder.stop();
+    }
+
+    @Test
+    @DisplayName("Test replays are bit-for-bit repeatable, and reproduce a replayed log exactly")
+    void test_deterministic() throws IOException {
+        Path directory = Files.createTempDirectory("logs");
+        Path inputLog = directory.resolve("input.log");
+        Path firstLog = directory.resolve("first.log");
+        Path secondLog = directory.resolve("second.log");
+        Path thirdLog = directory.resolve("third.log");
+        try {
+            writeInputLog(inputLog);
+            FlightLog input = FlightLog.map(inputLog);
+            assertEquals(LOOPS, input.getCount());
+
+            LogReplay first = new LogReplay(input, null);
+            first.replay(firstLog);
+            assertEquals(LOOPS, first.getLoopCount());
+            // the input log has no real outputs
+            assertTrue(first.getMismatchedLoopCount() > 0);
+            assertTrue(RobotClock.isVirtual());
+            assertEquals(5000000000L + ((LOOPS - 1) * LOOP_NANOS), RobotClock.nanoTime());
+
+            // replaying the same log through the same code regenerates the same outputs
+            new LogReplay(FlightLog.map(inputLog), null).replay(secondLog);
+            assertTrue(Arrays.equals(Files.readAllBytes(firstLog), Files.readAllBytes(secondLog)));
+
+            // replaying the replay reproduces it exactly
+            LogReplay third = new LogReplay(FlightLog.map(firstLog), null);
+            third.replay(thirdLog);
+            assertEquals(0, third.getMismatchedLoopCount());
+            assertEquals(0.0, third.getMaxSpinEncoderError());
+            assertEquals(0.0, third.getMaxDriveReferenceError());
+            assertEquals(0.0, third.getMaxPoseError());
+
+            // and the robot actually drove
+            FlightLog replayed = FlightLog.map(firstLog);
+            FlightLog.Record record = new FlightLog.Record(replayed.getModuleCount());
+            double maxDriveReference = 0.0;
+            for (int n = 0; n < LOOPS; n++) {
+                replayed.read(n, record);
+                maxDriveReference = Math.max(maxDriveReference, Math.abs(record.driveReference[0]));
+            }
+            assertTrue(maxDriveReference > 100.0);
+            assertTrue(Math.abs(record.fieldX) + Math.abs(record.fieldY) > 1.0);
+        } finally {
+            RobotClock.useSystemTime();
+            Files.deleteIfExists(inputLog);
+            Files.deleteIfExists(firstLog);
+            Files.deleteIfExists(secondLog);
+            Files.deleteIfExists(thirdLog);
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package frc.robot;
+
+import frc.robot.hardware.IntegratingGyro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestNavX {
+
+    private static final long SECOND = 1000000000L;
+
+    /**
+     * A gyro that calibrates until it is told it is done, and only reports updates when it is rotated.
+     */
+    private static class CalibratingGyro extends IntegratingGyro {
+        boolean calibrating = true;
+
+        @Override
+        public boolean isCalibrating() {
+            return calibrating;
+        }
+    }
+
+    @Test
+    @DisplayName("Test the NavX is not ready until calibrated")
+    void test_calibration() {
+        CalibratingGyro gyro = new CalibratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        long start = System.nanoTime();
+        assertEquals(NavX.Status.INITIALIZING, navx.getStatus());
+        assertFalse(navx.isReady());
+        gyro.rotate(30.0);
+        navx.recomputeHeading(false);
+        assertEquals(0.0, navx.getHeading(), 0.000001);
+        assertNull(navx.getHeadingInfo());
+        assertNull(navx.getNavInfo());
+
+        gyro.calibrating = false;
+        navx.checkGyro(start + SECOND);
+        assertTrue(navx.isReady());
+        gyro.rotate(45.0);
+        navx.recomputeHeading(false);
+        assertEquals(Math.toRadians(45.0), navx.getHeading(), 0.000001);
+        assertNotNull(navx.getHeadingInfo());
+        assertNotNull(navx.getNavInfo());
+    }
+
+    @Test
+    @DisplayName("Test the NavX is degraded if it does not calibrate in time")
+    void test_init_timeout() {
+        CalibratingGyro gyro = new CalibratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        long start = System.nanoTime();
+        IntegratingGyro fallback = new IntegratingGyro();
+        navx.setFallbackGyro(fallback);
+        navx.initializeHeadingAndNav(Math.PI / 2.0);
+        navx.checkGyro(start + (5 * SECOND));
+        assertEquals(NavX.Status.INITIALIZING, navx.getStatus());
+        navx.checkGyro(start + (11 * SECOND));
+        assertEquals(NavX.Status.DEGRADED, navx.getStatus());
+
+        // the heading continues from the initialized heading, driven by the fallback gyro
+        fallback.rotate(90.0);
+        navx.recomputeHeading(false);
+        assertEquals(Math.PI, navx.getHeading(), 0.000001);
+        assertNotNull(navx.getHeadingInfo());
+
+        // the NavX finally calibrates, the heading continues from the fallback heading
+        gyro.calibrating = false;
+        navx.checkGyro(start + (12 * SECOND));
+        assertTrue(navx.isReady());
+        gyro.rotate(-45.0);
+        navx.recomputeHeading(false);
+        assertEquals(Math.toRadians(135.0), navx.getHeading(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test the NavX is degraded when it stops reporting")
+    void test_stall() {
+        CalibratingGyro gyro = new CalibratingGyro();
+        gyro.calibrating = false;
+        NavX navx = new NavX(gyro, 10.0, 0.25);
+        long start = System.nanoTime();
+        assertTrue(navx.isReady());
+        gyro.rotate(10.0);
+        navx.checkGyro(start + (SECOND / 10));
+        navx.recomputeHeading(false);
+        assertEquals(Math.toRadians(10.0), navx.getHeading(), 0.000001);
+
+        // no updates - there is no fallback, so the heading holds
+        navx.checkGyro(start + (SECOND / 2));
+        assertEquals(NavX.Status.DEGRADED, navx.getStatus());
+        assertNull(navx.getHeadingInfo());
+        navx.recomputeHeading(false);
+        assertEquals(Math.toRadians(10.0), navx.getHeading(), 0.000001);
+
+        // reporting again
+        gyro.rotate(170.0);
+        gyro.rotate(10.0);
+        navx.checkGyro(start + SECOND);
+        assertTrue(navx.isReady());
+        gyro.rotate(20.0);
+        navx.recomputeHeading(false);
+        assertEquals(Math.toRadians(30.0), navx.getHeading(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test the heading is unwrapped through many revolutions")
+    void test_unwrap() {
+        CalibratingGyro gyro = new CalibratingGyro();
+        gyro.calibrating = false;
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        double expected = 0.0;
+        for (int i = 0; i < 20; i++) {
+            gyro.rotate(170.0);
+            expected += 170.0;
+            navx.recomputeHeading(false);
+            assertEquals(Math.toRadians(expected), navx.getHeading(), 0.000001);
+        }
+        for (int i = 0; i < 30; i++) {
+            gyro.rotate(-150.0);
+            expected -= 150.0;
+            navx.recomputeHeading(false);
+            assertEquals(Math.toRadians(expected), navx.getHeading(), 0.000001);
+        }
+        NavX.Sample sample = navx.getSample();
+        assertEquals(Math.toRadians(expected), sample.heading, 0.000001);
+        assertEquals(gyro.getYaw(), sample.rawYaw, 0.000001);
+        assertEquals(gyro.getUpdateCount(), sample.updateCount, 0.000001);
+
+        // the same sample instance is refreshed
+        gyro.rotate(10.0);
+        navx.recomputeHeading(false);
+        navx.getSample(sample);
+        assertEquals(Math.toRadians(expected + 10.0), sample.heading, 0.000001);
+        assertEquals(gyro.getYaw(), sample.rawYaw, 0.000001);
+        assertEquals(gyro.getUpdateCount(), sample.updateCount, 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test the heading and navigation info are filled in place")
+    void test_fill_info() {
+        CalibratingGyro gyro = new CalibratingGyro();
+        NavX navx = new NavX(gyro, 10.0, 0.0);
+        NavX.HeadingInfo headingInfo = new NavX.HeadingInfo();
+        NavX.NavInfo navInfo = new NavX.NavInfo();
+        assertFalse(navx.getHeadingInfo(headingInfo));
+        assertFalse(navx.getNavInfo(navInfo));
+
+        gyro.calibrating = false;
+        navx.checkGyro(System.nanoTime());
+        navx.initializeHeadingAndNav(1.0);
+        gyro.rotate(45.0);
+        navx.recomputeHeading(false);
+        assertTrue(navx.getHeadingInfo(headingInfo));
+        assertEquals(1.0 + Math.toRadians(45.0), headingInfo.heading, 0.000001);
+        assertEquals(1.0, headingInfo.expectedHeading, 0.000001);
+        assertFalse(headingInfo.isExpectedTrackingCurrent);
+        assertEquals(1.0, navx.getExpectedHeading(), 0.000001);
+        assertTrue(navx.getNavInfo(navInfo));
+        assertEquals(Math.toRadians(45.0), navInfo.yaw, 0.000001);
+        assertEquals(Math.toRadians(45.0), navInfo.rawYaw, 0.000001);
+
+        // the same instance is refreshed
+        gyro.rotate(-90.0);
+        navx.recomputeHeading(true);
+        assertTrue(navx.getHeadingInfo(headingInfo));
+        assertEquals(1.0 - Math.toRadians(45.0), headingInfo.heading, 0.000001);
+        assertEquals(headingInfo.heading, headingInfo.expectedHeading, 0.000001);
+        assertTrue(headingInfo.isExpectedTrackingCurrent);
+    }
+
+    @Test
+    @DisplayName("Test the heading is predicted from the yaw rate")
+    void test_predicted_heading() {
+        try {
+            RobotClock.useVirtualTime(0L);
+            CalibratingGyro gyro = new CalibratingGyro();
+            gyro.calibrating = false;
+            NavX navx = new NavX(gyro, 10.0, 0.0);
+            assertEquals(0.0, navx.getPredictedHeading(0.1));
+            // turn at 100 degrees/sec, sampled every 10ms
+            double yawRate = 0.0;
+            for (int i = 0; i < 50; i++) {
+                RobotClock.advance(SECOND / 100);
+                gyro.rotate(1.0);
+                navx.recomputeHeading(false);
+                yawRate += Constants.NAVX_YAW_RATE_FILTER * (100.0 - yawRate);
+            }
+            NavX.Sample sample = navx.getSample();
+            assertEquals(Math.toRadians(yawRate), sample.yawRate, 1.0e-12);
+            assertEquals(Math.toRadians(50.0), sample.heading, 1.0e-12);
+            assertEquals(RobotClock.nanoTime(), sample.timeNanos);
+
+            // predicted from the sample just taken
+            assertEquals(sample.heading + (sample.yawRate * 0.04), navx.getPredictedHeading(0.04), 1.0e-12);
+            // the time since the sample is predicted too
+            RobotClock.advance(SECOND / 50);
+            assertEquals(sample.heading + (sample.yawRate * 0.06), navx.getPredictedHeading(0.04), 1.0e-12);
+            // but no more than the maximum sample age
+            RobotClock.advance(SECOND);
+            assertEquals(sample.heading + (sample.yawRate * (Constants.NAVX_MAX_SAMPLE_AGE + 0.04)),
+                    navx.getPredictedHeading(0.04), 1.0e-12);
+        } finally {
+            RobotClock.useSystemTime();
+        }
+    }
+}
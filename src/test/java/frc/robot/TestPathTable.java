@@ -0,0 +1,128 @@
+package frc.robot;
+
+import org.a05annex.util.geo2d.KochanekBartelsSpline;
+import org.a05annex.util.geo2d.KochanekBartelsSpline.PathFollower;
+import org.a05annex.util.geo2d.KochanekBartelsSpline.PathPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestPathTable {
+
+    private static final double DT = 0.01;
+
+    private KochanekBartelsSpline testPath() {
+        KochanekBartelsSpline spline = new KochanekBartelsSpline();
+        spline.addControlPoint(0.0, 0.0, 0.0);
+        spline.addControlPoint(0.5, 1.0, 0.5);
+        spline.addControlPoint(1.0, 2.0, 1.0);
+        return spline;
+    }
+
+    private void verifySamples(PathTable table, KochanekBartelsSpline spline) {
+        PathFollower follower = spline.getPathFollower();
+        for (int i = 0; i < table.getCount(); i++) {
+            double time = i * DT;
+            PathPoint point = follower.getPointAt(time);
+            assertTrue(table.lookup(time));
+            assertEquals(point.fieldPt.getX(), table.getFieldX(), 0.000001);
+            assertEquals(point.fieldPt.getY(), table.getFieldY(), 0.000001);
+            assertEquals(point.fieldHeading, table.getFieldHeading(), 0.000001);
+            assertEquals(point.speedForward, table.getSpeedForward(), 0.000001);
+            assertEquals(point.speedStrafe, table.getSpeedStrafe(), 0.000001);
+            assertEquals(point.speedRotation, table.getSpeedRotation(), 0.000001);
+        }
+    }
+
+    @Test
+    @DisplayName("Test the compiled samples match the path")
+    void test_compile() {
+        KochanekBartelsSpline spline = testPath();
+        PathTable table = PathTable.compile(spline, DT, 0);
+        assertTrue(table.getCount() > 1);
+        assertEquals((table.getCount() - 1) * DT, table.getDuration(), 0.000001);
+        assertNull(spline.getPathFollower().getPointAt(table.getCount() * DT));
+        verifySamples(table, spline);
+    }
+
+    @Test
+    @DisplayName("Test interpolation between samples and the end of the path")
+    void test_interpolation() {
+        PathTable table = PathTable.compile(testPath(), DT, 0);
+        assertTrue(table.lookup(DT));
+        double x1 = table.getFieldX();
+        double heading1 = table.getFieldHeading();
+        assertTrue(table.lookup(2.0 * DT));
+        double x2 = table.getFieldX();
+        double heading2 = table.getFieldHeading();
+        assertTrue(table.lookup(1.25 * DT));
+        assertEquals(x1 + (0.25 * (x2 - x1)), table.getFieldX(), 0.000001);
+        assertEquals(heading1 + (0.25 * (heading2 - heading1)), table.getFieldHeading(), 0.000001);
+        // the end of the path
+        assertTrue(table.lookup(table.getDuration()));
+        assertFalse(table.lookup(table.getDuration() + DT));
+    }
+
+    @Test
+    @DisplayName("Test writing and memory mapping a table")
+    void test_write_map() throws IOException {
+        KochanekBartelsSpline spline = testPath();
+        Path tableFile = Files.createTempFile("test", PathTable.TABLE_EXTENSION);
+        try {
+            PathTable.compile(spline, DT, 0).write(tableFile);
+            PathTable table = PathTable.map(tableFile);
+            assertEquals(DT, table.getDt());
+            verifySamples(table, spline);
+        } finally {
+            Files.delete(tableFile);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a table is compiled when missing and recompiled when the path changes")
+    void test_load() throws IOException {
+        Path pathFile = Files.createTempFile("test", ".json");
+        Path tableFile = PathTable.tableFileFor(pathFile);
+        try {
+            KochanekBartelsSpline spline = testPath();
+            assertTrue(spline.savePath(pathFile.toString()));
+            assertFalse(Files.exists(tableFile));
+            PathTable table = PathTable.load(pathFile, DT);
+            assertNotNull(table);
+            assertTrue(Files.exists(tableFile));
+            int count = table.getCount();
+
+            spline.addControlPoint(1.0, 3.0, 1.0);
+            assertTrue(spline.savePath(pathFile.toString()));
+            table = PathTable.load(pathFile, DT);
+            assertNotNull(table);
+            assertTrue(table.getCount() > count);
+            KochanekBartelsSpline loaded = new KochanekBartelsSpline();
+            assertTrue(loaded.loadPath(pathFile.toString()));
+            verifySamples(table, loaded);
+        } finally {
+            Files.deleteIfExists(tableFile);
+            Files.delete(pathFile);
+        }
+    }
+
+    @Test
+    @DisplayName("Test a file that is not a table is rejected")
+    void test_not_a_table() throws IOException {
+        Path tableFile = Files.createTempFile("test", PathTable.TABLE_EXTENSION);
+        try {
+            Files.write(tableFile, new byte[64]);
+            assertThrows(IOException.class, () -> PathTable.map(tableFile));
+        } finally {
+            Files.delete(tableFile);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package frc.robot;
+
+import org.a05annex.util.Utl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestPathTrackingController {
+
+    private void verifySpeeds(PathTrackingController controller, double forward, double strafe, double rotation) {
+        assertEquals(forward, controller.getForward(), 0.000001);
+        assertEquals(strafe, controller.getStrafe(), 0.000001);
+        assertEquals(rotation, controller.getRotation(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test on the path is pure feed-forward")
+    void test_feed_forward() {
+        PathTrackingController controller = new PathTrackingController(2.0, 1.0, 0.5, 3.0, 1.0, 0.5);
+        controller.compute(1.0, 2.0, 0.5, 1.5, -0.5, 0.25, 1.0, 2.0, 0.5, 0.02);
+        verifySpeeds(controller, 1.5, -0.5, 0.25);
+    }
+
+    @Test
+    @DisplayName("Test proportional position and heading correction")
+    void test_proportional() {
+        PathTrackingController controller = new PathTrackingController(2.0, 0.0, 0.0, 3.0, 0.0, 0.0);
+        // robot at heading 0 (facing +Y), 0.1m behind the path and 0.2m left of it
+        controller.compute(0.0, 1.0, 0.0, 1.0, 0.0, 0.0, -0.2, 0.9, 0.0, 0.02);
+        verifySpeeds(controller, 1.0 + 0.2, 0.4, 0.0);
+        // the robot is facing +X, the same error is now strafe (for Y) and forward (for X)
+        controller.reset();
+        controller.compute(0.0, 1.0, Utl.PI_OVER_2, 0.0, 0.0, 0.0, -0.2, 0.9, Utl.PI_OVER_2, 0.02);
+        verifySpeeds(controller, 0.4, -0.2, 0.0);
+        // a heading error is corrected by rotation
+        controller.reset();
+        controller.compute(0.0, 0.0, 0.1, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.02);
+        verifySpeeds(controller, 0.0, 0.0, 0.3);
+    }
+
+    @Test
+    @DisplayName("Test path speeds are relative to the path heading, not the robot heading")
+    void test_heading_error() {
+        PathTrackingController controller = new PathTrackingController(0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+        // the path is driving forward facing +Y, but the robot is facing +X, so it must strafe left to follow the path
+        controller.compute(0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, 0.0, Utl.PI_OVER_2, 0.02);
+        verifySpeeds(controller, 0.0, -1.0, 0.0);
+    }
+
+    @Test
+    @DisplayName("Test integral and derivative terms")
+    void test_integral_derivative() {
+        PathTrackingController controller = new PathTrackingController(0.0, 1.0, 0.1, 0.0, 0.0, 0.0);
+        // the first compute has no derivative
+        controller.compute(0.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.5);
+        verifySpeeds(controller, 0.5, 0.0, 0.0);
+        // error drops from 1.0 to 0.5 in 0.5 sec, integral is 0.75, derivative is -1.0
+        controller.compute(0.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.5, 0.0, 0.5);
+        verifySpeeds(controller, 0.75 - 0.1, 0.0, 0.0);
+        // reset clears the integral and derivative
+        controller.reset();
+        controller.compute(0.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.5, 0.0, 0.5);
+        verifySpeeds(controller, 0.25, 0.0, 0.0);
+    }
+}
@@ -0,0 +1,75 @@
+package frc.robot;
+
+import frc.robot.sim.SwerveSimulation;
+import frc.robot.subsystems.DriveSubsystem;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestRobotClock {
+
+    @Test
+    @DisplayName("Test virtual time only changes when it is set or advanced")
+    void test_virtual_time() {
+        try {
+            assertFalse(RobotClock.isVirtual());
+            // advancing the system time does nothing
+            RobotClock.advance(1000000000000L);
+            assertTrue(Math.abs(RobotClock.nanoTime() - System.nanoTime()) < 100000000000L);
+
+            RobotClock.useVirtualTime(1000L);
+            assertTrue(RobotClock.isVirtual());
+            assertEquals(1000L, RobotClock.nanoTime());
+            assertEquals(1000L, RobotClock.nanoTime());
+            RobotClock.advance(20000000L);
+            assertEquals(20001000L, RobotClock.nanoTime());
+            RobotClock.setVirtualTime(5L);
+            assertEquals(5L, RobotClock.nanoTime());
+
+            RobotClock.useSystemTime();
+            assertFalse(RobotClock.isVirtual());
+            assertTrue(Math.abs(RobotClock.nanoTime() - System.nanoTime()) < 100000000000L);
+        } finally {
+            RobotClock.useSystemTime();
+        }
+    }
+
+    @Test
+    @DisplayName("Test the drive runs on simulated time, faster than the wall clock")
+    void test_accelerated_simulation() {
+        final int loops = 250;
+        final double dt = 0.02;
+        try {
+            RobotClock.useVirtualTime(0L);
+            SwerveSimulation simulation = new SwerveSimulation();
+            DriveSubsystem driveSubsystem = new DriveSubsystem(simulation.getModules(),
+                    new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH),
+                    new NavX(simulation.getGyro(), 10.0, 0.0));
+            driveSubsystem.setOdometryMode(DriveSubsystem.OdometryMode.COMMANDED);
+            driveSubsystem.setFieldPosition(0.0, 0.0, 0.0);
+            long start = System.nanoTime();
+            for (int n = 0; n < loops; n++) {
+                driveSubsystem.swerveDriveComponents(0.5, 0.0, 0.0);
+                simulation.step(dt);
+                driveSubsystem.periodic();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // 5 simulated seconds, exactly, and much less than that on the wall clock
+            assertEquals(5000000000L, RobotClock.nanoTime());
+            assertEquals(loops * dt, simulation.getTime(), 0.000001);
+            assertTrue(elapsed < 2500000000L);
+
+            // the commanded odometry integrates exactly the simulated loop times - the first loop averages the
+            // stopped and commanded speeds
+            double expected = 0.5 * Constants.MAX_METERS_PER_SEC * ((loops * dt) - (0.5 * dt));
+            assertEquals(expected, Math.hypot(driveSubsystem.getFieldX(), driveSubsystem.getFieldY()), 0.000001);
+        } finally {
+            RobotClock.useSystemTime();
+        }
+    }
+}
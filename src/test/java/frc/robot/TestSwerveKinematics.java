@@ -0,0 +1,170 @@
+package frc.robot;
+
+import org.a05annex.util.Utl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestSwerveKinematics {
+
+    private static final double LENGTH_OVER_DIAGONAL = Constants.DRIVE_LENGTH / Constants.DRIVE_DIAGONAL;
+    private static final double WIDTH_OVER_DIAGONAL = Constants.DRIVE_WIDTH / Constants.DRIVE_DIAGONAL;
+
+    /**
+     * Verify the kinematics against the a, b, c, d formulation the drive subsystem used before the
+     * kinematics were moved to {@link SwerveKinematics}.
+     */
+    private void verifyChassisMotion(SwerveKinematics kinematics, double forward, double strafe, double rotation) {
+        double a = strafe - (rotation * LENGTH_OVER_DIAGONAL);
+        double b = strafe + (rotation * LENGTH_OVER_DIAGONAL);
+        double c = forward - (rotation * WIDTH_OVER_DIAGONAL);
+        double d = forward + (rotation * WIDTH_OVER_DIAGONAL);
+        double rfSpeed = Utl.length(b, c);
+        double lfSpeed = Utl.length(b, d);
+        double lrSpeed = Utl.length(a, d);
+        double rrSpeed = Utl.length(a, c);
+        double max = Utl.max(rfSpeed, lfSpeed, lrSpeed, rrSpeed);
+        double scale = (max > 1.0) ? max : 1.0;
+
+        kinematics.compute(forward, strafe, rotation);
+        assertEquals(rfSpeed / scale, kinematics.getSpeed(SwerveKinematics.RF), 0.000001);
+        assertEquals(lfSpeed / scale, kinematics.getSpeed(SwerveKinematics.LF), 0.000001);
+        assertEquals(lrSpeed / scale, kinematics.getSpeed(SwerveKinematics.LR), 0.000001);
+        assertEquals(rrSpeed / scale, kinematics.getSpeed(SwerveKinematics.RR), 0.000001);
+        assertEquals(Math.atan2(b, c), kinematics.getRadians(SwerveKinematics.RF), 0.000001);
+        assertEquals(Math.atan2(b, d), kinematics.getRadians(SwerveKinematics.LF), 0.000001);
+        assertEquals(Math.atan2(a, d), kinematics.getRadians(SwerveKinematics.LR), 0.000001);
+        assertEquals(Math.atan2(a, c), kinematics.getRadians(SwerveKinematics.RR), 0.000001);
+        assertEquals(forward / scale, kinematics.getForward(), 0.000001);
+        assertEquals(strafe / scale, kinematics.getStrafe(), 0.000001);
+        assertEquals(rotation / scale, kinematics.getRotation(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test forward, strafe, and rotation")
+    void test_components() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        verifyChassisMotion(kinematics, 1.0, 0.0, 0.0);
+        verifyChassisMotion(kinematics, 0.0, -0.5, 0.0);
+        verifyChassisMotion(kinematics, 0.0, 0.0, 0.75);
+        verifyChassisMotion(kinematics, 0.3, 0.4, 0.0);
+    }
+
+    @Test
+    @DisplayName("Test normalization when module speeds exceed 1.0")
+    void test_normalization() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        verifyChassisMotion(kinematics, 1.0, 0.0, 1.0);
+        verifyChassisMotion(kinematics, -0.7, 0.7, -0.5);
+    }
+
+    @Test
+    @DisplayName("Test the last direction is kept when stopped")
+    void test_stopped_keeps_direction() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        kinematics.compute(0.0, 0.5, 0.0);
+        kinematics.compute(0.0, 0.0, 0.0);
+        for (int i = 0; i < kinematics.getModuleCount(); i++) {
+            assertEquals(0.0, kinematics.getSpeed(i));
+            assertEquals(Math.PI / 2.0, kinematics.getRadians(i), 0.000001);
+        }
+    }
+
+    @Test
+    @DisplayName("Test rotation in place")
+    void test_rotation_in_place() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        kinematics.computeRotationInPlace();
+        assertEquals(Math.atan2(Constants.DRIVE_LENGTH, -Constants.DRIVE_WIDTH),
+                kinematics.getRadians(SwerveKinematics.RF), 0.000001);
+        assertEquals(Math.atan2(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH),
+                kinematics.getRadians(SwerveKinematics.LF), 0.000001);
+        assertEquals(Math.atan2(-Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH),
+                kinematics.getRadians(SwerveKinematics.LR), 0.000001);
+        assertEquals(Math.atan2(-Constants.DRIVE_LENGTH, -Constants.DRIVE_WIDTH),
+                kinematics.getRadians(SwerveKinematics.RR), 0.000001);
+    }
+
+    /**
+     * Verify the forward kinematics recover the chassis motion the inverse kinematics were computed from.
+     */
+    private void verifyRoundTrip(SwerveKinematics kinematics, double forward, double strafe, double rotation) {
+        kinematics.compute(forward, strafe, rotation);
+        double[] speeds = new double[kinematics.getModuleCount()];
+        double[] radians = new double[kinematics.getModuleCount()];
+        for (int i = 0; i < kinematics.getModuleCount(); i++) {
+            speeds[i] = kinematics.getSpeed(i);
+            radians[i] = kinematics.getRadians(i);
+        }
+        kinematics.computeChassis(speeds, radians);
+        assertEquals(kinematics.getForward(), kinematics.getChassisForward(), 0.000001);
+        assertEquals(kinematics.getStrafe(), kinematics.getChassisStrafe(), 0.000001);
+        assertEquals(kinematics.getRotation(), kinematics.getChassisRotation(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test forward kinematics of the rectangular chassis")
+    void test_forward_kinematics() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        verifyRoundTrip(kinematics, 0.5, 0.0, 0.0);
+        verifyRoundTrip(kinematics, 0.0, 0.0, -0.5);
+        verifyRoundTrip(kinematics, 0.6, -0.3, 0.4);
+        verifyRoundTrip(kinematics, 1.0, 1.0, 1.0);
+    }
+
+    @Test
+    @DisplayName("Test a 3 module triangular chassis with the center of rotation off center")
+    void test_three_modules() {
+        SwerveKinematics kinematics = new SwerveKinematics(
+                new double[]{0.4, -0.2, -0.2}, new double[]{0.05, 0.3, -0.25});
+        assertEquals(3, kinematics.getModuleCount());
+        assertEquals(Math.sqrt(0.4 * 0.4 + 0.05 * 0.05), kinematics.getRotationRadius(), 0.000001);
+        // pure translation - every module points the same way at the same speed
+        kinematics.compute(0.3, 0.4, 0.0);
+        for (int i = 0; i < kinematics.getModuleCount(); i++) {
+            assertEquals(0.5, kinematics.getSpeed(i), 0.000001);
+            assertEquals(Math.atan2(0.4, 0.3), kinematics.getRadians(i), 0.000001);
+        }
+        verifyRoundTrip(kinematics, 0.3, -0.2, 0.7);
+        verifyRoundTrip(kinematics, -0.8, 0.5, -0.9);
+    }
+
+    @Test
+    @DisplayName("Test a 6 module chassis")
+    void test_six_modules() {
+        SwerveKinematics kinematics = new SwerveKinematics(
+                new double[]{0.5, 0.5, 0.0, 0.0, -0.5, -0.5}, new double[]{0.3, -0.3, 0.3, -0.3, 0.3, -0.3});
+        // pure rotation - the middle modules are closer to the center, so they are slower
+        kinematics.compute(0.0, 0.0, 1.0);
+        assertEquals(1.0, kinematics.getSpeed(0), 0.000001);
+        assertEquals(0.3 / Math.sqrt(0.34), kinematics.getSpeed(2), 0.000001);
+        assertEquals(Math.PI, Math.abs(kinematics.getRadians(2)), 0.000001);
+        assertEquals(0.0, kinematics.getRadians(3), 0.000001);
+        verifyRoundTrip(kinematics, 0.2, 0.6, -0.4);
+    }
+
+    @Test
+    @DisplayName("Test forward kinematics least squares fit")
+    void test_least_squares() {
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        // one module slips and reports no motion - the best fit is the average of the forward motion
+        kinematics.computeChassis(new double[]{1.0, 1.0, 1.0, 0.0}, new double[]{0.0, 0.0, 0.0, 0.0});
+        assertEquals(0.75, kinematics.getChassisForward(), 0.000001);
+        assertEquals(0.0, kinematics.getChassisStrafe(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test invalid module positions")
+    void test_invalid_positions() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SwerveKinematics(new double[]{0.5, 0.5}, new double[]{0.5}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SwerveKinematics(new double[]{0.5}, new double[]{0.5}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SwerveKinematics(new double[]{0.0, 0.0}, new double[]{0.0, 0.0}));
+    }
+}
@@ -0,0 +1,64 @@
+package frc.robot;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestTelemetryPublisher {
+
+    private static final long PERIOD_NANOS = (long) (Constants.TELEMETRY_PERIOD * 1.0e9);
+
+    private double m_number = 0.0;
+    private int m_integer = 0;
+    private boolean m_boolean = false;
+    private String m_string = "A";
+
+    private TelemetryPublisher createPublisher() {
+        TelemetryPublisher publisher = new TelemetryPublisher();
+        publisher.addNumber("Test/number", () -> m_number, 0.1);
+        publisher.addInteger("Test/integer", () -> m_integer);
+        publisher.addBoolean("Test/boolean", () -> m_boolean);
+        publisher.addString("Test/string", () -> m_string);
+        return publisher;
+    }
+
+    @Test
+    @DisplayName("Test everything is published the first time, then only changes")
+    void test_changes() {
+        TelemetryPublisher publisher = createPublisher();
+        assertEquals(4, publisher.getValueCount());
+        assertEquals(4, publisher.publish(0L));
+        assertEquals(0, publisher.publish(PERIOD_NANOS));
+        // inside the deadband
+        m_number = 0.05;
+        assertEquals(0, publisher.publish(2 * PERIOD_NANOS));
+        m_number = 0.15;
+        m_integer = 3;
+        assertEquals(2, publisher.publish(3 * PERIOD_NANOS));
+        // the deadband is from the last published number, not the last read number
+        m_number = 0.2;
+        assertEquals(0, publisher.publish(4 * PERIOD_NANOS));
+        m_boolean = true;
+        m_string = new String("A");
+        assertEquals(1, publisher.publish(5 * PERIOD_NANOS));
+        m_string = "B";
+        assertEquals(1, publisher.publish(6 * PERIOD_NANOS));
+        m_number = Double.NaN;
+        assertEquals(1, publisher.publish(7 * PERIOD_NANOS));
+        assertEquals(0, publisher.publish(8 * PERIOD_NANOS));
+    }
+
+    @Test
+    @DisplayName("Test values are only read at the telemetry rate")
+    void test_rate() {
+        TelemetryPublisher publisher = createPublisher();
+        assertEquals(4, publisher.publish(0L));
+        m_integer = 5;
+        assertEquals(0, publisher.publish(PERIOD_NANOS / 2));
+        assertEquals(1, publisher.publish(PERIOD_NANOS));
+    }
+}
@@ -0,0 +1,87 @@
+package frc.robot;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestTimingHistogram {
+
+    @Test
+    @DisplayName("Test every duration is in a bucket that bounds it within 3%")
+    void test_buckets() {
+        int lastIndex = -1;
+        for (long nanos = 0; nanos < 100000000L; nanos = (nanos < 200) ? nanos + 1 : (long) (nanos * 1.01)) {
+            int index = TimingHistogram.bucketIndex(nanos);
+            assertTrue(index >= lastIndex);
+            lastIndex = index;
+            long upper = TimingHistogram.bucketUpperBound(index);
+            assertTrue(upper >= nanos);
+            assertTrue((upper - nanos) <= (nanos / 32) + 1);
+            if (index > 0) {
+                assertTrue(TimingHistogram.bucketUpperBound(index - 1) < nanos);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test percentiles, max, and mean")
+    void test_percentiles() {
+        TimingHistogram histogram = new TimingHistogram();
+        assertEquals(0, histogram.getPercentile(50.0));
+        // 1ms to 100ms
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000000L);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100000000L, histogram.getMax());
+        assertEquals(50500000.0, histogram.getMean(), 0.1);
+        assertEquals(50000000.0, histogram.getPercentile(50.0), 50000000.0 * 0.03);
+        assertEquals(99000000.0, histogram.getPercentile(99.0), 99000000.0 * 0.03);
+        assertEquals(100000000L, histogram.getPercentile(100.0));
+        assertEquals(1000000.0, histogram.getPercentile(0.0), 1000000.0 * 0.03);
+
+        TimingHistogram copy = new TimingHistogram();
+        copy.copy(histogram);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(100, copy.getCount());
+        assertEquals(histogram.getPercentile(99.0), 0);
+        assertEquals(99000000.0, copy.getPercentile(99.0), 99000000.0 * 0.03);
+    }
+
+    @Test
+    @DisplayName("Test a huge duration is counted")
+    void test_huge() {
+        TimingHistogram histogram = new TimingHistogram();
+        histogram.record(-5L);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50.0));
+        assertTrue(histogram.getPercentile(100.0) > 30000000000L);
+    }
+
+    @Test
+    @DisplayName("Test loop timing stages roll into the report each report period")
+    void test_loop_timing() {
+        LoopTiming timing = new LoopTiming();
+        LoopTiming.Stage stage = timing.getStage("test");
+        assertSame(stage, timing.getStage("test"));
+        assertEquals(1, timing.getStageCount());
+        assertFalse(timing.roll(0L));
+        stage.record(2000000L);
+        stage.record(4000000L);
+        assertFalse(timing.roll((long) (Constants.LOOP_TIMING_REPORT_PERIOD * 0.5e9)));
+        assertEquals(0, stage.getReport().getCount());
+        assertTrue(timing.roll((long) (Constants.LOOP_TIMING_REPORT_PERIOD * 1.0e9)));
+        assertEquals(2, stage.getReport().getCount());
+        assertEquals(4000000L, stage.getReport().getMax());
+        // the next period starts empty
+        assertTrue(timing.roll((long) (Constants.LOOP_TIMING_REPORT_PERIOD * 2.0e9)));
+        assertEquals(0, stage.getReport().getCount());
+    }
+}
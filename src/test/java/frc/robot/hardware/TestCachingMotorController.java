@@ -0,0 +1,93 @@
+package frc.robot.hardware;
+
+import com.revrobotics.ControlType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestCachingMotorController {
+
+    @Test
+    @DisplayName("Test unchanged setpoints are suppressed")
+    void test_setpoints() {
+        IMotorController motor = mock(IMotorController.class);
+        CachingMotorController cache = new CachingMotorController(motor, 0.01, 1.0, 60.0);
+        cache.setReference(10.0, ControlType.kPosition);
+        cache.setReference(10.005, ControlType.kPosition);
+        cache.setReference(10.0, ControlType.kPosition);
+        verify(motor, times(1)).setReference(10.0, ControlType.kPosition);
+        verify(motor, never()).setReference(10.005, ControlType.kPosition);
+        // a change larger than the epsilon is sent
+        cache.setReference(10.02, ControlType.kPosition);
+        verify(motor, times(1)).setReference(10.02, ControlType.kPosition);
+        // a change of control type is always sent
+        cache.setReference(10.02, ControlType.kVelocity);
+        verify(motor, times(1)).setReference(10.02, ControlType.kVelocity);
+        cache.setReference(10.5, ControlType.kVelocity);
+        verify(motor, never()).setReference(10.5, ControlType.kVelocity);
+        assertEquals(3, cache.getSentCount());
+        assertEquals(3, cache.getSuppressedCount());
+    }
+
+    @Test
+    @DisplayName("Test setpoints with a feed-forward are sent when the feed-forward changes")
+    void test_feedforward() {
+        IMotorController motor = mock(IMotorController.class);
+        CachingMotorController cache = new CachingMotorController(motor, 0.01, 1.0, 0.1, 60.0);
+        cache.setReference(10.0, ControlType.kPosition, 1.0);
+        cache.setReference(10.0, ControlType.kPosition, 1.05);
+        verify(motor, times(1)).setReference(10.0, ControlType.kPosition, 1.0);
+        verify(motor, never()).setReference(10.0, ControlType.kPosition, 1.05);
+        // the position has not changed, but the feed-forward has
+        cache.setReference(10.0, ControlType.kPosition, 1.5);
+        verify(motor, times(1)).setReference(10.0, ControlType.kPosition, 1.5);
+        // back to no feed-forward
+        cache.setReference(10.0, ControlType.kPosition);
+        verify(motor, times(1)).setReference(10.0, ControlType.kPosition);
+        assertEquals(3, cache.getSentCount());
+        assertEquals(1, cache.getSuppressedCount());
+    }
+
+    @Test
+    @DisplayName("Test unchanged setpoints are refreshed")
+    void test_refresh() throws InterruptedException {
+        IMotorController motor = mock(IMotorController.class);
+        CachingMotorController cache = new CachingMotorController(motor, 0.01, 1.0, 0.01);
+        cache.setReference(1000.0, ControlType.kVelocity);
+        Thread.sleep(20);
+        cache.setReference(1000.0, ControlType.kVelocity);
+        verify(motor, times(2)).setReference(1000.0, ControlType.kVelocity);
+    }
+
+    @Test
+    @DisplayName("Test parameters are only sent when they change")
+    void test_parameters() {
+        IMotorController motor = mock(IMotorController.class);
+        CachingMotorController cache = new CachingMotorController(motor, 0.01, 1.0, 60.0);
+        cache.setP(0.1);
+        cache.setI(0.0);
+        cache.setOutputRange(-1.0, 1.0);
+        cache.setInverted(true);
+        cache.setP(0.1);
+        cache.setI(0.0);
+        cache.setOutputRange(-1.0, 1.0);
+        cache.setInverted(true);
+        cache.setP(0.2);
+        verify(motor, times(1)).setP(0.1);
+        verify(motor, times(1)).setP(0.2);
+        verify(motor, times(1)).setI(0.0);
+        verify(motor, times(1)).setOutputRange(-1.0, 1.0);
+        verify(motor, times(1)).setInverted(true);
+        assertEquals(5, cache.getSentCount());
+        assertEquals(4, cache.getSuppressedCount());
+        // restoring the factory defaults forgets the cached parameters
+        cache.restoreFactoryDefaults();
+        cache.setP(0.2);
+        verify(motor, times(2)).setP(0.2);
+    }
+}
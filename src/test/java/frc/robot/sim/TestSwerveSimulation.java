@@ -0,0 +1,169 @@
+package frc.robot.sim;
+
+import com.revrobotics.ControlType;
+import frc.robot.Constants;
+import frc.robot.DriveModule;
+import frc.robot.SwerveKinematics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestSwerveSimulation {
+
+    private static final double DT = 0.005;
+
+    private void run(SwerveSimulation simulation, double seconds) {
+        for (int i = 0; i < (int) Math.round(seconds / DT); i++) {
+            simulation.step(DT);
+        }
+    }
+
+    @Test
+    @DisplayName("Test motor velocity lag")
+    void test_velocity_lag() {
+        SimulatedMotorController motor = new SimulatedMotorController(5000.0, 0.1);
+        motor.setFF(0.0002);
+        motor.setReference(4000.0, ControlType.kVelocity);
+        // one time constant is 63% of the way there
+        for (int i = 0; i < 20; i++) {
+            motor.step(DT);
+        }
+        assertEquals(0.632 * 4000.0, motor.getVelocity(), 10.0);
+        for (int i = 0; i < 380; i++) {
+            motor.step(DT);
+        }
+        assertEquals(4000.0, motor.getVelocity(), 1.0);
+        assertTrue(motor.getPosition() > 0.0);
+    }
+
+    @Test
+    @DisplayName("Test motor position PID and output clipping")
+    void test_position_pid() {
+        SimulatedMotorController motor = new SimulatedMotorController(5700.0, 0.03);
+        motor.setP(0.25);
+        motor.setReference(4.5, ControlType.kPosition);
+        motor.step(DT);
+        assertEquals(1.0, motor.getOutput(), 0.000001);
+        for (int i = 0; i < 200; i++) {
+            motor.step(DT);
+        }
+        assertEquals(4.5, motor.getPosition(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Test gyro yaw wraps like the NavX")
+    void test_gyro() {
+        SimulatedGyro gyro = new SimulatedGyro();
+        gyro.rotate(170.0);
+        assertEquals(170.0, gyro.getYaw(), 0.000001);
+        gyro.rotate(20.0);
+        assertEquals(-170.0, gyro.getYaw(), 0.000001);
+        gyro.rotate(-20.0);
+        assertEquals(170.0, gyro.getYaw(), 0.000001);
+        assertEquals(3.0, gyro.getUpdateCount());
+    }
+
+    @Test
+    @DisplayName("Test driving forward")
+    void test_drive_forward() {
+        SwerveSimulation simulation = new SwerveSimulation();
+        for (DriveModule module : simulation.getModules()) {
+            module.setRadiansAndSpeed(0.0, 0.5);
+        }
+        run(simulation, 2.0);
+        // after the motors have come up to speed, the robot moves at about half of the maximum speed
+        double y = simulation.getFieldY();
+        run(simulation, 1.0);
+        assertEquals(0.5 * Constants.MAX_METERS_PER_SEC, simulation.getFieldY() - y,
+                0.1 * Constants.MAX_METERS_PER_SEC);
+        assertEquals(0.0, simulation.getFieldX(), 0.000001);
+        assertEquals(0.0, simulation.getHeading(), 0.000001);
+        assertEquals(0.0, simulation.getGyro().getYaw(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test rotating in place turns the gyro")
+    void test_rotate() {
+        SwerveSimulation simulation = new SwerveSimulation();
+        SwerveKinematics kinematics = new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH);
+        kinematics.computeRotationInPlace();
+        DriveModule[] modules = simulation.getModules();
+        for (int i = 0; i < modules.length; i++) {
+            modules[i].setRadiansAndSpeed(kinematics.getRadians(i), 0.25);
+        }
+        run(simulation, 1.0);
+        assertTrue(simulation.getHeading() > 0.1);
+        assertEquals(Math.toDegrees(simulation.getHeading()), simulation.getGyro().getYaw(), 0.000001);
+        assertEquals(0.0, simulation.getFieldX(), 0.01);
+        assertEquals(0.0, simulation.getFieldY(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Test the module sensor snapshot only changes when sampled")
+    void test_sensor_snapshot() {
+        SwerveSimulation simulation = new SwerveSimulation();
+        DriveModule module = simulation.getModules()[0];
+        module.setRadiansAndSpeed(0.0, 0.5);
+        run(simulation, 0.5);
+        assertEquals(0.0, module.getSampledDrivePosition());
+        assertEquals(0L, module.getSampleTimeNanos());
+        module.sampleSensors();
+        double position = module.getSampledDrivePosition();
+        assertEquals(module.getDriveEncoderPosition(), position);
+        assertEquals(module.getDriveEncoderVelocity(), module.getSampledDriveVelocity());
+        assertTrue(module.getSampleTimeNanos() != 0L);
+        run(simulation, 0.5);
+        assertEquals(position, module.getSampledDrivePosition());
+        assertTrue(module.getDriveEncoderPosition() > position);
+    }
+
+    /**
+     * Turn a module at a constant rate for a second, returning the direction lag at the end, in radians.
+     */
+    private double moduleDirectionLag(boolean feedforward) {
+        SimulatedMotorController spin = new SimulatedMotorController(Constants.SIM_MOTOR_FREE_RPM,
+                Constants.SIM_SPIN_TIME_CONSTANT);
+        DriveModule module = new DriveModule(new SimulatedMotorController(Constants.SIM_MOTOR_FREE_RPM,
+                Constants.SIM_DRIVE_TIME_CONSTANT), spin, () -> 0.0, 0.0);
+        double radiansPerSec = 2.0;
+        double radians = 0.0;
+        for (int i = 0; i < 50; i++) {
+            radians += radiansPerSec * 0.02;
+            module.sampleSensors();
+            module.computeRadiansAndSpeed(radians, 0.5, feedforward ? radiansPerSec : 0.0);
+            module.flush();
+            for (int j = 0; j < 4; j++) {
+                spin.step(DT);
+            }
+        }
+        return radians - (spin.getPosition() / Constants.RADIANS_TO_SPIN_ENCODER);
+    }
+
+    @Test
+    @DisplayName("Test the module direction feed-forward reduces the direction lag")
+    void test_azimuth_feedforward() {
+        double lag = moduleDirectionLag(false);
+        double feedforwardLag = moduleDirectionLag(true);
+        assertTrue(lag > 0.0);
+        assertTrue(Math.abs(feedforwardLag) < 0.5 * lag);
+    }
+
+    @Test
+    @DisplayName("Test the module speed is scaled by the cosine of the direction error")
+    void test_cosine_scaling() {
+        DriveModule module = new DriveModule(new SimulatedMotorController(5700.0, 0.1),
+                new SimulatedMotorController(5700.0, 0.03), () -> 0.0, 0.0);
+        module.sampleSensors();
+        module.computeRadiansAndSpeed(Math.PI / 3.0, 1.0, 0.0);
+        assertEquals(0.5 * Constants.MAX_DRIVE_VELOCITY, module.getPendingCommand().driveReference, 0.001);
+        assertEquals(0.0, module.getPendingCommand().spinFeedforward, 0.000001);
+        // more than 90 degrees off (the module has not turned yet), the module does not drive until it has turned
+        module.computeRadiansAndSpeed(Math.PI / 3.0 + Math.toRadians(80.0), 1.0, 1.0);
+        assertEquals(0.0, module.getPendingCommand().driveReference, 0.000001);
+        assertEquals(Constants.SPIN_kV, module.getPendingCommand().spinFeedforward, 0.000001);
+    }
+}
@@ -0,0 +1,72 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants;
+import frc.robot.DriveModule;
+import frc.robot.sim.SimulatedMotorController;
+import frc.robot.sim.SwerveSimulation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestModuleDispatcher {
+
+    private double driveReference(DriveModule module) {
+        return ((SimulatedMotorController) module.getDriveMotor()).getReference();
+    }
+
+    private double spinReference(DriveModule module) {
+        return ((SimulatedMotorController) module.getSpinMotor()).getReference();
+    }
+
+    @Test
+    @DisplayName("Test computed commands are only sent when dispatched")
+    void test_dispatch() {
+        DriveModule[] modules = new SwerveSimulation().getModules();
+        ModuleDispatcher dispatcher = new ModuleDispatcher(modules);
+        for (DriveModule module : modules) {
+            module.computeRadiansAndSpeed(Math.toRadians(10.0), 0.5);
+        }
+        for (DriveModule module : modules) {
+            assertEquals(0.0, driveReference(module));
+        }
+        dispatcher.dispatch();
+        for (DriveModule module : modules) {
+            assertEquals(0.5 * Constants.MAX_DRIVE_VELOCITY, driveReference(module), 0.000001);
+            assertEquals(Math.toRadians(10.0) * Constants.RADIANS_TO_SPIN_ENCODER, spinReference(module), 0.000001);
+        }
+        assertEquals(1, dispatcher.getBatches());
+    }
+
+    @Test
+    @DisplayName("Test commands are sent on the dispatch thread")
+    void test_dispatch_thread() throws InterruptedException {
+        DriveModule[] modules = new SwerveSimulation().getModules();
+        ModuleDispatcher dispatcher = new ModuleDispatcher(modules);
+        dispatcher.start();
+        try {
+            assertTrue(dispatcher.isRunning());
+            for (DriveModule module : modules) {
+                module.computeRadiansAndSpeed(0.0, 0.25);
+            }
+            dispatcher.dispatch();
+            // the commands were copied at dispatch, so changing them now does not change the batch
+            for (DriveModule module : modules) {
+                module.computeRadiansAndSpeed(0.0, 0.75);
+            }
+            for (int i = 0; i < 100 && dispatcher.getBatches() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, dispatcher.getBatches());
+            for (DriveModule module : modules) {
+                assertEquals(0.25 * Constants.MAX_DRIVE_VELOCITY, driveReference(module), 0.000001);
+            }
+        } finally {
+            dispatcher.stop();
+        }
+        assertFalse(dispatcher.isRunning());
+    }
+}
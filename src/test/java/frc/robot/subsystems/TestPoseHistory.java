@@ -0,0 +1,69 @@
+package frc.robot.subsystems;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestPoseHistory {
+
+    private void verifyLookup(PoseHistory history, long timeNanos, double fieldX, double fieldY, double heading) {
+        assertTrue(history.lookup(timeNanos));
+        assertEquals(fieldX, history.getLookupX(), 0.000001);
+        assertEquals(fieldY, history.getLookupY(), 0.000001);
+        assertEquals(heading, history.getLookupHeading(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test empty history")
+    void test_empty() {
+        PoseHistory history = new PoseHistory(4);
+        assertEquals(0, history.size());
+        assertFalse(history.lookup(1000L));
+    }
+
+    @Test
+    @DisplayName("Test exact and interpolated lookups")
+    void test_interpolation() {
+        PoseHistory history = new PoseHistory(8);
+        history.record(1000L, 0.0, 0.0, 0.0);
+        history.record(2000L, 1.0, 2.0, 0.5);
+        history.record(4000L, 3.0, 2.0, 1.5);
+        verifyLookup(history, 2000L, 1.0, 2.0, 0.5);
+        verifyLookup(history, 1500L, 0.5, 1.0, 0.25);
+        verifyLookup(history, 3000L, 2.0, 2.0, 1.0);
+        // before the oldest and after the newest are clamped
+        verifyLookup(history, 0L, 0.0, 0.0, 0.0);
+        verifyLookup(history, 5000L, 3.0, 2.0, 1.5);
+    }
+
+    @Test
+    @DisplayName("Test the oldest poses are replaced when full")
+    void test_wrap_around() {
+        PoseHistory history = new PoseHistory(4);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(history.record(1000L * i, i, -i, 0.1 * i));
+        }
+        assertEquals(4, history.size());
+        // poses 6 through 9 remain
+        verifyLookup(history, 0L, 6.0, -6.0, 0.6);
+        verifyLookup(history, 7500L, 7.5, -7.5, 0.75);
+        verifyLookup(history, 9000L, 9.0, -9.0, 0.9);
+    }
+
+    @Test
+    @DisplayName("Test out of order poses are ignored")
+    void test_out_of_order() {
+        PoseHistory history = new PoseHistory(4);
+        assertTrue(history.record(2000L, 1.0, 1.0, 1.0));
+        assertFalse(history.record(2000L, 2.0, 2.0, 2.0));
+        assertFalse(history.record(1000L, 2.0, 2.0, 2.0));
+        assertEquals(1, history.size());
+        history.clear();
+        assertEquals(0, history.size());
+        assertTrue(history.record(1000L, 2.0, 2.0, 2.0));
+    }
+}
@@ -0,0 +1,87 @@
+package frc.robot.subsystems;
+
+import frc.robot.Constants;
+import frc.robot.DriveModule;
+import frc.robot.SwerveKinematics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(JUnitPlatform.class)
+public class TestSwerveOdometry {
+
+    /**
+     * Odometry for the rectangular chassis with mocked drive modules, all starting with the drive encoders at 0.0
+     * and pointing forward.
+     */
+    private class MockedOdometry {
+        final DriveModule[] modules = new DriveModule[4];
+        final SwerveOdometry odometry;
+
+        MockedOdometry() {
+            for (int i = 0; i < modules.length; i++) {
+                modules[i] = mock(DriveModule.class);
+                when(modules[i].getSampledDrivePosition()).thenReturn(0.0);
+                when(modules[i].getSampledSpinPosition()).thenReturn(0.0);
+            }
+            odometry = new SwerveOdometry(modules,
+                    new SwerveKinematics(Constants.DRIVE_LENGTH, Constants.DRIVE_WIDTH));
+        }
+
+        /**
+         * Set all of the modules to the same direction and drive encoder position.
+         */
+        void setModules(double radians, double meters) {
+            for (DriveModule module : modules) {
+                when(module.getSampledSpinPosition()).thenReturn(radians * Constants.RADIANS_TO_SPIN_ENCODER);
+                when(module.getSampledDrivePosition()).thenReturn(meters / Constants.DRIVE_METERS_PER_TIC);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test driving forward")
+    void test_forward() {
+        MockedOdometry mo = new MockedOdometry();
+        mo.setModules(0.0, 1.0);
+        mo.odometry.updateFromEncoders(0.0);
+        assertEquals(0.0, mo.odometry.getFieldX(), 0.000001);
+        assertEquals(1.0, mo.odometry.getFieldY(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test strafing right")
+    void test_strafe() {
+        MockedOdometry mo = new MockedOdometry();
+        mo.setModules(Math.PI / 2.0, 0.5);
+        mo.odometry.updateFromEncoders(0.0);
+        assertEquals(0.5, mo.odometry.getFieldX(), 0.000001);
+        assertEquals(0.0, mo.odometry.getFieldY(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test driving forward with the robot turned to the right")
+    void test_forward_heading() {
+        MockedOdometry mo = new MockedOdometry();
+        mo.odometry.reset(1.0, 2.0, Math.PI / 2.0);
+        mo.setModules(0.0, 1.0);
+        mo.odometry.updateFromEncoders(Math.PI / 2.0);
+        assertEquals(2.0, mo.odometry.getFieldX(), 0.000001);
+        assertEquals(2.0, mo.odometry.getFieldY(), 0.000001);
+        assertEquals(Math.PI / 2.0, mo.odometry.getFieldHeading(), 0.000001);
+    }
+
+    @Test
+    @DisplayName("Test reset starts from the current encoder positions")
+    void test_reset() {
+        MockedOdometry mo = new MockedOdometry();
+        mo.setModules(0.0, 3.0);
+        mo.odometry.reset(0.0, 0.0, 0.0);
+        mo.odometry.updateFromEncoders(0.0);
+        assertEquals(0.0, mo.odometry.getFieldY(), 0.000001);
+    }
+}